@@ -1,10 +1,110 @@
 package zone.chenfeng.JMemPool;
 
+import zone.chenfeng.JMemPool.profiler.AllocationProfiler;
+
 public interface IMemoryPool extends AutoCloseable {
 
+    /**
+     * 分配失败时返回的指针，例如内存池达到容量上限
+     */
+    long NULL_POINTER = -1L;
+
     long malloc(int size);
+
+    /**
+     * 分配按alignment字节对齐的内存块，用于避免伪共享和跨缓存行
+     * @param alignment 对齐字节数，必须是2的幂
+     */
+    long mallocAligned(int size, int alignment);
+
     void free(long pointer);
     long put(long pointer,byte[] data);
     long put(byte[] data);
     byte[] get(long pointer);
+
+    /**
+     * 已使用的字节数，即所有已分配内存块占用的字节数
+     */
+    long usedBytes();
+
+    /**
+     * 内存块中数据的长度，即malloc的大小或put的数据长度
+     */
+    int length(long pointer);
+
+    /**
+     * 在内存块的数据末尾追加data<br>
+     * 内存块还有空余时原地写入，只复制追加的数据；放不下时重新分配更大的内存块
+     * @return 新的指针（数据长度变化后指针可能变化），内存不足时返回 {@link #NULL_POINTER}，原指针保持不变
+     */
+    long append(long pointer, byte[] data);
+
+    /**
+     * 把内存块的数据长度改为newSize，增长的部分填充0，缩短时截断<br>
+     * 内存块还有空余时原地调整
+     * @return 新的指针，内存不足时返回 {@link #NULL_POINTER}，原指针保持不变
+     */
+    long realloc(long pointer, int newSize);
+
+    /**
+     * 开启分配采样，profiler为null时关闭<br>
+     * 开启之前分配的内存块不会被采样，释放时也不会记录存活时间
+     */
+    void setProfiler(AllocationProfiler profiler);
+
+    /*
+     * 类型化访问：直接读写内存块中offset处的基本类型，不复制整个内存块，适合定长结构的原地读写。
+     * 字段不能超出内存块的数据长度（malloc的大小或put的数据长度），否则抛出IndexOutOfBoundsException；
+     * 按本机字节序读写，与get得到的字节数组互通时需要注意字节序。
+     */
+
+    byte getByte(long pointer, int offset);
+
+    void putByte(long pointer, int offset, byte value);
+
+    short getShort(long pointer, int offset);
+
+    void putShort(long pointer, int offset, short value);
+
+    int getInt(long pointer, int offset);
+
+    void putInt(long pointer, int offset, int value);
+
+    long getLong(long pointer, int offset);
+
+    void putLong(long pointer, int offset, long value);
+
+    default float getFloat(long pointer, int offset) {
+        return Float.intBitsToFloat(getInt(pointer, offset));
+    }
+
+    default void putFloat(long pointer, int offset, float value) {
+        putInt(pointer, offset, Float.floatToRawIntBits(value));
+    }
+
+    default double getDouble(long pointer, int offset) {
+        return Double.longBitsToDouble(getLong(pointer, offset));
+    }
+
+    default void putDouble(long pointer, int offset, double value) {
+        putLong(pointer, offset, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * 把内存块中offset开始的length个字节复制到dst，不创建数组
+     */
+    default void getBytes(long pointer, int offset, byte[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = getByte(pointer, offset + i);
+        }
+    }
+
+    /**
+     * 把src中的length个字节写入内存块offset处，不改变内存块的数据长度
+     */
+    default void putBytes(long pointer, int offset, byte[] src, int srcOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            putByte(pointer, offset + i, src[srcOffset + i]);
+        }
+    }
 }
@@ -1,15 +1,18 @@
 package zone.chenfeng.JMemPool;
 
+import zone.chenfeng.JMemPool.benchmark.AlignmentBenchmark;
 import zone.chenfeng.JMemPool.benchmark.BenchmarkTool;
+import zone.chenfeng.JMemPool.benchmark.CollectionBenchmark;
 import zone.chenfeng.JMemPool.server.SimpleClient;
 import zone.chenfeng.JMemPool.server.SimpleServer;
+import zone.chenfeng.JMemPool.trace.TraceReplayer;
 
 
 public class Launcher {
 
     public static void main(String[] args) throws Exception {
         if (args.length < 1) {
-            System.out.println("请指定要运行的类:server、client、test、testClient");
+            System.out.println("请指定要运行的类:server、client、test、testClient、alignBench、collectionBench、replay");
             return;
         }
 
@@ -26,6 +29,15 @@ public class Launcher {
             case "testclient":
                 BenchmarkTool.main(args);
                 break;
+            case "alignbench":
+                AlignmentBenchmark.main(args);
+                break;
+            case "collectionbench":
+                CollectionBenchmark.main(args);
+                break;
+            case "replay":
+                TraceReplayer.main(args);
+                break;
             default:
                 System.out.println("未知的选项");
         }
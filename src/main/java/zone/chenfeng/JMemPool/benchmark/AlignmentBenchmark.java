@@ -0,0 +1,84 @@
+package zone.chenfeng.JMemPool.benchmark;
+
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 伪共享测试<br>
+ * 每个线程不断累加自己的计数器，计数器是从同一个内存池中分配的8字节内存块，通过 getLong/putLong 读写：
+ * <ul>
+ *     <li>malloc：连续 malloc(8) 得到的块在小页中相邻，多个计数器落在同一个缓存行</li>
+ *     <li>mallocAligned：mallocAligned(8, 64) 得到的块按64字节对齐，每个计数器独占一个缓存行</li>
+ * </ul>
+ * 两种情况下的访问方式完全相同，差别只在分配方式。
+ * 用法：alignbench [线程数] [每个线程的累加次数]
+ */
+public class AlignmentBenchmark {
+
+    private static final int CACHE_LINE = 64;
+
+    public static void main(String[] args) throws Exception {
+        int threadCount = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20_000_000;
+
+        System.out.println("Threads: " + threadCount + ", iterations per thread: " + iterations);
+        // 先各跑一次预热
+        run(threadCount, iterations / 10, false);
+        run(threadCount, iterations / 10, true);
+
+        report("malloc(8)", threadCount, iterations, run(threadCount, iterations, false));
+        report("mallocAligned(8, 64)", threadCount, iterations, run(threadCount, iterations, true));
+    }
+
+    /**
+     * @param aligned 是否用 mallocAligned 分配计数器
+     * @return 耗时，纳秒
+     */
+    private static long run(int threadCount, int iterations, boolean aligned) throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        long[] counters = new long[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            counters[i] = aligned ? pool.mallocAligned(Long.BYTES, CACHE_LINE) : pool.malloc(Long.BYTES);
+            pool.putLong(counters[i], 0, 0);
+        }
+        CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            long counter = counters[i];
+            // 分配在线程启动前完成，线程只读写自己的内存块，不修改内存池的结构
+            threads[i] = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // 每次写入后加内存屏障，相当于volatile写，保证每次累加都真正写入内存，不会被JIT合并
+                for (int j = 0; j < iterations; j++) {
+                    pool.putLong(counter, 0, pool.getLong(counter, 0) + 1);
+                    VarHandle.fullFence();
+                }
+            });
+            threads[i].start();
+        }
+        long start = System.nanoTime();
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        for (int i = 0; i < threadCount; i++) {
+            if (pool.getLong(counters[i], 0) != iterations) {
+                throw new IllegalStateException("Counter " + i + " is wrong");
+            }
+        }
+        pool.close();
+        return elapsed;
+    }
+
+    private static void report(String name, int threadCount, int iterations, long elapsedNanos) {
+        double opsPerSecond = (double) threadCount * iterations / (elapsedNanos / 1e9);
+        System.out.println(String.format("%-22s %8d ms  %,.0f ops/s", name, elapsedNanos / 1_000_000, opsPerSecond));
+    }
+}
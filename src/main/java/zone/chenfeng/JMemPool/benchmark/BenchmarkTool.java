@@ -4,73 +4,100 @@ import zone.chenfeng.JMemPool.server.IClient;
 import zone.chenfeng.JMemPool.server.SimpleClient;
 import zone.chenfeng.JMemPool.utils.StringUtils;
 
-import java.io.Closeable;
-import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.util.Arrays;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class BenchmarkTool {
 
     public static void main(String[] args) throws Exception {
-        String host ="127.0.0.1";
-        int port = 9800;
-
-        if(args.length == 3){
-            // args[0]为client
-            host = args[1];
-            port = Integer.parseInt(args[2]);
+        WorkloadProfile profile;
+        try {
+            profile = WorkloadProfile.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(WorkloadProfile.usage());
+            return;
         }
-
-        Scanner scanner = new Scanner(System.in);
-        BenchmarkTool benchmarkTool = new BenchmarkTool(10,10000,2,32,"127.0.0.1",9800);
+        BenchmarkTool benchmarkTool = new BenchmarkTool(profile);
         benchmarkTool.runTest();
     }
 
-    private final int threadCount;
-    private final int requestPerThread;
-    private int valueMinSize = 2;
-    private int valueMaxSize = 32;
+    private final WorkloadProfile profile;
     private final AtomicLong totalTime = new AtomicLong(0);
     private final AtomicLong successCount = new AtomicLong(0);
-    private final List<Long> latencies = new CopyOnWriteArrayList<>();
-    String host;
-    int port;
+    private final AtomicLong getCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+    private final AtomicLong setCount = new AtomicLong(0);
+    private final AtomicLong hugeSetCount = new AtomicLong(0);
+    /**
+     * 每个线程的延迟记录，测量阶段结束后再合并，避免在请求路径上竞争
+     */
+    private final LatencyRecorder[] getLatencies;
+    private final LatencyRecorder[] setLatencies;
 
     public BenchmarkTool(int threadCount, int requestPerThread, int valueMinSize,int valueMaxSize,String host, int port) {
-        this.threadCount = threadCount;
-        this.requestPerThread = requestPerThread;
-        this.valueMinSize = valueMinSize;
-        this.valueMaxSize = valueMaxSize;
-        this.host = host;
-        this.port = port;
+        this(legacyProfile(threadCount, requestPerThread, valueMinSize, valueMaxSize, host, port));
+    }
+
+    public BenchmarkTool(WorkloadProfile profile) {
+        this.profile = profile;
+        this.getLatencies = new LatencyRecorder[profile.threadCount];
+        this.setLatencies = new LatencyRecorder[profile.threadCount];
+    }
+
+    private static WorkloadProfile legacyProfile(int threadCount, int requestPerThread, int valueMinSize, int valueMaxSize, String host, int port) {
+        WorkloadProfile profile = new WorkloadProfile();
+        profile.threadCount = threadCount;
+        profile.requestPerThread = requestPerThread;
+        profile.valueMinSize = valueMinSize;
+        profile.valueMaxSize = valueMaxSize;
+        profile.host = host;
+        profile.port = port;
+        return profile;
     }
 
     public void runTest() throws Exception {
+        int threadCount = profile.threadCount;
         ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch warmupLatch = new CountDownLatch(threadCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
         CountDownLatch latch = new CountDownLatch(threadCount);
+        KeyGenerator keyGenerator = profile.newKeyGenerator();
 
-        long startTime = System.currentTimeMillis();
+        System.out.println("Workload: " + profile);
 
         // 创建测试任务
         for (int i = 0; i < threadCount; i++) {
-            IClient client = new SimpleClient(host,port);
+            IClient client = new SimpleClient(profile.host, profile.port);
+            int threadIndex = i;
+            getLatencies[i] = new LatencyRecorder(profile.requestPerThread);
+            setLatencies[i] = new LatencyRecorder(profile.requestPerThread);
             executor.submit(() -> {
-                try {
-                    runSingleThread(client);
+                boolean warmedUp = false;
+                try (client) {
+                    // 预热阶段，不记录结果
+                    runPhase(client, threadIndex, keyGenerator, profile.warmupPerThread, false);
+                    warmedUp = true;
+                    warmupLatch.countDown();
+                    startLatch.await();
+                    runPhase(client, threadIndex, keyGenerator, profile.requestPerThread, true);
+                } catch (Exception e) {
+                    e.printStackTrace();
                 } finally {
+                    // 预热阶段异常退出时也要计数，否则主线程一直等待
+                    if (!warmedUp) {
+                        warmupLatch.countDown();
+                    }
                     latch.countDown();
                 }
             });
         }
 
+        warmupLatch.await();
+        long startTime = System.currentTimeMillis();
+        startLatch.countDown();
+
         latch.await();
         long endTime = System.currentTimeMillis();
         executor.shutdown();
@@ -79,48 +106,120 @@ public class BenchmarkTool {
         printResults(endTime - startTime);
     }
 
-    private void runSingleThread(IClient client) {
-        String value = StringUtils.randomString(valueMinSize,valueMaxSize);
+    private void runPhase(IClient client, int threadIndex, KeyGenerator keyGenerator, int requests, boolean measure) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 预先生成一个最大长度的value，每次请求截取所需的长度，避免在请求路径上生成随机字符串
+        String baseValue = StringUtils.randomString(profile.maxValueSize(), profile.maxValueSize() + 1);
+        String keyPrefix = "key-" + (profile.isSetGet() ? threadIndex + "-" + (measure ? "m" : "w") + "-" : "");
 
-        for (int i = 0; i < requestPerThread; i++) {
-            String key = "key-" + Thread.currentThread().getId() + "-" + i;
+        for (int i = 0; i < requests; i++) {
+            String key = keyPrefix + keyGenerator.nextKey(random);
+            boolean read = !profile.isSetGet() && random.nextDouble() < profile.readRatio;
+            int valueSize = read ? 0 : profile.nextValueSize(random);
 
             long start = System.nanoTime();
             try {
-                // 执行SET操作
-                client.set(key, value);
-                // 执行GET操作
-                client.get(key);
-
-                successCount.incrementAndGet();
+                if (profile.isSetGet()) {
+                    // 执行SET操作
+                    client.set(key, baseValue.substring(0, valueSize));
+                    // 执行GET操作
+                    client.get(key);
+                } else if (read) {
+                    String response = client.get(key);
+                    if (measure && "null\n".equals(response)) {
+                        missCount.incrementAndGet();
+                    }
+                } else {
+                    client.set(key, baseValue.substring(0, valueSize));
+                }
             } catch (Exception e) {
                 e.printStackTrace();
+                continue;
             }
             long end = System.nanoTime();
 
-            latencies.add((end - start) / 1000); // 转换为微秒
+            if (!measure) {
+                continue;
+            }
+            successCount.incrementAndGet();
+            if (read) {
+                getCount.incrementAndGet();
+                getLatencies[threadIndex].record(end - start);
+            } else {
+                setCount.incrementAndGet();
+                if (valueSize > 256) {
+                    hugeSetCount.incrementAndGet();
+                }
+                setLatencies[threadIndex].record(end - start);
+            }
             totalTime.addAndGet(end - start);
         }
     }
 
     private void printResults(long totalTimeMillis) {
-        long totalRequests = (long) threadCount * requestPerThread;
+        long totalRequests = (long) profile.threadCount * profile.requestPerThread;
         double qps = (double) successCount.get() / (totalTimeMillis / 1000.0);
 
-        // 计算延迟统计
-        List<Long> sortedLatencies = new ArrayList<>(latencies);
-        sortedLatencies.sort(Long::compareTo);
-
-        long p95 = sortedLatencies.get((int) (sortedLatencies.size() * 0.95));
-        long p99 = sortedLatencies.get((int) (sortedLatencies.size() * 0.99));
-
         System.out.println("=== Benchmark Results ===");
         System.out.println("Total Requests: " + totalRequests);
         System.out.println("Successful Requests: " + successCount.get());
         System.out.println("QPS: " + String.format("%.2f", qps));
         System.out.println("Average Latency: " +
                 String.format("%.2f", totalTime.get() / (double) successCount.get() / 1000000) + "ms");
-        System.out.println("P95 Latency: " + p95 + "μs");
-        System.out.println("P99 Latency: " + p99 + "μs");
+        if (profile.isSetGet()) {
+            printLatencies("SET+GET", setLatencies);
+        } else {
+            System.out.println("GET Requests: " + getCount.get() + " (misses: " + missCount.get() + String.format(", hit rate: %.2f%%",
+                    getCount.get() == 0 ? 0 : 100.0 * (getCount.get() - missCount.get()) / getCount.get()) + ")");
+            System.out.println("SET Requests: " + setCount.get() + " (huge values: " + hugeSetCount.get() + ")");
+            printLatencies("GET", getLatencies);
+            printLatencies("SET", setLatencies);
+        }
+    }
+
+    private static void printLatencies(String name, LatencyRecorder[] recorders) {
+        // 计算延迟统计
+        long[] sortedLatencies = LatencyRecorder.merge(recorders);
+        if (sortedLatencies.length == 0) {
+            return;
+        }
+        Arrays.sort(sortedLatencies);
+
+        long p50 = sortedLatencies[(int) (sortedLatencies.length * 0.50)];
+        long p95 = sortedLatencies[(int) (sortedLatencies.length * 0.95)];
+        long p99 = sortedLatencies[(int) (sortedLatencies.length * 0.99)];
+        System.out.println(name + " P50 Latency: " + p50 / 1000 + "μs");
+        System.out.println(name + " P95 Latency: " + p95 / 1000 + "μs");
+        System.out.println(name + " P99 Latency: " + p99 / 1000 + "μs");
+    }
+
+    /**
+     * 单线程使用的延迟记录，单位纳秒
+     */
+    static class LatencyRecorder {
+        private final long[] latencies;
+        private int count;
+
+        LatencyRecorder(int capacity) {
+            latencies = new long[capacity];
+        }
+
+        void record(long nanos) {
+            latencies[count++] = nanos;
+        }
+
+        static long[] merge(LatencyRecorder[] recorders) {
+            int total = 0;
+            for (LatencyRecorder recorder : recorders) {
+                total += recorder.count;
+            }
+            long[] result = new long[total];
+            int pos = 0;
+            for (LatencyRecorder recorder : recorders) {
+                System.arraycopy(recorder.latencies, 0, result, pos, recorder.count);
+                pos += recorder.count;
+            }
+            return result;
+        }
     }
 }
@@ -0,0 +1,229 @@
+package zone.chenfeng.JMemPool.benchmark;
+
+import zone.chenfeng.JMemPool.collections.LongArrayList;
+import zone.chenfeng.JMemPool.collections.LongLongHashMap;
+import zone.chenfeng.JMemPool.collections.LongRingQueue;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 堆外基本类型集合与JDK装箱集合的对比测试<br>
+ * 每个场景先预热再测量，输出每次操作的耗时、测量期间的GC次数和GC耗时，以及集合填满后占用的堆内存。<br>
+ * 用法：collectionbench [元素个数] [轮数]
+ */
+public class CollectionBenchmark {
+
+    /**
+     * 防止JIT把结果没有被使用的循环优化掉
+     */
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        System.out.println("Elements: " + count + ", rounds: " + rounds);
+        System.out.println(String.format("%-28s %10s %8s %10s %12s", "Scenario", "ns/op", "GCs", "GC ms", "heap MB"));
+
+        // add+get、put+get 各 count 次；offer 了 count 次，poll 了 count / 2 次；批量操作每个元素算一次
+        long addGet = count * 2L;
+        long offerPoll = count + count / 2;
+        run("ArrayList<Long> add+get", count, rounds, addGet, CollectionBenchmark::boxedList);
+        run("LongArrayList add+get", count, rounds, addGet, CollectionBenchmark::offHeapList);
+        run("HashMap<Long,Long> put+get", count, rounds, addGet, CollectionBenchmark::boxedMap);
+        run("LongLongHashMap put+get", count, rounds, addGet, CollectionBenchmark::offHeapMap);
+        run("ArrayDeque<Long> offer+poll", count, rounds, offerPoll, CollectionBenchmark::boxedQueue);
+        run("LongRingQueue offer+poll", count, rounds, offerPoll, CollectionBenchmark::offHeapQueue);
+
+        // 批量操作的源数据只准备一次，不计入耗时
+        long[] keys = new long[count];
+        long[] values = new long[count];
+        List<Long> boxedValues = new ArrayList<>(count);
+        Map<Long, Long> boxedEntries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            keys[i] = (long) i * 31;
+            values[i] = i;
+            boxedValues.add(keys[i]);
+            boxedEntries.put(keys[i], values[i]);
+        }
+        run("ArrayList<Long> addAll", count, rounds, count, n -> boxedAddAll(boxedValues));
+        run("LongArrayList addAll", count, rounds, count, n -> offHeapAddAll(keys));
+        run("HashMap<Long,Long> putAll", count, rounds, count, n -> boxedPutAll(boxedEntries));
+        run("LongLongHashMap putAll", count, rounds, count, n -> offHeapPutAll(keys, values));
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    interface Scenario {
+        /**
+         * 执行一轮，返回填满时的集合，用于统计堆内存
+         */
+        Object run(int count) throws Exception;
+    }
+
+    /**
+     * @param ops 每轮执行的操作次数，用于计算每次操作的耗时
+     */
+    private static void run(String name, int count, int rounds, long ops, Scenario scenario) throws Exception {
+        for (int i = 0; i < rounds; i++) {
+            release(scenario.run(count));
+        }
+        long gcCount = gcCount();
+        long gcTime = gcTime();
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            release(scenario.run(count));
+        }
+        long elapsed = System.nanoTime() - start;
+        gcCount = gcCount() - gcCount;
+        gcTime = gcTime() - gcTime;
+
+        System.gc();
+        long before = usedHeap();
+        Object retained = scenario.run(count);
+        System.gc();
+        long heap = usedHeap() - before;
+        release(retained);
+
+        System.out.println(String.format("%-28s %10.1f %8d %10d %12.1f", name,
+                (double) elapsed / rounds / ops, gcCount, gcTime, heap / 1024.0 / 1024.0));
+    }
+
+    private static Object boxedList(int count) {
+        List<Long> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add((long) i * 31);
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += list.get(i);
+        }
+        sink += sum;
+        return list;
+    }
+
+    private static Object offHeapList(int count) {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        LongArrayList list = new LongArrayList(pool);
+        for (int i = 0; i < count; i++) {
+            list.add((long) i * 31);
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += list.get(i);
+        }
+        sink += sum;
+        return pool;
+    }
+
+    private static Object boxedMap(int count) {
+        Map<Long, Long> map = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            map.put((long) i * 31, (long) i);
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += map.get((long) i * 31);
+        }
+        sink += sum;
+        return map;
+    }
+
+    private static Object offHeapMap(int count) {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        LongLongHashMap map = new LongLongHashMap(pool, -1);
+        for (int i = 0; i < count; i++) {
+            map.put((long) i * 31, i);
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += map.get((long) i * 31);
+        }
+        sink += sum;
+        return pool;
+    }
+
+    private static Object boxedQueue(int count) {
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        for (int i = 0; i < count; i++) {
+            queue.offer((long) i);
+        }
+        long sum = 0;
+        for (int i = 0; i < count / 2; i++) {
+            sum += queue.poll();
+        }
+        sink += sum;
+        return queue;
+    }
+
+    private static Object offHeapQueue(int count) {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        LongRingQueue queue = new LongRingQueue(pool);
+        for (int i = 0; i < count; i++) {
+            queue.offer(i);
+        }
+        long sum = 0;
+        for (int i = 0; i < count / 2; i++) {
+            sum += queue.poll();
+        }
+        sink += sum;
+        return pool;
+    }
+
+    private static Object boxedAddAll(List<Long> values) {
+        List<Long> list = new ArrayList<>();
+        list.addAll(values);
+        sink += list.size();
+        return list;
+    }
+
+    private static Object offHeapAddAll(long[] values) {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        LongArrayList list = new LongArrayList(pool);
+        list.addAll(values);
+        sink += list.size();
+        return pool;
+    }
+
+    private static Object boxedPutAll(Map<Long, Long> entries) {
+        Map<Long, Long> map = new HashMap<>();
+        map.putAll(entries);
+        sink += map.size();
+        return map;
+    }
+
+    private static Object offHeapPutAll(long[] keys, long[] values) {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        LongLongHashMap map = new LongLongHashMap(pool, -1);
+        map.putAll(keys, values);
+        sink += map.size();
+        return pool;
+    }
+
+    /**
+     * 堆外集合的内存池需要立即释放，否则要等到GC
+     */
+    private static void release(Object retained) throws Exception {
+        if (retained instanceof SimpleMemoryPool) {
+            ((SimpleMemoryPool) retained).close();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
@@ -0,0 +1,86 @@
+package zone.chenfeng.JMemPool.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基准测试的key生成器<br>
+ * 返回 [0, keyspace) 范围内的key编号，由调用方拼接成实际的key字符串
+ */
+public interface KeyGenerator {
+
+    long nextKey(ThreadLocalRandom random);
+
+    /**
+     * 顺序key，每个线程各自递增，不会重复，即原来的测试方式
+     */
+    static KeyGenerator sequential() {
+        return new KeyGenerator() {
+            private final ThreadLocal<long[]> counter = ThreadLocal.withInitial(() -> new long[1]);
+
+            @Override
+            public long nextKey(ThreadLocalRandom random) {
+                return counter.get()[0]++;
+            }
+        };
+    }
+
+    /**
+     * 均匀分布的key
+     */
+    static KeyGenerator uniform(long keyspace) {
+        return random -> random.nextLong(keyspace);
+    }
+
+    /**
+     * Zipfian分布的key，少量热点key承担大部分访问
+     */
+    static KeyGenerator zipfian(long keyspace, double theta) {
+        return new ZipfianGenerator(keyspace, theta);
+    }
+
+    /**
+     * Zipfian分布生成器<br>
+     * 参考 Gray 等人的 "Quickly Generating Billion-Record Synthetic Databases" 中的算法，与YCSB相同。<br>
+     * zeta(n)只在构造时计算一次，之后每次生成都是O(1)的
+     */
+    class ZipfianGenerator implements KeyGenerator {
+        private final long items;
+        private final double alpha;
+        private final double zetan;
+        private final double eta;
+        private final double half;
+
+        public ZipfianGenerator(long items, double theta) {
+            if (items <= 0) {
+                throw new IllegalArgumentException("Keyspace must be positive");
+            }
+            if (theta <= 0 || theta >= 1) {
+                throw new IllegalArgumentException("Zipfian theta must be between 0 and 1 (exclusive)");
+            }
+            this.items = items;
+            double zeta2 = zeta(2, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.zetan = zeta(items, theta);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetan);
+            this.half = 1 + Math.pow(0.5, theta);
+        }
+
+        private static double zeta(long n, double theta) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+
+        @Override
+        public long nextKey(ThreadLocalRandom random) {
+            double u = random.nextDouble();
+            double uz = u * zetan;
+            if (uz < 1.0) return 0;
+            if (uz < half) return Math.min(1, items - 1);
+            long key = (long) (items * Math.pow(eta * u - eta + 1, alpha));
+            return Math.min(key, items - 1);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package zone.chenfeng.JMemPool.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基准测试的负载配置<br>
+ * 包括读写比例、key的分布、value大小的分布以及预热/测量阶段的请求数。<br>
+ * 可以通过 {@link #fromArgs(String[])} 从命令行参数解析，参数格式见 {@link #usage()}
+ */
+public class WorkloadProfile {
+
+    public enum KeyDistribution {
+        SEQUENTIAL, UNIFORM, ZIPFIAN
+    }
+
+    /**
+     * 预置的负载
+     * <ul>
+     *     <li>setget: 原来的测试方式，每次请求在不重复的key上先SET再GET</li>
+     *     <li>read-heavy: 95%读，Zipfian热点key，小value</li>
+     *     <li>write-heavy: 50%读，均匀分布，会有大量覆盖写</li>
+     *     <li>huge: 80%读，20%的value超过256字节，走HugePage</li>
+     * </ul>
+     */
+    public static final String[] PROFILES = {"setget", "read-heavy", "write-heavy", "huge"};
+
+    String host = "127.0.0.1";
+    int port = 9800;
+    int threadCount = 10;
+    int warmupPerThread = 0;
+    int requestPerThread = 10000;
+    /**
+     * 读请求占比，小于0时表示每次请求都是SET+GET
+     */
+    double readRatio = -1;
+    KeyDistribution keyDistribution = KeyDistribution.SEQUENTIAL;
+    long keyspace = 100_000;
+    double zipfTheta = 0.99;
+    int valueMinSize = 2;
+    int valueMaxSize = 32;
+    /**
+     * 大value占比，大value的大小在 [hugeMinSize, hugeMaxSize) 之间
+     */
+    double hugeRatio = 0;
+    int hugeMinSize = 257;
+    int hugeMaxSize = 4096;
+
+    public static WorkloadProfile profile(String name) {
+        WorkloadProfile profile = new WorkloadProfile();
+        switch (name.toLowerCase()) {
+            case "setget":
+                break;
+            case "read-heavy":
+                profile.readRatio = 0.95;
+                profile.keyDistribution = KeyDistribution.ZIPFIAN;
+                profile.warmupPerThread = 1000;
+                break;
+            case "write-heavy":
+                profile.readRatio = 0.5;
+                profile.keyDistribution = KeyDistribution.UNIFORM;
+                profile.warmupPerThread = 1000;
+                break;
+            case "huge":
+                profile.readRatio = 0.8;
+                profile.keyDistribution = KeyDistribution.ZIPFIAN;
+                profile.hugeRatio = 0.2;
+                profile.warmupPerThread = 1000;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown profile: " + name);
+        }
+        return profile;
+    }
+
+    /**
+     * 从命令行解析负载配置<br>
+     * 兼容原来的 {@code testclient host port} 形式
+     */
+    public static WorkloadProfile fromArgs(String[] args) {
+        // args[0]为testclient
+        if (args.length == 3 && !args[1].startsWith("--")) {
+            WorkloadProfile profile = new WorkloadProfile();
+            profile.host = args[1];
+            profile.port = Integer.parseInt(args[2]);
+            return profile;
+        }
+
+        WorkloadProfile profile = new WorkloadProfile();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--profile")) {
+                profile = profile(value(args, i));
+            }
+        }
+        for (int i = 1; i < args.length; i++) {
+            String value = value(args, i);
+            switch (args[i]) {
+                case "--profile":
+                    break;
+                case "--host":
+                    profile.host = value;
+                    break;
+                case "--port":
+                    profile.port = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    profile.threadCount = Integer.parseInt(value);
+                    break;
+                case "--warmup":
+                    profile.warmupPerThread = Integer.parseInt(value);
+                    break;
+                case "--requests":
+                    profile.requestPerThread = Integer.parseInt(value);
+                    break;
+                case "--read-ratio":
+                    profile.readRatio = Double.parseDouble(value);
+                    if (profile.readRatio > 1) {
+                        throw new IllegalArgumentException("Read ratio must not be greater than 1");
+                    }
+                    break;
+                case "--keys":
+                    profile.keyDistribution = KeyDistribution.valueOf(value.toUpperCase());
+                    break;
+                case "--keyspace":
+                    profile.keyspace = Long.parseLong(value);
+                    break;
+                case "--zipf-theta":
+                    profile.zipfTheta = Double.parseDouble(value);
+                    break;
+                case "--value-size":
+                    profile.valueMinSize = rangeMin(value);
+                    profile.valueMaxSize = rangeMax(value);
+                    break;
+                case "--huge-ratio":
+                    profile.hugeRatio = Double.parseDouble(value);
+                    break;
+                case "--huge-size":
+                    profile.hugeMinSize = rangeMin(value);
+                    profile.hugeMaxSize = rangeMax(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i] + "\n" + usage());
+            }
+            i++;
+        }
+        checkPositive("--threads", profile.threadCount);
+        checkPositive("--keyspace", profile.keyspace);
+        checkRange("--value-size", profile.valueMinSize, profile.valueMaxSize);
+        checkRange("--huge-size", profile.hugeMinSize, profile.hugeMaxSize);
+        return profile;
+    }
+
+    /**
+     * 线程数为0时线程池无法创建，keyspace为0时压测线程在生成key时抛出异常
+     */
+    private static void checkPositive(String option, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + value
+                    + ", expected a positive number\n" + usage());
+        }
+    }
+
+    /**
+     * 检查前闭后开的大小区间，非法的区间会让压测线程在生成value时抛出异常
+     */
+    private static void checkRange(String option, int min, int max) {
+        if (min <= 0 || max <= min) {
+            throw new IllegalArgumentException("Invalid range for " + option + ": " + min + "-" + max
+                    + ", expected 0 < MIN < MAX");
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i + 1 >= args.length) {
+            throw new IllegalArgumentException("Missing value for option: " + args[i]);
+        }
+        return args[i + 1];
+    }
+
+    private static int rangeMin(String range) {
+        return Integer.parseInt(range.split("-")[0]);
+    }
+
+    private static int rangeMax(String range) {
+        String[] parts = range.split("-");
+        // 只给一个数时表示固定大小，区间为前闭后开
+        return parts.length == 1 ? Integer.parseInt(parts[0]) + 1 : Integer.parseInt(parts[1]);
+    }
+
+    public static String usage() {
+        return "Usage: testclient [host port]\n" +
+                "       testclient [--profile setget|read-heavy|write-heavy|huge] [options]\n" +
+                "Options:\n" +
+                "  --host HOST              server host (default 127.0.0.1)\n" +
+                "  --port PORT              server port (default 9800)\n" +
+                "  --threads N              client threads (default 10)\n" +
+                "  --warmup N               warmup requests per thread, not measured\n" +
+                "  --requests N             measured requests per thread (default 10000)\n" +
+                "  --read-ratio R           fraction of GET requests, negative means SET+GET per request\n" +
+                "  --keys DIST              sequential|uniform|zipfian\n" +
+                "  --keyspace N             number of distinct keys for uniform/zipfian\n" +
+                "  --zipf-theta T           zipfian skew, 0 < T < 1 (default 0.99)\n" +
+                "  --value-size MIN-MAX     small value size range (default 2-32)\n" +
+                "  --huge-ratio R           fraction of values larger than 256 bytes\n" +
+                "  --huge-size MIN-MAX      huge value size range (default 257-4096)";
+    }
+
+    public KeyGenerator newKeyGenerator() {
+        switch (keyDistribution) {
+            case UNIFORM:
+                return KeyGenerator.uniform(keyspace);
+            case ZIPFIAN:
+                return KeyGenerator.zipfian(keyspace, zipfTheta);
+            default:
+                return KeyGenerator.sequential();
+        }
+    }
+
+    public boolean isSetGet() {
+        return readRatio < 0;
+    }
+
+    public int nextValueSize(ThreadLocalRandom random) {
+        if (hugeRatio > 0 && random.nextDouble() < hugeRatio) {
+            return random.nextInt(hugeMinSize, hugeMaxSize);
+        }
+        return random.nextInt(valueMinSize, valueMaxSize);
+    }
+
+    public int maxValueSize() {
+        return hugeRatio > 0 ? Math.max(valueMaxSize, hugeMaxSize) : valueMaxSize;
+    }
+
+    @Override
+    public String toString() {
+        return "threads=" + threadCount +
+                ", warmup=" + warmupPerThread +
+                ", requests=" + requestPerThread +
+                ", readRatio=" + (isSetGet() ? "set+get" : String.valueOf(readRatio)) +
+                ", keys=" + keyDistribution.name().toLowerCase() +
+                (keyDistribution == KeyDistribution.SEQUENTIAL ? "" : ", keyspace=" + keyspace) +
+                (keyDistribution == KeyDistribution.ZIPFIAN ? ", theta=" + zipfTheta : "") +
+                ", valueSize=" + valueMinSize + "-" + valueMaxSize +
+                (hugeRatio > 0 ? ", hugeRatio=" + hugeRatio + ", hugeSize=" + hugeMinSize + "-" + hugeMaxSize : "");
+    }
+}
@@ -0,0 +1,172 @@
+package zone.chenfeng.JMemPool.collections;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+import zone.chenfeng.JMemPool.impl.EpochReclaimer;
+import zone.chenfeng.JMemPool.impl.SynchronizedMemoryPool;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 线程安全的、值存储在内存池中的字符串Map<br>
+ * key -> 值的指针存储在 {@link ConcurrentHashMap} 中，值的内存块写入后不再修改：
+ * 修改和追加都写入新的内存块，再替换Map中的指针，被替换或删除的内存块交给 {@link EpochReclaimer} 延迟释放。
+ * 读取在epoch中进行，读到的指针在读取结束前不会被释放和复用，因此读取不加锁也不需要引用计数，
+ * 总是返回某一次写入的完整值（可线性化），不会读到被释放后复用的内存块
+ * <p>
+ * 内存池必须是线程安全的，例如 {@link SynchronizedMemoryPool}。不支持过期时间和淘汰，需要时使用加锁的 {@link StringMap}
+ * </p>
+ */
+public class ConcurrentStringMap {
+
+    final ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>();
+    final StringPool pool;
+    final EpochReclaimer reclaimer;
+
+    public ConcurrentStringMap() {
+        this(new SynchronizedMemoryPool());
+    }
+
+    /**
+     * @param memoryPool 线程安全的内存池
+     */
+    public ConcurrentStringMap(IMemoryPool memoryPool) {
+        this(memoryPool, new EpochReclaimer(memoryPool::free));
+    }
+
+    /**
+     * @param reclaimer 释放回调必须释放memoryPool中的指针
+     */
+    public ConcurrentStringMap(IMemoryPool memoryPool, EpochReclaimer reclaimer) {
+        this.pool = new StringPool(memoryPool);
+        this.reclaimer = reclaimer;
+    }
+
+    public String get(String key) {
+        reclaimer.enter();
+        try {
+            Long pointer = map.get(key);
+            return pointer == null ? null : pool.getString(pointer);
+        } finally {
+            reclaimer.exit();
+        }
+    }
+
+    /**
+     * 把key的值解码后追加到dst，dst可以复用
+     * @return key是否存在
+     */
+    public boolean get(String key, StringBuilder dst) {
+        reclaimer.enter();
+        try {
+            Long pointer = map.get(key);
+            if (pointer == null) {
+                return false;
+            }
+            pool.getString(pointer, dst);
+            return true;
+        } finally {
+            reclaimer.exit();
+        }
+    }
+
+    public boolean containsKey(String key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * 设置key的值，原来的内存块延迟释放
+     * @return key原来是否存在
+     * @throws IllegalStateException 内存不足
+     */
+    public boolean put(String key, String value) {
+        long pointer = checkPointer(pool.putString(value));
+        Long old = map.put(key, pointer);
+        if (old == null) {
+            return false;
+        }
+        reclaimer.retire(old);
+        return true;
+    }
+
+    /**
+     * 在key的值末尾追加value，key不存在时等同于 {@link #put(String, String)}<br>
+     * 读线程可能正在读取原来的内存块，因此不原地追加，总是写入新的内存块
+     * @return 追加后的值按UTF-8编码的字节数
+     * @throws IllegalStateException 内存不足
+     */
+    public int append(String key, String value) {
+        long[] old = {IMemoryPool.NULL_POINTER};
+        int[] length = new int[1];
+        map.compute(key, (k, current) -> {
+            // 只有持有这个槽位的写线程能替换和释放current，读取它不需要进入epoch
+            String appended = current == null ? value : pool.getString(current) + value;
+            long pointer = checkPointer(pool.putString(appended));
+            if (current != null) {
+                old[0] = current;
+            }
+            // compute返回后新的指针可能已被其他线程替换，在这里取长度
+            length[0] = pool.length(pointer);
+            return pointer;
+        });
+        if (old[0] != IMemoryPool.NULL_POINTER) {
+            reclaimer.retire(old[0]);
+        }
+        return length[0];
+    }
+
+    /**
+     * 删除key，内存块延迟释放
+     * @return 原来的值，不存在时返回null
+     */
+    public String remove(String key) {
+        Long pointer = map.remove(key);
+        if (pointer == null) {
+            return null;
+        }
+        // 摘下的指针只有当前线程持有，retire之前读取是安全的
+        String value = pool.getString(pointer);
+        reclaimer.retire(pointer);
+        return value;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * 内存池已使用的字节数，包括等待延迟释放的内存块
+     */
+    public long usedMemory() {
+        return pool.memoryPool.usedBytes();
+    }
+
+    /**
+     * 尝试释放当前线程删除和替换的内存块，写线程空闲时可以定期调用
+     * @return 本次释放的内存块个数
+     */
+    public int collect() {
+        return reclaimer.collect();
+    }
+
+    /**
+     * 立即释放所有等待延迟释放的内存块，调用时不能有并发的读写
+     */
+    public int releaseAll() {
+        return reclaimer.releaseAll();
+    }
+
+    public EpochReclaimer getReclaimer() {
+        return reclaimer;
+    }
+
+    private static long checkPointer(long pointer) {
+        if (pointer == IMemoryPool.NULL_POINTER) {
+            throw new IllegalStateException("OOM memory pool exhausted");
+        }
+        return pointer;
+    }
+}
@@ -0,0 +1,95 @@
+package zone.chenfeng.JMemPool.collections;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link StringMap} 的条目表<br>
+ * 条目紧密排列在 [0, size) 中，删除时用最后一个条目填补空位，因此可以O(1)随机采样，用于近似LRU/LFU淘汰。<br>
+ * 每个条目的指针和访问信息存储在堆外，每个条目12字节：
+ * <pre>
+ * | pointer (8字节) | meta (4字节) |
+ * </pre>
+ * meta的含义由淘汰策略决定，见 {@link EvictionPolicy}
+ */
+class EntryTable {
+    static final int ENTRY_SIZE = 12;
+    private static final int POINTER_OFFSET = 0;
+    private static final int META_OFFSET = 8;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] keys;
+    private ByteBuffer entries;
+    private int size;
+
+    EntryTable() {
+        keys = new String[INITIAL_CAPACITY];
+        entries = ByteBuffer.allocateDirect(INITIAL_CAPACITY * ENTRY_SIZE);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 添加条目
+     * @return 条目的槽位
+     */
+    int add(String key, long pointer, int meta) {
+        if (size == keys.length) {
+            grow();
+        }
+        int slot = size++;
+        keys[slot] = key;
+        entries.putLong(slot * ENTRY_SIZE + POINTER_OFFSET, pointer);
+        entries.putInt(slot * ENTRY_SIZE + META_OFFSET, meta);
+        return slot;
+    }
+
+    /**
+     * 删除条目，最后一个条目会被移动到该槽位
+     * @return 被移动到该槽位的key，没有移动时返回null
+     */
+    String remove(int slot) {
+        int last = --size;
+        String moved = null;
+        if (slot != last) {
+            moved = keys[last];
+            keys[slot] = moved;
+            entries.putLong(slot * ENTRY_SIZE + POINTER_OFFSET, entries.getLong(last * ENTRY_SIZE + POINTER_OFFSET));
+            entries.putInt(slot * ENTRY_SIZE + META_OFFSET, entries.getInt(last * ENTRY_SIZE + META_OFFSET));
+        }
+        keys[last] = null;
+        return moved;
+    }
+
+    String key(int slot) {
+        return keys[slot];
+    }
+
+    long pointer(int slot) {
+        return entries.getLong(slot * ENTRY_SIZE + POINTER_OFFSET);
+    }
+
+    void pointer(int slot, long pointer) {
+        entries.putLong(slot * ENTRY_SIZE + POINTER_OFFSET, pointer);
+    }
+
+    int meta(int slot) {
+        return entries.getInt(slot * ENTRY_SIZE + META_OFFSET);
+    }
+
+    void meta(int slot, int meta) {
+        entries.putInt(slot * ENTRY_SIZE + META_OFFSET, meta);
+    }
+
+    private void grow() {
+        int capacity = keys.length << 1;
+        keys = Arrays.copyOf(keys, capacity);
+        ByteBuffer larger = ByteBuffer.allocateDirect(capacity * ENTRY_SIZE);
+        entries.clear();
+        larger.put(entries);
+        larger.clear();
+        entries = larger;
+    }
+}
@@ -0,0 +1,84 @@
+package zone.chenfeng.JMemPool.collections;
+
+/**
+ * 内存达到上限时的淘汰策略<br>
+ * 与Redis的maxmemory-policy类似，LRU/LFU都是通过随机采样实现的近似算法，每个条目只需要24位的访问信息：
+ * <ul>
+ *     <li>LRU：最近一次访问的时钟，单位为秒，24位约194天回绕一次</li>
+ *     <li>LFU：高16位为最近一次衰减的时间（分钟），低8位为对数计数器，
+ *     访问次数越多计数器增长越慢，长时间未访问时每分钟衰减1</li>
+ * </ul>
+ */
+public enum EvictionPolicy {
+    /**
+     * 不淘汰，内存不足时写入失败
+     */
+    NOEVICTION,
+    /**
+     * 在所有key中淘汰最久未访问的
+     */
+    ALLKEYS_LRU,
+    /**
+     * 在所有key中淘汰访问频率最低的
+     */
+    ALLKEYS_LFU;
+
+    static final int CLOCK_MAX = (1 << 24) - 1;
+    static final int LFU_INIT_VAL = 5;
+    private static final int LFU_LOG_FACTOR = 10;
+    private static final int LFU_DECAY_MINUTES = 1;
+
+    /**
+     * 新条目的访问信息
+     */
+    int initialMeta(long nowMillis) {
+        if (this == ALLKEYS_LFU) {
+            return (minutes(nowMillis) << 8) | LFU_INIT_VAL;
+        }
+        return seconds(nowMillis);
+    }
+
+    /**
+     * 访问条目后更新访问信息
+     */
+    int touch(int meta, long nowMillis, double random) {
+        if (this == ALLKEYS_LFU) {
+            int counter = decayedCounter(meta, nowMillis);
+            // 对数递增，计数器越大递增的概率越低
+            if (counter < 255) {
+                double base = Math.max(counter - LFU_INIT_VAL, 0);
+                if (random < 1.0 / (base * LFU_LOG_FACTOR + 1)) {
+                    counter++;
+                }
+            }
+            return (minutes(nowMillis) << 8) | counter;
+        }
+        return seconds(nowMillis);
+    }
+
+    /**
+     * 条目的淘汰分数，分数越高越应该被淘汰
+     */
+    long score(int meta, long nowMillis) {
+        if (this == ALLKEYS_LFU) {
+            return 255 - decayedCounter(meta, nowMillis);
+        }
+        // 空闲时间，时钟回绕时仍然正确
+        return (seconds(nowMillis) - meta) & CLOCK_MAX;
+    }
+
+    private static int decayedCounter(int meta, long nowMillis) {
+        int counter = meta & 0xFF;
+        int elapsed = (minutes(nowMillis) - (meta >>> 8)) & 0xFFFF;
+        int periods = elapsed / LFU_DECAY_MINUTES;
+        return periods > counter ? 0 : counter - periods;
+    }
+
+    private static int seconds(long nowMillis) {
+        return (int) ((nowMillis / 1000) & CLOCK_MAX);
+    }
+
+    private static int minutes(long nowMillis) {
+        return (int) ((nowMillis / 60_000) & 0xFFFF);
+    }
+}
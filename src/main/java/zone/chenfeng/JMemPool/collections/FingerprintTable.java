@@ -0,0 +1,129 @@
+package zone.chenfeng.JMemPool.collections;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link StringPool} 去重模式的指纹表<br>
+ * 开放寻址（线性探测）的哈希表，value的指纹 -> 共享内存块的指针和引用计数，全部存储在堆外，每个条目16字节：
+ * <pre>
+ * | pointer (8字节) | hash (4字节) | refCount (4字节) |
+ * </pre>
+ * pointer为 {@link IMemoryPool#NULL_POINTER} 表示空槽位。删除时把后面的条目前移，不使用墓碑。<br>
+ * 查找时由调用方比较内容，不需要创建回调对象
+ */
+class FingerprintTable {
+    static final int ENTRY_SIZE = 16;
+    private static final int POINTER_OFFSET = 0;
+    private static final int HASH_OFFSET = 8;
+    private static final int REF_COUNT_OFFSET = 12;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private ByteBuffer entries;
+    private int mask;
+    private int size;
+
+    FingerprintTable() {
+        entries = allocate(INITIAL_CAPACITY);
+        mask = INITIAL_CAPACITY - 1;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(capacity * ENTRY_SIZE);
+        for (int slot = 0; slot < capacity; slot++) {
+            buffer.putLong(slot * ENTRY_SIZE + POINTER_OFFSET, IMemoryPool.NULL_POINTER);
+        }
+        return buffer;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 指纹为hash的条目探测序列的第一个槽位，沿 {@link #nextSlot(int)} 查找，直到遇到空槽位
+     */
+    int firstSlot(int hash) {
+        return hash & mask;
+    }
+
+    int nextSlot(int slot) {
+        return (slot + 1) & mask;
+    }
+
+    /**
+     * 添加条目，引用计数为1
+     */
+    void add(int hash, long pointer) {
+        if ((size + 1) * 4L > (mask + 1) * 3L) {
+            // 负载因子超过0.75时扩容
+            resize((mask + 1) << 1);
+        }
+        int slot = hash & mask;
+        while (pointer(slot) != IMemoryPool.NULL_POINTER) {
+            slot = (slot + 1) & mask;
+        }
+        write(entries, slot, pointer, hash, 1);
+        size++;
+    }
+
+    /**
+     * 删除条目，把后面同一探测序列上的条目前移，保证查找时不会提前遇到空槽位
+     */
+    void remove(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; pointer(next) != IMemoryPool.NULL_POINTER; next = (next + 1) & mask) {
+            int home = hash(next) & mask;
+            // home不在 (hole, next] 之间时，next可以移动到hole
+            boolean between = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!between) {
+                write(entries, hole, pointer(next), hash(next), refCount(next));
+                hole = next;
+            }
+        }
+        entries.putLong(hole * ENTRY_SIZE + POINTER_OFFSET, IMemoryPool.NULL_POINTER);
+        size--;
+    }
+
+    long pointer(int slot) {
+        return entries.getLong(slot * ENTRY_SIZE + POINTER_OFFSET);
+    }
+
+    int hash(int slot) {
+        return entries.getInt(slot * ENTRY_SIZE + HASH_OFFSET);
+    }
+
+    int refCount(int slot) {
+        return entries.getInt(slot * ENTRY_SIZE + REF_COUNT_OFFSET);
+    }
+
+    void refCount(int slot, int refCount) {
+        entries.putInt(slot * ENTRY_SIZE + REF_COUNT_OFFSET, refCount);
+    }
+
+    private static void write(ByteBuffer entries, int slot, long pointer, int hash, int refCount) {
+        entries.putLong(slot * ENTRY_SIZE + POINTER_OFFSET, pointer);
+        entries.putInt(slot * ENTRY_SIZE + HASH_OFFSET, hash);
+        entries.putInt(slot * ENTRY_SIZE + REF_COUNT_OFFSET, refCount);
+    }
+
+    private void resize(int capacity) {
+        ByteBuffer old = entries;
+        int oldCapacity = mask + 1;
+        entries = allocate(capacity);
+        mask = capacity - 1;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long pointer = old.getLong(slot * ENTRY_SIZE + POINTER_OFFSET);
+            if (pointer == IMemoryPool.NULL_POINTER) {
+                continue;
+            }
+            int hash = old.getInt(slot * ENTRY_SIZE + HASH_OFFSET);
+            int target = hash & mask;
+            while (pointer(target) != IMemoryPool.NULL_POINTER) {
+                target = (target + 1) & mask;
+            }
+            write(entries, target, pointer, hash, old.getInt(slot * ENTRY_SIZE + REF_COUNT_OFFSET));
+        }
+    }
+}
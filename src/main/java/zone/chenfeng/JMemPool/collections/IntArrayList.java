@@ -0,0 +1,103 @@
+package zone.chenfeng.JMemPool.collections;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * 元素存储在内存池中的int列表，不装箱，数据不在堆上<br>
+ * 用完后需要调用 {@link #close()} 把内存还给内存池。非线程安全
+ */
+public class IntArrayList implements AutoCloseable {
+
+    private final Segments segments;
+    private int size;
+
+    public IntArrayList(IMemoryPool pool) {
+        this(pool, 0);
+    }
+
+    /**
+     * @param initialCapacity 预先分配的元素个数
+     */
+    public IntArrayList(IMemoryPool pool, int initialCapacity) {
+        segments = new Segments(pool);
+        segments.ensureCapacity((long) initialCapacity * Integer.BYTES);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(int value) {
+        segments.ensureCapacity((long) (size + 1) * Integer.BYTES);
+        segments.putInt((long) size++ * Integer.BYTES, value);
+    }
+
+    public void addAll(int[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    public void addAll(int[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        segments.ensureCapacity((long) (size + length) * Integer.BYTES);
+        for (int i = 0; i < length; i++) {
+            segments.putInt((long) size++ * Integer.BYTES, values[offset + i]);
+        }
+    }
+
+    public int get(int index) {
+        Objects.checkIndex(index, size);
+        return segments.getInt((long) index * Integer.BYTES);
+    }
+
+    /**
+     * @return 原来的值
+     */
+    public int set(int index, int value) {
+        Objects.checkIndex(index, size);
+        int old = segments.getInt((long) index * Integer.BYTES);
+        segments.putInt((long) index * Integer.BYTES, value);
+        return old;
+    }
+
+    /**
+     * 删除并返回最后一个元素
+     */
+    public int removeLast() {
+        Objects.checkIndex(size - 1, size);
+        return segments.getInt((long) --size * Integer.BYTES);
+    }
+
+    /**
+     * 清空列表，保留已分配的内存
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(segments.getInt((long) i * Integer.BYTES));
+        }
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = segments.getInt((long) i * Integer.BYTES);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        segments.close();
+        size = 0;
+    }
+}
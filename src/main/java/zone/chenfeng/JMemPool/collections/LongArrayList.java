@@ -0,0 +1,103 @@
+package zone.chenfeng.JMemPool.collections;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * 元素存储在内存池中的long列表，不装箱，数据不在堆上<br>
+ * 用完后需要调用 {@link #close()} 把内存还给内存池。非线程安全
+ */
+public class LongArrayList implements AutoCloseable {
+
+    private final Segments segments;
+    private int size;
+
+    public LongArrayList(IMemoryPool pool) {
+        this(pool, 0);
+    }
+
+    /**
+     * @param initialCapacity 预先分配的元素个数
+     */
+    public LongArrayList(IMemoryPool pool, int initialCapacity) {
+        segments = new Segments(pool);
+        segments.ensureCapacity((long) initialCapacity * Long.BYTES);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(long value) {
+        segments.ensureCapacity((long) (size + 1) * Long.BYTES);
+        segments.putLong((long) size++ * Long.BYTES, value);
+    }
+
+    public void addAll(long[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    public void addAll(long[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        segments.ensureCapacity((long) (size + length) * Long.BYTES);
+        for (int i = 0; i < length; i++) {
+            segments.putLong((long) size++ * Long.BYTES, values[offset + i]);
+        }
+    }
+
+    public long get(int index) {
+        Objects.checkIndex(index, size);
+        return segments.getLong((long) index * Long.BYTES);
+    }
+
+    /**
+     * @return 原来的值
+     */
+    public long set(int index, long value) {
+        Objects.checkIndex(index, size);
+        long old = segments.getLong((long) index * Long.BYTES);
+        segments.putLong((long) index * Long.BYTES, value);
+        return old;
+    }
+
+    /**
+     * 删除并返回最后一个元素
+     */
+    public long removeLast() {
+        Objects.checkIndex(size - 1, size);
+        return segments.getLong((long) --size * Long.BYTES);
+    }
+
+    /**
+     * 清空列表，保留已分配的内存
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(segments.getLong((long) i * Long.BYTES));
+        }
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = segments.getLong((long) i * Long.BYTES);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        segments.close();
+        size = 0;
+    }
+}
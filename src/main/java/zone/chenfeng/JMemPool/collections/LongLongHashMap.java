@@ -0,0 +1,239 @@
+package zone.chenfeng.JMemPool.collections;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+
+/**
+ * 键值都存储在内存池中的long -> long哈希表，开放寻址（线性探测），不装箱，数据不在堆上<br>
+ * 每个条目16字节：
+ * <pre>
+ * | key (8字节) | value (8字节) |
+ * </pre>
+ * key为0表示空槽位，key为0的条目单独保存。删除时把后面的条目前移，不使用墓碑。
+ * 不存在的key返回构造时指定的missingValue。<br>
+ * 用完后需要调用 {@link #close()} 把内存还给内存池。非线程安全
+ */
+public class LongLongHashMap implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    private static final int ENTRY_SIZE = 16;
+    private static final int VALUE_OFFSET = 8;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final IMemoryPool pool;
+    private final long missingValue;
+    private Segments entries;
+    private int mask;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap(IMemoryPool pool, long missingValue) {
+        this(pool, missingValue, INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize 预计的条目个数，按负载因子0.75预先分配
+     */
+    public LongLongHashMap(IMemoryPool pool, long missingValue, int expectedSize) {
+        this.pool = pool;
+        this.missingValue = missingValue;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * 3L / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        entries = allocate(capacity);
+        mask = capacity - 1;
+    }
+
+    private Segments allocate(int capacity) {
+        // 内存池malloc的块已置为0，即全部为空槽位
+        Segments segments = new Segments(pool);
+        segments.ensureCapacity((long) capacity * ENTRY_SIZE);
+        return segments;
+    }
+
+    public long missingValue() {
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return key对应的值，不存在时返回missingValue
+     */
+    public long get(long key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        int slot = find(key);
+        return slot < 0 ? missingValue : value(slot);
+    }
+
+    /**
+     * @return 原来的值，不存在时返回missingValue
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            long old = hasZeroKey ? zeroValue : missingValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            long old = value(slot);
+            entries.putLong((long) slot * ENTRY_SIZE + VALUE_OFFSET, value);
+            return old;
+        }
+        if ((size + 1) * 4L > (mask + 1) * 3L) {
+            // 负载因子超过0.75时扩容
+            resize((mask + 1) << 1);
+        }
+        insert(key, value);
+        size++;
+        return missingValue;
+    }
+
+    public void putAll(long[] keys, long[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Keys and values must have the same length");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            put(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * @return 原来的值，不存在时返回missingValue
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return missingValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return missingValue;
+        }
+        long old = value(slot);
+        int hole = slot;
+        for (int next = (hole + 1) & mask; key(next) != 0; next = (next + 1) & mask) {
+            int home = index(key(next));
+            // home不在 (hole, next] 之间时，next可以移动到hole
+            boolean between = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!between) {
+                write(hole, key(next), value(next));
+                hole = next;
+            }
+        }
+        write(hole, 0, 0);
+        size--;
+        return old;
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        for (int slot = 0; slot <= mask; slot++) {
+            long key = key(slot);
+            if (key != 0) {
+                action.accept(key, value(slot));
+            }
+        }
+    }
+
+    /**
+     * 清空，保留已分配的内存
+     */
+    public void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            write(slot, 0, 0);
+        }
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    private int find(long key) {
+        for (int slot = index(key); ; slot = (slot + 1) & mask) {
+            long current = key(slot);
+            if (current == key) {
+                return slot;
+            }
+            if (current == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void insert(long key, long value) {
+        int slot = index(key);
+        while (key(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        write(slot, key, value);
+    }
+
+    private void resize(int capacity) {
+        Segments old = entries;
+        int oldCapacity = mask + 1;
+        entries = allocate(capacity);
+        mask = capacity - 1;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long key = old.getLong((long) slot * ENTRY_SIZE);
+            if (key != 0) {
+                insert(key, old.getLong((long) slot * ENTRY_SIZE + VALUE_OFFSET));
+            }
+        }
+        old.close();
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private long key(int slot) {
+        return entries.getLong((long) slot * ENTRY_SIZE);
+    }
+
+    private long value(int slot) {
+        return entries.getLong((long) slot * ENTRY_SIZE + VALUE_OFFSET);
+    }
+
+    private void write(int slot, long key, long value) {
+        entries.putLong((long) slot * ENTRY_SIZE, key);
+        entries.putLong((long) slot * ENTRY_SIZE + VALUE_OFFSET, value);
+    }
+
+    @Override
+    public void close() {
+        entries.close();
+        hasZeroKey = false;
+        size = 0;
+    }
+}
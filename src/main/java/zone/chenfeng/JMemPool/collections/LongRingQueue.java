@@ -0,0 +1,139 @@
+package zone.chenfeng.JMemPool.collections;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * 元素存储在内存池中的long队列，环形缓冲区，先进先出，不装箱，数据不在堆上<br>
+ * 容量为2的幂，满了以后容量翻倍，按顺序复制到新的缓冲区。<br>
+ * 用完后需要调用 {@link #close()} 把内存还给内存池。非线程安全
+ */
+public class LongRingQueue implements AutoCloseable {
+
+    private static final int INITIAL_CAPACITY = Segments.SEGMENT_BYTES / Long.BYTES;
+
+    private final IMemoryPool pool;
+    private Segments buffer;
+    private int mask;
+    /**
+     * 队头和队尾的序号，只增不减，对容量取模得到位置
+     */
+    private long head;
+    private long tail;
+
+    public LongRingQueue(IMemoryPool pool) {
+        this(pool, INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity 初始容量，向上取整到2的幂
+     */
+    public LongRingQueue(IMemoryPool pool, int initialCapacity) {
+        this.pool = pool;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+        buffer = allocate(capacity);
+        mask = capacity - 1;
+    }
+
+    private Segments allocate(int capacity) {
+        Segments segments = new Segments(pool);
+        segments.ensureCapacity((long) capacity * Long.BYTES);
+        return segments;
+    }
+
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    public boolean isEmpty() {
+        return tail == head;
+    }
+
+    public void offer(long value) {
+        if (size() == mask + 1) {
+            grow();
+        }
+        buffer.putLong((tail++ & mask) * Long.BYTES, value);
+    }
+
+    public void offerAll(long[] values) {
+        for (long value : values) {
+            offer(value);
+        }
+    }
+
+    /**
+     * 取出队头的元素
+     * @throws NoSuchElementException 队列为空
+     */
+    public long poll() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.getLong((head++ & mask) * Long.BYTES);
+    }
+
+    /**
+     * 查看队头的元素，不取出
+     * @throws NoSuchElementException 队列为空
+     */
+    public long peek() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.getLong((head & mask) * Long.BYTES);
+    }
+
+    /**
+     * 按顺序取出最多dst.length个元素
+     * @return 取出的个数
+     */
+    public int drainTo(long[] dst) {
+        int count = Math.min(size(), dst.length);
+        for (int i = 0; i < count; i++) {
+            dst[i] = buffer.getLong((head++ & mask) * Long.BYTES);
+        }
+        return count;
+    }
+
+    /**
+     * 按顺序取出最多limit个元素
+     * @return 取出的个数
+     */
+    public int drain(LongConsumer consumer, int limit) {
+        int count = Math.min(size(), limit);
+        for (int i = 0; i < count; i++) {
+            consumer.accept(buffer.getLong((head++ & mask) * Long.BYTES));
+        }
+        return count;
+    }
+
+    public void clear() {
+        head = tail = 0;
+    }
+
+    private void grow() {
+        Segments old = buffer;
+        int oldMask = mask;
+        int size = size();
+        buffer = allocate((mask + 1) << 1);
+        mask = ((mask + 1) << 1) - 1;
+        for (int i = 0; i < size; i++) {
+            buffer.putLong((long) i * Long.BYTES, old.getLong(((head + i) & oldMask) * Long.BYTES));
+        }
+        head = 0;
+        tail = size;
+        old.close();
+    }
+
+    @Override
+    public void close() {
+        buffer.close();
+        head = tail = 0;
+    }
+}
@@ -0,0 +1,80 @@
+package zone.chenfeng.JMemPool.collections;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+
+import java.util.Arrays;
+
+/**
+ * 堆外基本类型集合的存储<br>
+ * 由内存池中若干个256字节的块（段）组成，段的指针保存在一个long数组中。
+ * 按字节下标访问，高位为段号，低8位为段内偏移。<br>
+ * 256字节是小页的最大块，段都在堆外，堆上只有指针数组，约为数据大小的1/32。扩容时只追加新段，不复制已有数据
+ */
+class Segments implements AutoCloseable {
+    static final int SEGMENT_SHIFT = 8;
+    static final int SEGMENT_BYTES = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_BYTES - 1;
+
+    private final IMemoryPool pool;
+    private long[] pointers = new long[8];
+    private int count;
+
+    Segments(IMemoryPool pool) {
+        this.pool = pool;
+    }
+
+    IMemoryPool pool() {
+        return pool;
+    }
+
+    /**
+     * 已分配的字节数
+     */
+    long capacity() {
+        return (long) count << SEGMENT_SHIFT;
+    }
+
+    /**
+     * 保证至少有bytes字节
+     * @throws IllegalStateException 内存池已满
+     */
+    void ensureCapacity(long bytes) {
+        while (capacity() < bytes) {
+            long pointer = pool.malloc(SEGMENT_BYTES);
+            if (pointer == IMemoryPool.NULL_POINTER) {
+                throw new IllegalStateException("OOM memory pool exhausted");
+            }
+            if (count == pointers.length) {
+                pointers = Arrays.copyOf(pointers, count << 1);
+            }
+            pointers[count++] = pointer;
+        }
+    }
+
+    long getLong(long index) {
+        return pool.getLong(pointers[(int) (index >>> SEGMENT_SHIFT)], (int) (index & SEGMENT_MASK));
+    }
+
+    void putLong(long index, long value) {
+        pool.putLong(pointers[(int) (index >>> SEGMENT_SHIFT)], (int) (index & SEGMENT_MASK), value);
+    }
+
+    int getInt(long index) {
+        return pool.getInt(pointers[(int) (index >>> SEGMENT_SHIFT)], (int) (index & SEGMENT_MASK));
+    }
+
+    void putInt(long index, int value) {
+        pool.putInt(pointers[(int) (index >>> SEGMENT_SHIFT)], (int) (index & SEGMENT_MASK), value);
+    }
+
+    /**
+     * 释放所有段
+     */
+    @Override
+    public void close() {
+        for (int i = 0; i < count; i++) {
+            pool.free(pointers[i]);
+        }
+        count = 0;
+    }
+}
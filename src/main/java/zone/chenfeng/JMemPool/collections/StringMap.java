@@ -1,41 +1,445 @@
 package zone.chenfeng.JMemPool.collections;
 
+import zone.chenfeng.JMemPool.IMemoryPool;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
 
+/**
+ * 值存储在内存池中的字符串Map，支持key的过期时间和内存上限<br>
+ * 过期采用惰性删除+主动删除两种方式：
+ * <ul>
+ *     <li>访问key时发现已过期，立即删除并释放内存池中的内存块</li>
+ *     <li>设置了过期时间的key放入 {@link TimingWheel}，由 {@link #activeExpire(int)} 分批删除，不需要扫描全部key</li>
+ * </ul>
+ * 设置了内存上限后，写入前如果内存池已使用的字节数会超过上限，按 {@link EvictionPolicy} 随机采样淘汰key，
+ * 每次淘汰只采样固定个数的key，因此每次SET的淘汰开销均摊为O(1)<br>
+ * 网络请求可以用 {@link Utf8Key} 按字节查找key，值在请求/响应缓冲区和内存块之间直接复制，
+ * 见 {@link #get(Utf8Key, ByteBuffer)} 和 {@link #put(Utf8Key, byte[], int, int)}，key已存在时不创建对象
+ * <p>
+ * 非线程安全
+ * </p>
+ */
 public class StringMap {
-    Map<String, Long> map;
+    /**
+     * 每次淘汰时采样的key个数
+     */
+    static final int EVICTION_SAMPLES = 5;
+
+    /**
+     * key -> 条目在 {@link EntryTable} 中的槽位
+     */
+    Map<String, Integer> map;
+    EntryTable entries;
+    /**
+     * 设置了过期时间的key，key -> 过期时间（毫秒）
+     */
+    Map<String, Long> expires;
+    TimingWheel<String> timingWheel;
     StringPool pool;
+    LongSupplier clock;
+    /**
+     * 内存上限（字节），0表示不限制
+     */
+    long maxMemory;
+    EvictionPolicy evictionPolicy = EvictionPolicy.NOEVICTION;
+    long evictedKeys;
+    /**
+     * 正在写入的key，内存池在写入过程中回调 {@link #reclaim(long)} 时不能淘汰它
+     */
+    String writingKey;
+
     public StringMap() {
+        this(System::currentTimeMillis);
+    }
+
+    public StringMap(LongSupplier clock) {
+        this(new StringPool(), clock);
+    }
+
+    /**
+     * 使用指定的内存池存储值<br>
+     * 内存池配置了容量上限和 {@link zone.chenfeng.JMemPool.impl.PoolConfig.ExhaustionPolicy#RECLAIM} 时，
+     * 可以把 {@link #reclaim(long)} 设置为内存池的回收回调，在内存池满时按淘汰策略淘汰key
+     */
+    public StringMap(StringPool pool, LongSupplier clock) {
         map = new HashMap<>();
-        pool = new StringPool();
+        entries = new EntryTable();
+        expires = new HashMap<>();
+        this.pool = pool;
+        this.clock = clock;
+        timingWheel = new TimingWheel<>(clock.getAsLong());
     }
 
+    /**
+     * 设置内存上限
+     * @param maxMemory 内存池已使用字节数的上限，0表示不限制
+     * @param evictionPolicy 达到上限时的淘汰策略
+     */
+    public void setMaxMemory(long maxMemory, EvictionPolicy evictionPolicy) {
+        if (maxMemory < 0) {
+            throw new IllegalArgumentException("Max memory must not be negative");
+        }
+        this.maxMemory = maxMemory;
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * 因内存上限被淘汰的key个数
+     */
+    public long evictedKeys() {
+        return evictedKeys;
+    }
+
+    /**
+     * 内存池已使用的字节数
+     */
+    public long usedMemory() {
+        return pool.memoryPool.usedBytes();
+    }
+
+    /**
+     * key的个数，包括已过期但还未被删除的key
+     */
     public int size() {
         return map.size();
     }
 
+    /**
+     * 设置了过期时间的key的个数
+     */
+    public int expiringKeys() {
+        return expires.size();
+    }
+
     public boolean isEmpty() {
         return map.isEmpty();
     }
 
     public boolean containsKey(String key) {
+        expireIfNeeded(key);
         return map.containsKey(key);
     }
 
     public String get(String key) {
-        Long l = map.get(key);
-        return pool.getString(l);
+        expireIfNeeded(key);
+        Integer slot = map.get(key);
+        if (slot == null) {
+            return null;
+        }
+        touch(slot);
+        return pool.getString(entries.pointer(slot));
+    }
+
+    /**
+     * 把key的值按UTF-8字节写入dst，小页的值直接从内存块复制到dst的数组中
+     * @return 值的字节数，key不存在时返回-1
+     * @throws BufferOverflowException dst的剩余空间不够，此时不写入任何数据
+     */
+    public int get(Utf8Key key, ByteBuffer dst) {
+        expireIfNeeded(key);
+        Integer slot = map.get(key);
+        if (slot == null) {
+            return -1;
+        }
+        touch(slot);
+        return pool.getBytes(entries.pointer(slot), dst);
     }
 
+    /**
+     * 设置key的值，并清除key原有的过期时间
+     * @return key原来的指针，不存在时返回null
+     * @throws IllegalStateException 内存不足且淘汰策略为 {@link EvictionPolicy#NOEVICTION}
+     */
     public Long put(String key, String value) {
-        long pointer = pool.putString(value);
-        return map.put(key, pointer);
+        long old = put(key, value, null, 0, value.length());
+        return old == IMemoryPool.NULL_POINTER ? null : old;
+    }
+
+    /**
+     * 用已经按UTF-8编码的字节设置key的值，并清除key原有的过期时间<br>
+     * key已存在并且原有的内存块能放下时，不创建String，也不创建byte[]
+     * @return key原来是否存在
+     * @throws IllegalStateException 内存不足且淘汰策略为 {@link EvictionPolicy#NOEVICTION}
+     */
+    public boolean put(Utf8Key key, byte[] value, int offset, int length) {
+        expireIfNeeded(key);
+        Integer slot = map.get(key);
+        // 已存在的key使用Map中的String，只有新key需要解码
+        String name = slot == null ? key.toString() : entries.key(slot);
+        return put(name, null, value, offset, length) != IMemoryPool.NULL_POINTER;
+    }
+
+    /**
+     * @param value 字符串的值，为null时写入bytes中 [offset, offset + length) 的UTF-8字节
+     * @param length 值的长度，用于估算淘汰时需要的字节数
+     * @return key原来的指针，不存在时返回 {@link IMemoryPool#NULL_POINTER}
+     */
+    private long put(String key, String value, byte[] bytes, int offset, int length) {
+        expireIfNeeded(key);
+        Integer slot = map.get(key);
+        long old = slot == null ? IMemoryPool.NULL_POINTER : entries.pointer(slot);
+        if (maxMemory > 0) {
+            // 按字符数估算需要的字节数，与Redis一样允许少量超出上限
+            ensureMemory(length, key);
+            // 淘汰可能移动了条目的槽位
+            slot = map.get(key);
+        }
+        writingKey = key;
+        try {
+            if (slot == null) {
+                long pointer = checkPointer(value != null ? pool.putString(value) : pool.putBytes(bytes, offset, length));
+                map.put(key, entries.add(key, pointer, evictionPolicy.initialMeta(clock.getAsLong())));
+            } else {
+                // 原有的内存块能放下时原地更新，放不下时内存池会释放原内存块并重新分配
+                long pointer = checkPointer(value != null
+                        ? pool.putString(old, value) : pool.putBytes(old, bytes, offset, length));
+                // 内存池回收时可能移动了条目的槽位
+                slot = map.get(key);
+                entries.pointer(slot, pointer);
+                touch(slot);
+            }
+            // 写入成功后才清除过期时间，内存不足时key保持原来的值和过期时间
+            expires.remove(key);
+        } finally {
+            writingKey = null;
+        }
+        return old;
+    }
+
+    /**
+     * 在key的值末尾追加value，key不存在时等同于 {@link #put(String, String)}，保留key原有的过期时间
+     * @return 追加后的值按UTF-8编码的字节数
+     * @throws IllegalStateException 内存不足且淘汰策略为 {@link EvictionPolicy#NOEVICTION}
+     */
+    public int append(String key, String value) {
+        expireIfNeeded(key);
+        Integer slot = map.get(key);
+        if (slot == null) {
+            put(key, value);
+            return pool.length(entries.pointer(map.get(key)));
+        }
+        if (maxMemory > 0) {
+            ensureMemory(value.length(), key);
+            slot = map.get(key);
+        }
+        writingKey = key;
+        try {
+            long pointer = checkPointer(pool.append(entries.pointer(slot), value));
+            // 内存池回收时可能移动了条目的槽位
+            slot = map.get(key);
+            entries.pointer(slot, pointer);
+            touch(slot);
+            return pool.length(pointer);
+        } finally {
+            writingKey = null;
+        }
+    }
+
+    private static long checkPointer(long pointer) {
+        if (pointer == IMemoryPool.NULL_POINTER) {
+            throw new IllegalStateException("OOM memory pool exhausted");
+        }
+        return pointer;
+    }
+
+    /**
+     * 设置key的值和过期时间
+     * @param ttlMillis 过期时间，毫秒
+     */
+    public Long put(String key, String value, long ttlMillis) {
+        Long old = put(key, value);
+        expireAt(key, clock.getAsLong() + ttlMillis);
+        return old;
     }
 
     public String remove(String key) {
-        Long pointer = map.remove(key);
-        return pool.free(pointer);
+        expireIfNeeded(key);
+        Integer slot = map.get(key);
+        if (slot == null) {
+            return null;
+        }
+        String value = pool.getString(entries.pointer(slot));
+        delete(key);
+        return value;
+    }
+
+    /**
+     * 设置key的过期时间
+     * @param ttlMillis 过期时间，毫秒，小于等于0时直接删除key
+     * @return key不存在时返回false
+     */
+    public boolean expire(String key, long ttlMillis) {
+        return expireAt(key, clock.getAsLong() + ttlMillis);
+    }
+
+    /**
+     * 设置key的过期时间点
+     * @param deadline 过期时间点，毫秒时间戳
+     * @return key不存在时返回false
+     */
+    public boolean expireAt(String key, long deadline) {
+        expireIfNeeded(key);
+        if (!map.containsKey(key)) {
+            return false;
+        }
+        if (deadline <= clock.getAsLong()) {
+            delete(key);
+            return true;
+        }
+        expires.put(key, deadline);
+        timingWheel.add(key, deadline);
+        return true;
+    }
+
+    /**
+     * 获取key的剩余过期时间
+     * @return 剩余毫秒数；key不存在时返回-2，key没有过期时间时返回-1
+     */
+    public long ttl(String key) {
+        expireIfNeeded(key);
+        if (!map.containsKey(key)) {
+            return -2;
+        }
+        Long deadline = expires.get(key);
+        if (deadline == null) {
+            return -1;
+        }
+        return deadline - clock.getAsLong();
+    }
+
+    /**
+     * 主动删除已过期的key
+     * @param budget 本次最多从时间轮中取出的元素个数，用于限制单次调用的耗时
+     * @return 本次删除的key个数
+     */
+    public int activeExpire(int budget) {
+        int[] expired = new int[1];
+        timingWheel.expire(clock.getAsLong(), budget, (key, deadline) -> {
+            Long current = expires.get(key);
+            // key的过期时间已被修改或key已被删除，时间轮中的这个元素已失效
+            if (current != null && current == deadline) {
+                delete(key);
+                expired[0]++;
+            }
+        });
+        return expired[0];
+    }
+
+    private void expireIfNeeded(String key) {
+        Long deadline = expires.get(key);
+        if (deadline != null && deadline <= clock.getAsLong()) {
+            delete(key);
+        }
+    }
+
+    private void expireIfNeeded(Utf8Key key) {
+        Long deadline = expires.get(key);
+        if (deadline != null && deadline <= clock.getAsLong()) {
+            // 设置了过期时间的key一定在map中，删除时使用Map中的String
+            delete(entries.key(map.get(key)));
+        }
+    }
+
+    /**
+     * 按淘汰策略淘汰key，直到释放了bytes字节或没有可以淘汰的key<br>
+     * 可以作为内存池的 {@link zone.chenfeng.JMemPool.impl.PoolConfig.ReclaimHook}
+     * @return 是否淘汰了key，淘汰策略为 {@link EvictionPolicy#NOEVICTION} 时总是返回false
+     */
+    public boolean reclaim(long bytes) {
+        if (evictionPolicy == EvictionPolicy.NOEVICTION) {
+            return false;
+        }
+        long before = usedMemory();
+        boolean evicted = false;
+        while (before - usedMemory() < bytes) {
+            long evictedBefore = evictedKeys;
+            if (!evictOne(writingKey)) {
+                break;
+            }
+            evicted |= evictedKeys != evictedBefore;
+        }
+        return evicted;
+    }
+
+    private void touch(int slot) {
+        entries.meta(slot, evictionPolicy.touch(entries.meta(slot), clock.getAsLong(), ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /**
+     * 淘汰key，直到写入size字节后不会超过内存上限
+     * @param keep 正在写入的key，不会被淘汰
+     */
+    private void ensureMemory(int size, String keep) {
+        while (usedMemory() + size > maxMemory) {
+            if (evictionPolicy == EvictionPolicy.NOEVICTION) {
+                throw new IllegalStateException("OOM command not allowed when used memory > 'maxmemory'");
+            }
+            if (!evictOne(keep)) {
+                // 没有可以淘汰的key了，允许超出上限
+                return;
+            }
+        }
+    }
+
+    /**
+     * 随机采样 {@link #EVICTION_SAMPLES} 个key，淘汰其中分数最高的
+     * @return 没有可以淘汰的key时返回false
+     */
+    private boolean evictOne(String keep) {
+        int size = entries.size();
+        if (size == 0 || (size == 1 && map.containsKey(keep))) {
+            return false;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = clock.getAsLong();
+        int victim = -1;
+        long victimScore = -1;
+        for (int i = 0; i < EVICTION_SAMPLES; i++) {
+            int slot = random.nextInt(size);
+            if (entries.key(slot).equals(keep)) {
+                continue;
+            }
+            long score = evictionPolicy.score(entries.meta(slot), now);
+            if (score > victimScore) {
+                victim = slot;
+                victimScore = score;
+            }
+        }
+        if (victim < 0) {
+            // 采样全部命中了正在写入的key，下次重新采样
+            return true;
+        }
+        delete(entries.key(victim));
+        evictedKeys++;
+        return true;
+    }
+
+    /**
+     * 删除key并释放内存块，不读取原来的值
+     */
+    private void delete(String key) {
+        expires.remove(key);
+        Integer slot = map.remove(key);
+        if (slot != null) {
+            pool.release(entries.pointer(slot));
+            String moved = entries.remove(slot);
+            if (moved != null) {
+                map.put(moved, slot);
+            }
+        }
     }
 
 }
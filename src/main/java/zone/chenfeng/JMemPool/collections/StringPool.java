@@ -3,10 +3,40 @@ package zone.chenfeng.JMemPool.collections;
 import zone.chenfeng.JMemPool.IMemoryPool;
 import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+/**
+ * 存储在内存池中的字符串，按UTF-8编码<br>
+ * 去重模式下相同的字符串共享一个内存块，内存块带有引用计数，占用的内存与不同字符串的个数成正比，而不是与写入次数成正比。
+ * 去重模式下返回的指针可能被多处共享，只能通过 {@link #putString(long, String)} 修改、通过 {@link #free(long)} 或
+ * {@link #release(long)} 释放，不能直接调用内存池的put/free
+ * <p>
+ * 不超过256字节的字符串存储在小页中，{@link #putString(CharSequence)}、{@link #equals(long, CharSequence)}、
+ * {@link #hash(long)} 和解码到 {@link StringBuilder}/{@link CharBuffer} 都直接读写内存块，不创建byte[]和String。
+ * 已经是UTF-8字节的数据（如网络请求）通过 {@link #putBytes(byte[], int, int)} 和 {@link #getBytes(long, ByteBuffer)}
+ * 在缓冲区和内存块之间直接复制，不经过String。
+ * 更大的字符串存储在大页中（堆上的数组，可能被压缩），仍然先编码为byte[]
+ * </p>
+ */
 public class StringPool {
+    /**
+     * 小页内存块的最大长度，超过时存储在大页中
+     */
+    private static final int LITTLE_MAX_LENGTH = 256;
+    /**
+     * 编码小页字符串的缓冲区，编码后整体复制到内存块中。每个线程一个，线程安全的内存池上可以并发写入
+     */
+    private static final ThreadLocal<byte[]> ENCODE_BUFFER = ThreadLocal.withInitial(() -> new byte[LITTLE_MAX_LENGTH]);
+
     IMemoryPool memoryPool;
+    /**
+     * 去重模式的指纹表，非去重模式为null
+     */
+    FingerprintTable fingerprints;
 
     public StringPool() {
         memoryPool = new SimpleMemoryPool();
@@ -16,25 +46,373 @@ public class StringPool {
         this.memoryPool = memoryPool;
     }
 
+    /**
+     * @param dedup 是否开启去重模式
+     */
+    public StringPool(IMemoryPool memoryPool, boolean dedup) {
+        this.memoryPool = memoryPool;
+        if (dedup) {
+            fingerprints = new FingerprintTable();
+        }
+    }
+
     public static StringPool newSimpleStringPool() {
         return new StringPool(new SimpleMemoryPool());
     }
 
+    public static StringPool newDedupStringPool() {
+        return new StringPool(new SimpleMemoryPool(), true);
+    }
+
     public long putString(String string) {
-        return memoryPool.put(string.getBytes(StandardCharsets.UTF_8));
+        return putString((CharSequence) string);
     }
 
+    /**
+     * 写入字符串，不超过256字节时直接编码到内存块中
+     * @return 指针，内存不足时返回 {@link IMemoryPool#NULL_POINTER}
+     */
+    public long putString(CharSequence string) {
+        int length = Utf8.encodedLength(string);
+        if (fingerprints == null) {
+            return store(string, length);
+        }
+        return intern(string, length);
+    }
+
+    /**
+     * 修改指针对应的字符串<br>
+     * 原有的小页内存块能放下时原地写入，不创建byte[]。去重模式下不会原地修改共享的内存块，而是引用新字符串的内存块并释放对原内存块的引用，需要使用返回的指针
+     * @return 新的指针，内存不足时返回 {@link IMemoryPool#NULL_POINTER}，原指针保持不变
+     */
     public long putString(long pointer,String string) {
-        return memoryPool.put(pointer,string.getBytes(StandardCharsets.UTF_8));
+        if (fingerprints == null) {
+            int length = Utf8.encodedLength(string);
+            if (length == 0 || length > LITTLE_MAX_LENGTH || memoryPool.length(pointer) > LITTLE_MAX_LENGTH) {
+                // 大页的数据在堆上，并且可能需要压缩，不能原地写入
+                return memoryPool.put(pointer, string.getBytes(StandardCharsets.UTF_8));
+            }
+            // 块大小足够时原地调整长度，否则在新的内存块中分配
+            long newPointer = memoryPool.realloc(pointer, length);
+            if (newPointer != IMemoryPool.NULL_POINTER) {
+                encodeInto(newPointer, string, length);
+            }
+            return newPointer;
+        }
+        // 先引用新值再释放旧值，值相同时不会释放后重新分配
+        long newPointer = intern(string, Utf8.encodedLength(string));
+        if (newPointer != IMemoryPool.NULL_POINTER) {
+            release(pointer);
+        }
+        return newPointer;
+    }
+
+    /**
+     * 写入已经按UTF-8编码的字节，不超过256字节时直接复制到内存块中，不创建String和byte[]<br>
+     * 不校验编码，非法的字节序列在解码时替换为U+FFFD。去重模式下先解码为String
+     * @return 指针，内存不足时返回 {@link IMemoryPool#NULL_POINTER}
+     */
+    public long putBytes(byte[] src, int offset, int length) {
+        if (fingerprints != null || length == 0) {
+            return putString(new String(src, offset, length, StandardCharsets.UTF_8));
+        }
+        if (length > LITTLE_MAX_LENGTH) {
+            return memoryPool.put(Arrays.copyOfRange(src, offset, offset + length));
+        }
+        long pointer = memoryPool.malloc(length);
+        if (pointer != IMemoryPool.NULL_POINTER) {
+            memoryPool.putBytes(pointer, 0, src, offset, length);
+        }
+        return pointer;
+    }
+
+    /**
+     * 用已经按UTF-8编码的字节修改指针对应的字符串，见 {@link #putBytes(byte[], int, int)}<br>
+     * 原有的小页内存块能放下时原地写入，不创建任何对象
+     * @return 新的指针，内存不足时返回 {@link IMemoryPool#NULL_POINTER}，原指针保持不变
+     */
+    public long putBytes(long pointer, byte[] src, int offset, int length) {
+        if (fingerprints != null || length == 0) {
+            return putString(pointer, new String(src, offset, length, StandardCharsets.UTF_8));
+        }
+        if (length > LITTLE_MAX_LENGTH || memoryPool.length(pointer) > LITTLE_MAX_LENGTH) {
+            // 大页的数据在堆上，并且可能需要压缩，不能原地写入
+            return memoryPool.put(pointer, Arrays.copyOfRange(src, offset, offset + length));
+        }
+        // 块大小足够时原地调整长度，否则在新的内存块中分配
+        long newPointer = memoryPool.realloc(pointer, length);
+        if (newPointer != IMemoryPool.NULL_POINTER) {
+            memoryPool.putBytes(newPointer, 0, src, offset, length);
+        }
+        return newPointer;
+    }
+
+    /**
+     * 在字符串末尾追加suffix<br>
+     * 非去重模式直接追加到内存块（见 {@link IMemoryPool#append(long, byte[])}），内存块有空余时不复制原有的数据；
+     * 去重模式下内存块可能被共享，写入拼接后的字符串并释放对原内存块的引用
+     * @return 新的指针，内存不足时返回 {@link IMemoryPool#NULL_POINTER}，原指针保持不变
+     */
+    public long append(long pointer, String suffix) {
+        if (fingerprints == null) {
+            return memoryPool.append(pointer, suffix.getBytes(StandardCharsets.UTF_8));
+        }
+        return putString(pointer, getString(pointer) + suffix);
+    }
+
+    /**
+     * 字符串按UTF-8编码后的字节数
+     */
+    public int length(long pointer) {
+        return memoryPool.length(pointer);
     }
 
     public String getString(long pointer) {
         return new String(memoryPool.get(pointer), StandardCharsets.UTF_8);
     }
 
+    /**
+     * 把字符串的UTF-8字节写入dst，小页的内存块直接复制到dst的数组中，不创建byte[]
+     * @return 写入的字节数
+     * @throws BufferOverflowException dst的剩余空间不够，此时不写入任何数据
+     */
+    public int getBytes(long pointer, ByteBuffer dst) {
+        int length = memoryPool.length(pointer);
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        if (length > LITTLE_MAX_LENGTH || !dst.hasArray()) {
+            dst.put(memoryPool.get(pointer));
+            return length;
+        }
+        memoryPool.getBytes(pointer, 0, dst.array(), dst.arrayOffset() + dst.position(), length);
+        dst.position(dst.position() + length);
+        return length;
+    }
+
+    /**
+     * 把字符串解码后追加到dst，dst可以复用
+     * @return dst
+     */
+    public StringBuilder getString(long pointer, StringBuilder dst) {
+        int length = memoryPool.length(pointer);
+        byte[] huge = length > LITTLE_MAX_LENGTH ? memoryPool.get(pointer) : null;
+        for (int pos = 0; pos < length; ) {
+            int n = decodedLength(pointer, huge, pos, length);
+            int codePoint = decode(pointer, huge, pos, n);
+            pos += n;
+            dst.appendCodePoint(codePoint);
+        }
+        return dst;
+    }
+
+    /**
+     * 把字符串解码后写入dst，dst可以复用
+     * @return dst
+     * @throws java.nio.BufferOverflowException dst的剩余空间不够
+     */
+    public CharBuffer getString(long pointer, CharBuffer dst) {
+        int length = memoryPool.length(pointer);
+        byte[] huge = length > LITTLE_MAX_LENGTH ? memoryPool.get(pointer) : null;
+        for (int pos = 0; pos < length; ) {
+            int n = decodedLength(pointer, huge, pos, length);
+            int codePoint = decode(pointer, huge, pos, n);
+            pos += n;
+            if (Character.isBmpCodePoint(codePoint)) {
+                dst.put((char) codePoint);
+            } else {
+                dst.put(Character.highSurrogate(codePoint));
+                dst.put(Character.lowSurrogate(codePoint));
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * 比较指针对应的字符串与value是否相等，不解码内存块
+     */
+    public boolean equals(long pointer, CharSequence value) {
+        int length = memoryPool.length(pointer);
+        byte[] huge = length > LITTLE_MAX_LENGTH ? memoryPool.get(pointer) : null;
+        int pos = 0;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = Utf8.codePointAt(value, i);
+            i += Utf8.charCount(codePoint);
+            int n = Utf8.encodedLength(codePoint);
+            if (pos + n > length) {
+                return false;
+            }
+            for (int k = 0; k < n; k++) {
+                if (byteAt(pointer, huge, pos++) != Utf8.encodedByte(codePoint, n, k)) {
+                    return false;
+                }
+            }
+        }
+        return pos == length;
+    }
+
+    /**
+     * 指针对应的字符串的哈希值，等于 {@link #hash(CharSequence)}
+     */
+    public int hash(long pointer) {
+        int length = memoryPool.length(pointer);
+        byte[] huge = length > LITTLE_MAX_LENGTH ? memoryPool.get(pointer) : null;
+        int h = 1;
+        for (int pos = 0; pos < length; pos++) {
+            h = 31 * h + byteAt(pointer, huge, pos);
+        }
+        return mix(h);
+    }
+
+    /**
+     * 字符串按UTF-8编码后的哈希值，不创建byte[]
+     */
+    public static int hash(CharSequence value) {
+        int h = 1;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = Utf8.codePointAt(value, i);
+            i += Utf8.charCount(codePoint);
+            int n = Utf8.encodedLength(codePoint);
+            for (int k = 0; k < n; k++) {
+                h = 31 * h + Utf8.encodedByte(codePoint, n, k);
+            }
+        }
+        return mix(h);
+    }
+
     public String free(long pointer) {
         String string = getString(pointer);
-        memoryPool.free(pointer);
+        release(pointer);
         return string;
     }
+
+    /**
+     * 释放指针，不读取字符串<br>
+     * 去重模式下引用计数减一，减到0时才释放内存块
+     */
+    public void release(long pointer) {
+        if (fingerprints == null) {
+            memoryPool.free(pointer);
+            return;
+        }
+        int slot = fingerprints.firstSlot(hash(pointer));
+        long current;
+        while ((current = fingerprints.pointer(slot)) != pointer) {
+            if (current == IMemoryPool.NULL_POINTER) {
+                throw new IllegalArgumentException("Pointer is not in the dedup table");
+            }
+            slot = fingerprints.nextSlot(slot);
+        }
+        int refCount = fingerprints.refCount(slot) - 1;
+        if (refCount > 0) {
+            fingerprints.refCount(slot, refCount);
+            return;
+        }
+        fingerprints.remove(slot);
+        memoryPool.free(pointer);
+    }
+
+    /**
+     * 不同字符串的个数，非去重模式返回-1
+     */
+    public int distinctValues() {
+        return fingerprints == null ? -1 : fingerprints.size();
+    }
+
+    /**
+     * 写入内存池，不超过256字节时直接编码到内存块中
+     * @param length 编码后的字节数
+     */
+    private long store(CharSequence string, int length) {
+        if (length > LITTLE_MAX_LENGTH) {
+            // 大页的数据在堆上，并且可能需要压缩，直接写入数组
+            return memoryPool.put(string.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        long pointer = memoryPool.malloc(length);
+        if (pointer != IMemoryPool.NULL_POINTER) {
+            encodeInto(pointer, string, length);
+        }
+        return pointer;
+    }
+
+    /**
+     * 把不超过256字节的字符串编码到线程的缓冲区，再整体复制到内存块中
+     * @param length 编码后的字节数
+     */
+    private void encodeInto(long pointer, CharSequence string, int length) {
+        byte[] buffer = ENCODE_BUFFER.get();
+        Utf8.encode(string, buffer, 0);
+        memoryPool.putBytes(pointer, 0, buffer, 0, length);
+    }
+
+    /**
+     * 查找相同的字符串，存在时引用计数加一，不存在时写入内存池
+     */
+    private long intern(CharSequence string, int length) {
+        int hash = hash(string);
+        for (int slot = fingerprints.firstSlot(hash); ; slot = fingerprints.nextSlot(slot)) {
+            long pointer = fingerprints.pointer(slot);
+            if (pointer == IMemoryPool.NULL_POINTER) {
+                break;
+            }
+            if (fingerprints.hash(slot) == hash && equals(pointer, string)) {
+                fingerprints.refCount(slot, fingerprints.refCount(slot) + 1);
+                return pointer;
+            }
+        }
+        // 内存池满时可能回调淘汰，淘汰会修改指纹表，因此写入内存池后再添加条目
+        long pointer = store(string, length);
+        if (pointer != IMemoryPool.NULL_POINTER) {
+            fingerprints.add(hash, pointer);
+        }
+        return pointer;
+    }
+
+    private byte byteAt(long pointer, byte[] huge, int pos) {
+        return huge != null ? huge[pos] : memoryPool.getByte(pointer, pos);
+    }
+
+    /**
+     * 解码pos处长度为n的字节序列，非法的字节序列解码为U+FFFD
+     * @param n {@link #decodedLength(long, byte[], int, int)}
+     */
+    private int decode(long pointer, byte[] huge, int pos, int n) {
+        byte first = byteAt(pointer, huge, pos);
+        if (n == 1) {
+            return first >= 0 ? first : Utf8.REPLACEMENT_CHAR;
+        }
+        int codePoint = first & (0x7F >> n);
+        for (int k = 1; k < n; k++) {
+            codePoint = codePoint << 6 | (byteAt(pointer, huge, pos + k) & 0x3F);
+        }
+        return codePoint <= Character.MAX_CODE_POINT ? codePoint : Utf8.REPLACEMENT_CHAR;
+    }
+
+    /**
+     * pos处的字节序列的长度，序列不完整时为1
+     */
+    private int decodedLength(long pointer, byte[] huge, int pos, int length) {
+        int n = Utf8.sequenceLength(byteAt(pointer, huge, pos));
+        if (pos + n > length) {
+            return 1;
+        }
+        for (int k = 1; k < n; k++) {
+            if ((byteAt(pointer, huge, pos + k) & 0xC0) != 0x80) {
+                return 1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * murmur3的finalizer，打散低位
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
 }
@@ -0,0 +1,214 @@
+package zone.chenfeng.JMemPool.collections;
+
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 分层时间轮<br>
+ * 用于key的过期，插入和到期都是O(1)的（级联时每个元素最多被移动 levels 次），不需要扫描全部key。
+ * <ul>
+ *     <li>第0层每个槽的跨度为 tickMs，第i层每个槽的跨度为 tickMs * wheelSize^i</li>
+ *     <li>超出最高层范围的元素放入overflow链表，最高层转完一圈时重新插入</li>
+ *     <li>到期的元素先放入待处理链表，由 {@link #expire(long, int, ObjLongConsumer)} 按预算分批交给调用方处理</li>
+ * </ul>
+ * 时间轮不支持删除，元素的deadline被修改或key被删除后，由调用方在回调时自行判断该元素是否已经失效。
+ * <p>
+ * 非线程安全，与 {@link StringMap} 一样只能在单线程中使用
+ * </p>
+ */
+public class TimingWheel<K> {
+
+    static class Node<K> {
+        K key;
+        long deadline;
+        Node<K> next;
+
+        Node(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final int wheelMask;
+    /**
+     * 每层一个槽数组，buckets[level][slot]为单链表的头
+     */
+    private final Node<K>[][] buckets;
+    private final long[] levelTickMs;
+    private Node<K> overflow;
+    /**
+     * 已到期、等待调用方处理的链表
+     */
+    private Node<K> dueHead;
+    private Node<K> dueTail;
+    /**
+     * 当前时间，对齐到tickMs，小于该时间的槽都已处理过
+     */
+    private long currentTime;
+    private int size;
+    /**
+     * 还在槽或overflow中，尚未到期的元素个数
+     */
+    private int scheduled;
+
+    /**
+     * @param tickMs    第0层每个槽的跨度，毫秒
+     * @param wheelSize 每层的槽数，必须是2的幂
+     * @param levels    层数
+     * @param startMs   起始时间
+     */
+    public TimingWheel(long tickMs, int wheelSize, int levels, long startMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of 2");
+        }
+        if (levels < 1) {
+            throw new IllegalArgumentException("Levels must be positive");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.wheelMask = wheelSize - 1;
+        this.buckets = newBuckets(levels, wheelSize);
+        this.levelTickMs = new long[levels];
+        long levelTick = tickMs;
+        for (int i = 0; i < levels; i++) {
+            levelTickMs[i] = levelTick;
+            levelTick *= wheelSize;
+        }
+        this.currentTime = startMs - startMs % tickMs;
+    }
+
+    /**
+     * 泛型数组不能直接创建，用通配符数组转换，数组只在内部存放Node&lt;K&gt;
+     */
+    @SuppressWarnings("unchecked")
+    private static <K> Node<K>[][] newBuckets(int levels, int wheelSize) {
+        return (Node<K>[][]) new Node<?>[levels][wheelSize];
+    }
+
+    /**
+     * 10ms一格，每层64格，4层约可覆盖46小时，更远的deadline放入overflow
+     */
+    public TimingWheel(long startMs) {
+        this(10, 64, 4, startMs);
+    }
+
+    /**
+     * 时间轮中的元素个数，包括已到期但还未处理的元素
+     */
+    public int size() {
+        return size;
+    }
+
+    public void add(K key, long deadline) {
+        size++;
+        place(new Node<>(key, deadline));
+    }
+
+    private void place(Node<K> node) {
+        if (node.deadline < currentTime) {
+            // 已经过期
+            appendDue(node);
+            return;
+        }
+        for (int level = 0; level < buckets.length; level++) {
+            long levelTick = levelTickMs[level];
+            if (node.deadline / levelTick - currentTime / levelTick < wheelSize) {
+                int slot = (int) ((node.deadline / levelTick) & wheelMask);
+                node.next = buckets[level][slot];
+                buckets[level][slot] = node;
+                scheduled++;
+                return;
+            }
+        }
+        node.next = overflow;
+        overflow = node;
+        scheduled++;
+    }
+
+    private void appendDue(Node<K> node) {
+        node.next = null;
+        if (dueTail == null) {
+            dueHead = node;
+        } else {
+            dueTail.next = node;
+        }
+        dueTail = node;
+    }
+
+    /**
+     * 推进时间轮到now，并把最多budget个到期元素交给consumer处理<br>
+     * 未处理完的到期元素留到下次调用
+     *
+     * @param now      当前时间
+     * @param budget   本次最多处理的元素个数
+     * @param consumer 接收 (key, deadline)
+     * @return 本次处理的元素个数
+     */
+    public int expire(long now, int budget, ObjLongConsumer<K> consumer) {
+        advance(now);
+        int count = 0;
+        while (dueHead != null && count < budget) {
+            Node<K> node = dueHead;
+            dueHead = node.next;
+            if (dueHead == null) {
+                dueTail = null;
+            }
+            node.next = null;
+            size--;
+            count++;
+            consumer.accept(node.key, node.deadline);
+        }
+        return count;
+    }
+
+    private void advance(long now) {
+        if (scheduled == 0) {
+            // 时间轮为空，直接跳到当前时间，避免空转
+            if (now > currentTime) {
+                currentTime = now - now % tickMs;
+            }
+            return;
+        }
+        while (currentTime + tickMs <= now) {
+            // 第0层当前槽 [currentTime, currentTime + tickMs) 内的元素已全部到期
+            int slot0 = (int) ((currentTime / tickMs) & wheelMask);
+            Node<K> node = buckets[0][slot0];
+            buckets[0][slot0] = null;
+            while (node != null) {
+                Node<K> next = node.next;
+                scheduled--;
+                appendDue(node);
+                node = next;
+            }
+            currentTime += tickMs;
+            // 从高层往低层级联，高层级联下来的元素可能正好落在低层当前要级联的槽中
+            if (currentTime % (levelTickMs[buckets.length - 1] * wheelSize) == 0) {
+                Node<K> o = overflow;
+                overflow = null;
+                reinsertAll(o);
+            }
+            for (int level = buckets.length - 1; level >= 1; level--) {
+                long levelTick = levelTickMs[level];
+                if (currentTime % levelTick == 0) {
+                    int slot = (int) ((currentTime / levelTick) & wheelMask);
+                    Node<K> head = buckets[level][slot];
+                    buckets[level][slot] = null;
+                    reinsertAll(head);
+                }
+            }
+        }
+    }
+
+    private void reinsertAll(Node<K> node) {
+        while (node != null) {
+            Node<K> next = node.next;
+            scheduled--;
+            place(node);
+            node = next;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package zone.chenfeng.JMemPool.collections;
+
+/**
+ * 不创建对象的UTF-8编解码<br>
+ * 编码时按码点逐个处理，由调用方决定字节写到哪里，与 {@link String#getBytes(java.nio.charset.Charset)} 的结果一致：
+ * 不成对的代理字符编码为'?'。解码时非法的字节序列解码为U+FFFD
+ */
+final class Utf8 {
+
+    static final int REPLACEMENT_CHAR = 0xFFFD;
+
+    private Utf8() {
+    }
+
+    /**
+     * i处的码点，不成对的代理字符返回'?'，占用的char个数用 {@link #charCount(CharSequence, int)} 得到
+     */
+    static int codePointAt(CharSequence s, int i) {
+        char c = s.charAt(i);
+        if (!Character.isSurrogate(c)) {
+            return c;
+        }
+        if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            return Character.toCodePoint(c, s.charAt(i + 1));
+        }
+        return '?';
+    }
+
+    static int charCount(int codePoint) {
+        return codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT ? 2 : 1;
+    }
+
+    /**
+     * 码点编码后的字节数
+     */
+    static int encodedLength(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * 码点编码后的第index个字节
+     * @param length {@link #encodedLength(int)}
+     */
+    static byte encodedByte(int codePoint, int length, int index) {
+        if (length == 1) {
+            return (byte) codePoint;
+        }
+        int shift = (length - 1 - index) * 6;
+        if (index == 0) {
+            // 首字节：length个1，一个0，然后是码点的高位
+            return (byte) ((0xFF00 >> length) | (codePoint >> shift));
+        }
+        return (byte) (0x80 | ((codePoint >> shift) & 0x3F));
+    }
+
+    /**
+     * 字符串编码后的字节数，全部是ASCII时等于字符数
+     */
+    static int encodedLength(CharSequence s) {
+        int length = s.length();
+        int bytes = 0;
+        for (int i = 0; i < length; ) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+                i++;
+                continue;
+            }
+            int codePoint = codePointAt(s, i);
+            bytes += encodedLength(codePoint);
+            i += charCount(codePoint);
+        }
+        return bytes;
+    }
+
+    /**
+     * 把字符串编码到dst的offset处，dst的剩余空间必须不小于 {@link #encodedLength(CharSequence)}
+     * @return 写入的字节数
+     */
+    static int encode(CharSequence s, byte[] dst, int offset) {
+        int pos = offset;
+        for (int i = 0; i < s.length(); ) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                dst[pos++] = (byte) c;
+                i++;
+                continue;
+            }
+            int codePoint = codePointAt(s, i);
+            i += charCount(codePoint);
+            int n = encodedLength(codePoint);
+            for (int k = 0; k < n; k++) {
+                dst[pos++] = encodedByte(codePoint, n, k);
+            }
+        }
+        return pos - offset;
+    }
+
+    /**
+     * 以首字节开头的字节序列的长度，首字节非法时返回1
+     */
+    static int sequenceLength(byte first) {
+        if (first >= 0) {
+            return 1;
+        }
+        if ((first & 0xE0) == 0xC0) {
+            return 2;
+        }
+        if ((first & 0xF0) == 0xE0) {
+            return 3;
+        }
+        return (first & 0xF8) == 0xF0 ? 4 : 1;
+    }
+}
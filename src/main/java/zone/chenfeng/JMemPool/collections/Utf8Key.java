@@ -0,0 +1,112 @@
+package zone.chenfeng.JMemPool.collections;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 按UTF-8字节切片查找 {@link StringMap} 的key，不创建String<br>
+ * 指向调用方的字节数组中的一段，可以反复 {@link #wrap(byte[], int, int)} 复用。
+ * {@link #hashCode()} 与解码后的String一致，{@link #equals(Object)} 与内容相同的String相等，
+ * 因此可以作为以String为key的 {@link java.util.HashMap} 的查找参数：HashMap查找时调用的是参数的equals。
+ * 反过来String.equals(Utf8Key)总是false，不能放入Map或Set中
+ * <p>
+ * 全部是ASCII时直接比较字节。含有非ASCII字节时解码为String后比较（会创建对象），网络协议中的key通常是ASCII
+ * </p>
+ */
+public final class Utf8Key {
+    private byte[] bytes;
+    private int offset;
+    private int length;
+    private int hash;
+    /**
+     * 含有非ASCII字节时解码后的key，否则为null
+     */
+    private String decoded;
+
+    public Utf8Key() {
+    }
+
+    public Utf8Key(byte[] bytes, int offset, int length) {
+        wrap(bytes, offset, length);
+    }
+
+    /**
+     * 指向bytes中 [offset, offset + length) 的字节，计算哈希值
+     * @return this
+     */
+    public Utf8Key wrap(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        decoded = null;
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                decoded = new String(bytes, offset, length, StandardCharsets.UTF_8);
+                h = decoded.hashCode();
+                break;
+            }
+            h = 31 * h + b;
+        }
+        hash = h;
+        return this;
+    }
+
+    /**
+     * 字节数
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 与字节内容相同的key比较，或与解码后相同的String比较
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof String) {
+            String s = (String) o;
+            if (decoded != null) {
+                return decoded.equals(s);
+            }
+            if (s.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (s.charAt(i) != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (o instanceof Utf8Key) {
+            Utf8Key other = (Utf8Key) o;
+            if (other.hash != hash || other.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (other.bytes[other.offset + i] != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * 解码为String，插入新的key时使用
+     */
+    @Override
+    public String toString() {
+        return decoded != null ? decoded : new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+}
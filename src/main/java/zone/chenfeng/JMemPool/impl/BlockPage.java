@@ -0,0 +1,14 @@
+package zone.chenfeng.JMemPool.impl;
+
+/**
+ * 按内存块分配和读写的页，即小页和大页<br>
+ * 流式写入的 {@link ChunkPage} 只有顺序读写，不实现这个接口，
+ * 需要通过 {@link Page#type()} 或 instanceof 判断后才能调用这里的方法
+ */
+public interface BlockPage extends Page {
+    int malloc(int size);
+
+    byte[] get(int pageOffset);
+
+    int put(int pageOffset, byte[] data);
+}
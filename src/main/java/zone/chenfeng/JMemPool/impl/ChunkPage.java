@@ -0,0 +1,110 @@
+package zone.chenfeng.JMemPool.impl;
+
+/**
+ * 流式存储的大value的一个段<br>
+ * 每个段是一块堆外内存，{@link SimpleMemoryPool#openWriter()} 的段为 {@link PoolConfig#chunkSize}，
+ * 追加转为分段存储的value从较小的段开始，每个段的容量翻倍直到chunkSize。多个段通过 {@link #next} 串成链表，value的指针指向第一个段。
+ * 段的元数据保存在对象字段中，段内全部是数据。段不按内存块分配，因此不实现 {@link BlockPage}。<br>
+ * 只能通过 {@link ChunkedValueWriter}、{@link ChunkedValueReader} 和 {@link SimpleMemoryPool#transferTo} 访问，
+ * {@link SimpleMemoryPool#get(long)} 会把整条链复制到一个数组中
+ */
+class ChunkPage implements Page {
+    static final int NO_NEXT = -1;
+
+    final PageMemory memory;
+    private int globalPageNum;
+    /**
+     * 下一个段的页号，最后一个段为 {@link #NO_NEXT}
+     */
+    int next = NO_NEXT;
+    /**
+     * 本段已写入的字节数
+     */
+    int used;
+    /**
+     * value的总字节数，只在第一个段中有效
+     */
+    long totalLength;
+    /**
+     * 最后一个段的页号，只在第一个段中有效，追加时不需要遍历链表
+     */
+    int last;
+    /**
+     * 是否属于某个value，释放后放入内存池的空闲段队列复用
+     */
+    boolean allocated;
+
+    ChunkPage(PageMemory memory) {
+        this.memory = memory;
+    }
+
+    int capacity() {
+        return memory.capacity();
+    }
+
+    /**
+     * 重新分配给新的value
+     */
+    void reset() {
+        next = NO_NEXT;
+        used = 0;
+        totalLength = 0;
+        last = globalPageNum;
+        allocated = true;
+    }
+
+    @Override
+    public int freeSize() {
+        return allocated ? 0 : 1;
+    }
+
+    @Override
+    public void free(int pageOffset) {
+        allocated = false;
+    }
+
+    @Override
+    public int usedBytes() {
+        return allocated ? capacity() : 0;
+    }
+
+    @Override
+    public int usedBlock() {
+        return size();
+    }
+
+    @Override
+    public int type() {
+        return CHUNK_PAGE_TYPE;
+    }
+
+    @Override
+    public int size() {
+        return allocated ? 1 : 0;
+    }
+
+    @Override
+    public int getGlobalPageNum() {
+        return globalPageNum;
+    }
+
+    @Override
+    public void setGlobalPageNum(int globalPageNum) {
+        this.globalPageNum = globalPageNum;
+    }
+
+    @Override
+    public int minLength() {
+        return 0;
+    }
+
+    @Override
+    public int maxLength() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void release() {
+        memory.release();
+    }
+}
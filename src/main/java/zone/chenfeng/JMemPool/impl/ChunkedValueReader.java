@@ -0,0 +1,109 @@
+package zone.chenfeng.JMemPool.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Objects;
+
+/**
+ * 流式读取一个value，直接从堆外的段中读取，不需要先复制成一个完整的byte[]<br>
+ * 由 {@link SimpleMemoryPool#openReader(long)} 创建。读取期间不能释放或修改该value。非线程安全
+ */
+public class ChunkedValueReader extends InputStream implements ReadableByteChannel {
+
+    private final SimpleMemoryPool pool;
+    private ChunkPage current;
+    /**
+     * 当前段中的读取位置
+     */
+    private int position;
+    private long remaining;
+    private boolean open = true;
+
+    ChunkedValueReader(SimpleMemoryPool pool, ChunkPage first) {
+        this.pool = pool;
+        this.current = first;
+        this.remaining = first.totalLength;
+    }
+
+    /**
+     * 剩余未读的字节数
+     */
+    public long remaining() {
+        return remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextReadable()) {
+            return -1;
+        }
+        remaining--;
+        return current.memory.getByte(position++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len && nextReadable()) {
+            int n = Math.min(len - read, current.used - position);
+            current.memory.get(position, b, off + read, n);
+            position += n;
+            remaining -= n;
+            read += n;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int read = 0;
+        while (dst.hasRemaining() && nextReadable()) {
+            int n = Math.min(dst.remaining(), current.used - position);
+            dst.put(current.memory.slice(position, n));
+            position += n;
+            remaining -= n;
+            read += n;
+        }
+        return read == 0 && remaining == 0 ? -1 : read;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 当前段读完时移动到下一个段
+     * @return 是否还有数据
+     */
+    private boolean nextReadable() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        if (remaining == 0) {
+            return false;
+        }
+        while (position == current.used) {
+            current = pool.chunk(current.next);
+            position = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
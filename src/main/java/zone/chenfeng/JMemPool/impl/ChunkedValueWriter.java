@@ -0,0 +1,123 @@
+package zone.chenfeng.JMemPool.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * 流式写入一个大value，数据按段写入堆外内存，不需要先拼成一个完整的byte[]<br>
+ * 由 {@link SimpleMemoryPool#openWriter()} 创建，创建时就分配了第一个段，{@link #pointer()} 立即可用，
+ * 已写入的数据随时可以读取。写完后调用 {@link #close()}，close不会释放value，需要通过内存池的free释放；写入失败时调用 {@link #abort()}。<br>
+ * 非线程安全，写入期间不能在其他线程中使用同一个内存池
+ */
+public class ChunkedValueWriter extends OutputStream implements WritableByteChannel {
+
+    private final SimpleMemoryPool pool;
+    private final ChunkPage first;
+    private final long pointer;
+    private ChunkPage current;
+    private boolean open = true;
+
+    /**
+     * 从value的最后一个段继续写入
+     */
+    ChunkedValueWriter(SimpleMemoryPool pool, ChunkPage first, long pointer) {
+        this.pool = pool;
+        this.first = first;
+        this.pointer = pointer;
+        this.current = pool.chunk(first.last);
+    }
+
+    /**
+     * value的指针
+     */
+    public long pointer() {
+        return pointer;
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public long length() {
+        return first.totalLength;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureWritable();
+        current.memory.putByte(current.used++, (byte) b);
+        first.totalLength++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        while (len > 0) {
+            ensureWritable();
+            int n = Math.min(len, current.capacity() - current.used);
+            current.memory.put(current.used, b, off, n);
+            current.used += n;
+            first.totalLength += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int written = 0;
+        while (src.hasRemaining()) {
+            ensureWritable();
+            int n = Math.min(src.remaining(), current.capacity() - current.used);
+            current.memory.slice(current.used, n).put(src.slice(src.position(), n));
+            src.position(src.position() + n);
+            current.used += n;
+            first.totalLength += n;
+            written += n;
+        }
+        return written;
+    }
+
+    /**
+     * 当前段写满时追加一个段，段的容量翻倍直到 {@link PoolConfig#chunkSize}
+     * @throws IOException 已关闭或内存池已满
+     */
+    private void ensureWritable() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        if (current.used < current.capacity()) {
+            return;
+        }
+        ChunkPage chunk = pool.newChunk(pool.nextChunkCapacity(current));
+        if (chunk == null) {
+            throw new IOException("OOM memory pool exhausted");
+        }
+        current.next = chunk.getGlobalPageNum();
+        first.last = chunk.getGlobalPageNum();
+        current = chunk;
+    }
+
+    /**
+     * 放弃写入，释放已写入的所有段，例如内存池已满写入失败时
+     */
+    public void abort() {
+        if (open) {
+            open = false;
+            pool.free(pointer);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
@@ -0,0 +1,76 @@
+package zone.chenfeng.JMemPool.impl;
+
+/**
+ * 大页压缩的统计信息快照
+ */
+public class CompressionStats {
+
+    private final long compressedValues;
+    private final long incompressibleValues;
+    private final long originalBytes;
+    private final long compressedBytes;
+    private final long compressNanos;
+    private final long decompressNanos;
+
+    CompressionStats(long compressedValues, long incompressibleValues, long originalBytes, long compressedBytes,
+                     long compressNanos, long decompressNanos) {
+        this.compressedValues = compressedValues;
+        this.incompressibleValues = incompressibleValues;
+        this.originalBytes = originalBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressNanos = compressNanos;
+        this.decompressNanos = decompressNanos;
+    }
+
+    /**
+     * 压缩后存储的value个数（累计）
+     */
+    public long getCompressedValues() {
+        return compressedValues;
+    }
+
+    /**
+     * 尝试压缩但节省的空间不够、按原样存储的value个数（累计）
+     */
+    public long getIncompressibleValues() {
+        return incompressibleValues;
+    }
+
+    /**
+     * 压缩存储的value压缩前的总字节数（累计）
+     */
+    public long getOriginalBytes() {
+        return originalBytes;
+    }
+
+    /**
+     * 压缩存储的value压缩后的总字节数（累计）
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * 压缩率，即压缩前字节数/压缩后字节数，没有压缩过时为1
+     */
+    public double getRatio() {
+        return compressedBytes == 0 ? 1 : (double) originalBytes / compressedBytes;
+    }
+
+    /**
+     * 压缩消耗的CPU时间，包括放弃压缩的value
+     */
+    public long getCompressNanos() {
+        return compressNanos;
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("compressed=%d, incompressible=%d, ratio=%.2f, compress=%dms, decompress=%dms",
+                compressedValues, incompressibleValues, getRatio(), compressNanos / 1_000_000, decompressNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,171 @@
+package zone.chenfeng.JMemPool.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 基于direct {@link ByteBuffer} 的页内存<br>
+ * 只使用ByteBuffer的绝对偏移量方法和 {@link VarHandle}，不读写position/limit，多个线程可以同时读。<br>
+ * {@link #release()} 通过 {@code sun.misc.Unsafe#invokeCleaner} 立即释放堆外内存，不需要等待GC；
+ * 运行环境不支持时退化为等待GC回收
+ */
+public class DirectPageMemory implements PageMemory {
+
+    private static final VarHandle LONG_HANDLE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+    private ByteBuffer buffer;
+    /**
+     * 实际分配的buffer，对齐时buffer是它的slice，释放时需要释放它
+     */
+    private ByteBuffer allocated;
+    private final int capacity;
+
+    public DirectPageMemory(int capacity) {
+        this(capacity, 1);
+    }
+
+    /**
+     * @param alignment 基地址的对齐字节数，必须是2的幂，大于8时多分配 alignment-1 字节用于对齐
+     */
+    public DirectPageMemory(int capacity, int alignment) {
+        if (alignment <= 0 || Integer.bitCount(alignment) != 1) {
+            throw new IllegalArgumentException("Alignment must be a power of 2");
+        }
+        this.capacity = capacity;
+        if (alignment <= 8) {
+            // allocateDirect的基地址至少按8字节对齐
+            this.allocated = ByteBuffer.allocateDirect(capacity);
+            this.buffer = allocated.order(ByteOrder.nativeOrder());
+        } else {
+            this.allocated = ByteBuffer.allocateDirect(capacity + alignment - 1);
+            int misalignment = allocated.alignmentOffset(0, alignment);
+            int skip = misalignment == 0 ? 0 : alignment - misalignment;
+            this.buffer = allocated.slice(skip, capacity).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private static MethodHandle findInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(unsafe);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public byte getByte(int offset) {
+        return buffer.get(offset);
+    }
+
+    @Override
+    public void putByte(int offset, byte value) {
+        buffer.put(offset, value);
+    }
+
+    @Override
+    public short getShort(int offset) {
+        return buffer.getShort(offset);
+    }
+
+    @Override
+    public void putShort(int offset, short value) {
+        buffer.putShort(offset, value);
+    }
+
+    @Override
+    public int getInt(int offset) {
+        return buffer.getInt(offset);
+    }
+
+    @Override
+    public void putInt(int offset, int value) {
+        buffer.putInt(offset, value);
+    }
+
+    @Override
+    public long getLong(int offset) {
+        return buffer.getLong(offset);
+    }
+
+    @Override
+    public void putLong(int offset, long value) {
+        buffer.putLong(offset, value);
+    }
+
+    @Override
+    public long getLongVolatile(int offset) {
+        return (long) LONG_HANDLE.getVolatile(buffer, offset);
+    }
+
+    @Override
+    public void putLongVolatile(int offset, long value) {
+        LONG_HANDLE.setVolatile(buffer, offset, value);
+    }
+
+    @Override
+    public void get(int offset, byte[] dst, int dstOffset, int length) {
+        buffer.get(offset, dst, dstOffset, length);
+    }
+
+    @Override
+    public void put(int offset, byte[] src, int srcOffset, int length) {
+        buffer.put(offset, src, srcOffset, length);
+    }
+
+    @Override
+    public ByteBuffer slice(int offset, int length) {
+        return buffer.slice(offset, length).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public void clear(int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            buffer.putLong(i, 0L);
+        }
+        for (; i < end; i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    @Override
+    public int alignmentOffset(int offset, int unitSize) {
+        return buffer.alignmentOffset(offset, unitSize);
+    }
+
+    @Override
+    public void release() {
+        ByteBuffer b = allocated;
+        if (b == null) {
+            return;
+        }
+        // 先置空，释放后的访问抛出NullPointerException，而不是访问已释放的内存
+        buffer = null;
+        allocated = null;
+        if (INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invokeExact(b);
+            } catch (Throwable ignored) {
+                // 释放失败时等待GC回收
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package zone.chenfeng.JMemPool.impl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * 基于epoch的延迟释放（EBR）<br>
+ * 读线程在 {@link #enter()} 和 {@link #exit()} 之间可以安全地读取从共享结构中取到的指针：
+ * 写线程把指针从共享结构中摘下后调用 {@link #retire(long)}，指针先放入当前线程的待释放列表（limbo），
+ * 等所有正在读取的线程都进入了更新的epoch、不可能再持有这个指针时，才交给释放回调真正释放。
+ * 因此读取不需要加锁，也不需要引用计数
+ * <p>
+ * 全局epoch单调递增。每个线程有一个 {@link Participant}，记录它进入读取时看到的全局epoch，不在读取时为 {@link #QUIESCENT}。
+ * 所有正在读取的线程都看到了当前的全局epoch e时，全局epoch才能推进到e+1，
+ * 因此在epoch e中摘下的指针，在全局epoch达到e+2之后不会再被任何读线程持有。
+ * 每个线程的待释放列表按epoch分为3个桶，轮流使用，桶里的指针一起释放
+ * </p>
+ * <p>
+ * 读线程只写自己的 {@link Participant}，进入和退出各一次写入（进入时加一次内存屏障），读线程之间没有竞争。
+ * 推进epoch和释放在写线程调用 {@link #retire(long)} 攒够 {@link #getCollectThreshold()} 个指针时进行，
+ * 也可以调用 {@link #collect()} 主动进行。线程退出后它的 {@link Participant} 和其中的待释放指针由之后注册的线程接管
+ * </p>
+ */
+public class EpochReclaimer {
+
+    /**
+     * 不在读取中的线程的epoch
+     */
+    static final long QUIESCENT = -1;
+    /**
+     * 默认每攒多少个待释放的指针尝试推进epoch并释放一次
+     */
+    static final int DEFAULT_COLLECT_THRESHOLD = 64;
+    /**
+     * 待释放列表的桶数，指针在epoch e中摘下，全局epoch达到e+2后释放，同时最多有3个epoch的指针未释放
+     */
+    private static final int BUCKETS = 3;
+
+    private static final VarHandle GLOBAL_EPOCH;
+    private static final VarHandle LOCAL_EPOCH;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            GLOBAL_EPOCH = lookup.findVarHandle(EpochReclaimer.class, "globalEpoch", long.class);
+            LOCAL_EPOCH = lookup.findVarHandle(Participant.class, "epoch", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 一个线程的读取状态和待释放列表，只有所属线程修改，其他线程只读取 {@link #epoch}
+     */
+    static final class Participant {
+        /**
+         * 进入读取时看到的全局epoch，不在读取中为 {@link #QUIESCENT}
+         */
+        @SuppressWarnings("unused")
+        volatile long epoch = QUIESCENT;
+        /**
+         * 所属线程，线程退出后由新注册的线程接管
+         */
+        volatile Thread owner;
+        /**
+         * enter的嵌套层数
+         */
+        int nesting;
+        final long[][] limbo = new long[BUCKETS][16];
+        final int[] limboSize = new int[BUCKETS];
+        /**
+         * 每个桶中的指针是在哪个epoch摘下的
+         */
+        final long[] limboEpoch = new long[BUCKETS];
+        /**
+         * 未释放的指针个数
+         */
+        int pending;
+
+        Participant(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
+    private final LongConsumer release;
+    private final int collectThreshold;
+    @SuppressWarnings("unused")
+    private volatile long globalEpoch;
+    /**
+     * 所有注册过的线程，只追加，写时复制
+     */
+    private volatile Participant[] participants = new Participant[0];
+    private final ThreadLocal<Participant> local = ThreadLocal.withInitial(this::register);
+
+    /**
+     * @param release 释放回调，真正释放指针，例如 {@link zone.chenfeng.JMemPool.IMemoryPool#free(long)}，可能在任意调用
+     *                {@link #retire(long)}、{@link #exit()} 或 {@link #collect()} 的线程上执行
+     */
+    public EpochReclaimer(LongConsumer release) {
+        this(release, DEFAULT_COLLECT_THRESHOLD);
+    }
+
+    /**
+     * @param collectThreshold 当前线程每攒多少个待释放的指针尝试推进epoch并释放一次
+     */
+    public EpochReclaimer(LongConsumer release, int collectThreshold) {
+        if (collectThreshold <= 0) {
+            throw new IllegalArgumentException("Collect threshold must be positive");
+        }
+        this.release = release;
+        this.collectThreshold = collectThreshold;
+    }
+
+    /**
+     * 进入读取，之后从共享结构中取到的指针在 {@link #exit()} 之前不会被释放，可以嵌套
+     */
+    public void enter() {
+        Participant participant = local.get();
+        if (participant.nesting++ == 0) {
+            LOCAL_EPOCH.setOpaque(participant, (long) GLOBAL_EPOCH.getAcquire(this));
+            // 之后对共享结构的读取不能重排到发布epoch之前，否则推进epoch的线程可能看不到这次读取
+            VarHandle.fullFence();
+        }
+    }
+
+    /**
+     * 退出读取，之后不能再使用读取期间取到的指针
+     * @throws IllegalStateException 没有对应的 {@link #enter()}
+     */
+    public void exit() {
+        Participant participant = local.get();
+        if (participant.nesting == 0) {
+            throw new IllegalStateException("Exit without enter");
+        }
+        if (--participant.nesting == 0) {
+            LOCAL_EPOCH.setRelease(participant, QUIESCENT);
+            if (participant.pending >= collectThreshold) {
+                collect(participant);
+            }
+        }
+    }
+
+    /**
+     * 当前线程是否在读取中
+     */
+    public boolean inEpoch() {
+        return local.get().nesting > 0;
+    }
+
+    /**
+     * 延迟释放指针，调用前必须已经把指针从共享结构中摘下，之后新进入读取的线程不会再取到它<br>
+     * 同一个指针只能retire一次
+     */
+    public void retire(long pointer) {
+        Participant participant = local.get();
+        long epoch = (long) GLOBAL_EPOCH.getVolatile(this);
+        int bucket = (int) (epoch % BUCKETS);
+        if (participant.limboEpoch[bucket] != epoch) {
+            // 桶里是epoch-3或更早摘下的指针，全局epoch已经推进了至少3次，可以释放
+            releaseBucket(participant, bucket);
+            participant.limboEpoch[bucket] = epoch;
+        }
+        long[] limbo = participant.limbo[bucket];
+        int size = participant.limboSize[bucket];
+        if (size == limbo.length) {
+            limbo = participant.limbo[bucket] = Arrays.copyOf(limbo, size << 1);
+        }
+        limbo[size] = pointer;
+        participant.limboSize[bucket] = size + 1;
+        if (++participant.pending >= collectThreshold && participant.nesting == 0) {
+            collect(participant);
+        }
+    }
+
+    /**
+     * 尝试推进全局epoch，并释放当前线程已经安全的指针
+     * @return 本次释放的指针个数
+     */
+    public int collect() {
+        return collect(local.get());
+    }
+
+    /**
+     * 所有正在读取的线程都看到了当前的全局epoch时，把全局epoch加一
+     * @return 是否推进了全局epoch
+     */
+    public boolean tryAdvance() {
+        // 与enter的屏障配对：在此之前摘下的指针，之后进入读取的线程一定取不到
+        VarHandle.fullFence();
+        long epoch = (long) GLOBAL_EPOCH.getVolatile(this);
+        for (Participant participant : participants) {
+            long local = (long) LOCAL_EPOCH.getVolatile(participant);
+            if (local != QUIESCENT && local != epoch && participant.owner.isAlive()) {
+                return false;
+            }
+        }
+        return GLOBAL_EPOCH.compareAndSet(this, epoch, epoch + 1);
+    }
+
+    /**
+     * 立即释放所有线程的待释放指针<br>
+     * 调用时不能有其他线程在读取或retire，用于关闭前清理
+     * @return 释放的指针个数
+     */
+    public synchronized int releaseAll() {
+        int released = 0;
+        for (Participant participant : participants) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                released += releaseBucket(participant, bucket);
+            }
+        }
+        return released;
+    }
+
+    public long epoch() {
+        return (long) GLOBAL_EPOCH.getVolatile(this);
+    }
+
+    /**
+     * 所有线程未释放的指针个数，其他线程的个数是不加同步读取的，只是近似值
+     */
+    public long pendingPointers() {
+        long pending = 0;
+        for (Participant participant : participants) {
+            pending += participant.pending;
+        }
+        return pending;
+    }
+
+    public int getCollectThreshold() {
+        return collectThreshold;
+    }
+
+    private int collect(Participant participant) {
+        tryAdvance();
+        long epoch = (long) GLOBAL_EPOCH.getVolatile(this);
+        int released = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (participant.limboEpoch[bucket] + 2 <= epoch) {
+                released += releaseBucket(participant, bucket);
+            }
+        }
+        return released;
+    }
+
+    private int releaseBucket(Participant participant, int bucket) {
+        int size = participant.limboSize[bucket];
+        long[] limbo = participant.limbo[bucket];
+        // 先清空再回调，回调抛出异常时不会重复释放
+        participant.limboSize[bucket] = 0;
+        participant.pending -= size;
+        for (int i = 0; i < size; i++) {
+            release.accept(limbo[i]);
+        }
+        return size;
+    }
+
+    /**
+     * 为当前线程分配 {@link Participant}，优先接管已退出线程的
+     */
+    private synchronized Participant register() {
+        Thread current = Thread.currentThread();
+        for (Participant participant : participants) {
+            if (!participant.owner.isAlive()) {
+                // 线程可能在读取中退出，重置读取状态，待释放的指针由当前线程继续释放
+                participant.nesting = 0;
+                LOCAL_EPOCH.setRelease(participant, QUIESCENT);
+                participant.owner = current;
+                return participant;
+            }
+        }
+        Participant participant = new Participant(current);
+        Participant[] grown = Arrays.copyOf(participants, participants.length + 1);
+        grown[grown.length - 1] = participant;
+        participants = grown;
+        return participant;
+    }
+}
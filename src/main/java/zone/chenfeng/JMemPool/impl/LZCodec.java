@@ -0,0 +1,194 @@
+package zone.chenfeng.JMemPool.impl;
+
+import java.util.Arrays;
+
+/**
+ * 纯Java实现的LZ压缩算法，格式参考LZ4的block格式，追求速度而不是压缩率<br>
+ * 压缩后的数据由若干个序列组成，每个序列为：
+ * <pre>
+ * | token (1字节) | 字面量长度扩展 | 字面量 | 匹配偏移 (2字节，小端) | 匹配长度扩展 |
+ * </pre>
+ * token的高4位为字面量长度，低4位为匹配长度-4，等于15时后面跟扩展长度，每个字节累加，直到遇到不等于255的字节。
+ * 最后一个序列只有字面量，没有匹配。<br>
+ * 哈希表在实例中复用，非线程安全
+ */
+public class LZCodec {
+
+    private static final int MIN_MATCH = 4;
+    /**
+     * 最后5个字节总是作为字面量，最后12个字节内不再开始匹配，与LZ4一致
+     */
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_LOG = 12;
+    /**
+     * 连续未匹配时加大步长，不可压缩的数据很快就能扫描完
+     */
+    private static final int SKIP_TRIGGER = 6;
+
+    private final int[] hashTable = new int[1 << HASH_LOG];
+
+    /**
+     * 压缩src，压缩后的长度超过dstLimit时放弃
+     *
+     * @param dst       从dstOffset开始至少有dstLimit字节
+     * @param dstOffset 压缩结果在dst中的起始位置
+     * @param dstLimit  压缩结果的最大长度
+     * @return 压缩后的长度，超过dstLimit时返回-1
+     */
+    public int compress(byte[] src, int srcLength, byte[] dst, int dstOffset, int dstLimit) {
+        int anchor = 0;
+        int op = dstOffset;
+        dstLimit += dstOffset;
+        if (srcLength >= MF_LIMIT + 1) {
+            Arrays.fill(hashTable, -1);
+            int mfLimit = srcLength - MF_LIMIT;
+            int matchLimit = srcLength - LAST_LITERALS;
+            int ip = 0;
+            int misses = 0;
+            while (ip < mfLimit) {
+                int sequence = readInt(src, ip);
+                int h = hash(sequence);
+                int ref = hashTable[h];
+                hashTable[h] = ip;
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip += 1 + (misses++ >>> SKIP_TRIGGER);
+                    continue;
+                }
+                misses = 0;
+                // 向前扩展匹配
+                while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+                op = writeSequence(src, anchor, ip - anchor, dst, op, dstLimit, ip - ref, matchLength);
+                if (op < 0) {
+                    return -1;
+                }
+                ip += matchLength;
+                anchor = ip;
+                if (ip < mfLimit) {
+                    hashTable[hash(readInt(src, ip - 2))] = ip - 2;
+                }
+            }
+        }
+        op = writeSequence(src, anchor, srcLength - anchor, dst, op, dstLimit, 0, 0);
+        return op < 0 ? -1 : op - dstOffset;
+    }
+
+    /**
+     * 解压
+     *
+     * @param dstLength 原始数据的长度
+     * @throws IllegalArgumentException 数据已损坏
+     */
+    public static void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstLength) {
+        int ip = srcOffset;
+        int srcEnd = srcOffset + srcLength;
+        int op = 0;
+        while (ip < srcEnd) {
+            int token = src[ip++] & 0xFF;
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (ip + literalLength > srcEnd || op + literalLength > dstLength) {
+                throw new IllegalArgumentException("Corrupted compressed data");
+            }
+            System.arraycopy(src, ip, dst, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+            if (ip == srcEnd) {
+                break;
+            }
+            int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+            ip += 2;
+            int matchLength = token & 0xF;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (offset == 0 || offset > op || op + matchLength > dstLength) {
+                throw new IllegalArgumentException("Corrupted compressed data");
+            }
+            int ref = op - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(dst, ref, dst, op, matchLength);
+                op += matchLength;
+            } else {
+                // 重叠的匹配只能逐字节复制
+                for (int i = 0; i < matchLength; i++) {
+                    dst[op++] = dst[ref++];
+                }
+            }
+        }
+        if (op != dstLength) {
+            throw new IllegalArgumentException("Corrupted compressed data");
+        }
+    }
+
+    /**
+     * 写入一个序列，matchLength为0时为最后一个只有字面量的序列
+     * @return 写入后的位置，超过dstLimit时返回-1
+     */
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, byte[] dst, int op, int dstLimit,
+                                     int offset, int matchLength) {
+        // token + 字面量 + 两个扩展长度 + 偏移量，扩展长度每255多一个字节
+        if (op + 1 + literalLength + literalLength / 255 + 1 + 2 + matchLength / 255 + 1 > dstLimit) {
+            return -1;
+        }
+        int tokenPos = op++;
+        int token;
+        if (literalLength >= 15) {
+            token = 15 << 4;
+            op = writeLength(dst, op, literalLength - 15);
+        } else {
+            token = literalLength << 4;
+        }
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        op += literalLength;
+        if (matchLength > 0) {
+            dst[op++] = (byte) offset;
+            dst[op++] = (byte) (offset >>> 8);
+            int length = matchLength - MIN_MATCH;
+            if (length >= 15) {
+                token |= 15;
+                op = writeLength(dst, op, length - 15);
+            } else {
+                token |= length;
+            }
+        }
+        dst[tokenPos] = (byte) token;
+        return op;
+    }
+
+    private static int writeLength(byte[] dst, int op, int length) {
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    private static int readInt(byte[] src, int i) {
+        return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF) << 16 | (src[i + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
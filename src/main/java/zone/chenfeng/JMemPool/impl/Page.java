@@ -1,16 +1,13 @@
 package zone.chenfeng.JMemPool.impl;
 
+/**
+ * 内存池中的页，按块分配的页见 {@link BlockPage}
+ */
 public interface Page {
     int freeSize();
 
-    int malloc(int size);
-
     void free(int pageOffset);
 
-    byte[] get(int pageOffset);
-
-    int put(int pageOffset, byte[] data);
-
     int usedBytes();
 
     int usedBlock();
@@ -32,6 +29,12 @@ public interface Page {
      */
     int maxLength();
 
+    /**
+     * 释放页的内存，释放后不能再访问该页
+     */
+    void release();
+
     int LITTLE_PAGE_TYPE = 1;
     int HUGE_PAGE_TYPE = 2;
+    int CHUNK_PAGE_TYPE = 3;
 }
@@ -0,0 +1,18 @@
+package zone.chenfeng.JMemPool.impl;
+
+/**
+ * 分配页的底层内存，小页和流式存储的段都通过它分配<br>
+ * 默认使用 {@link PageMemory#allocateDirect(int, int)}，可以替换为其他实现，例如从预先映射的大块内存中切分，
+ * 或者在分配时记录统计信息。返回的内存由内存池在关闭时调用 {@link PageMemory#release()} 释放
+ */
+@FunctionalInterface
+public interface PageAllocator {
+
+    PageAllocator DIRECT = PageMemory::allocateDirect;
+
+    /**
+     * @param capacity 字节数
+     * @param alignment 基地址的对齐字节数，2的幂
+     */
+    PageMemory allocate(int capacity, int alignment);
+}
@@ -0,0 +1,97 @@
+package zone.chenfeng.JMemPool.impl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 页的底层内存<br>
+ * 所有读写都使用页内的绝对偏移量，不修改任何共享状态（如 {@link ByteBuffer} 的position），
+ * 因此多个线程可以同时读同一页。写与读之间的可见性由调用方保证。<br>
+ * {@link #release()} 立即释放内存，释放后不能再访问
+ */
+public interface PageMemory {
+
+    /**
+     * 预热时的步长，即操作系统的页大小
+     */
+    int OS_PAGE_SIZE = 4096;
+
+    /**
+     * 内存大小（字节）
+     */
+    int capacity();
+
+    byte getByte(int offset);
+
+    void putByte(int offset, byte value);
+
+    short getShort(int offset);
+
+    void putShort(int offset, short value);
+
+    int getInt(int offset);
+
+    void putInt(int offset, int value);
+
+    long getLong(int offset);
+
+    void putLong(int offset, long value);
+
+    /**
+     * 以volatile语义读取long，offset必须按8字节对齐
+     */
+    long getLongVolatile(int offset);
+
+    /**
+     * 以volatile语义写入long，offset必须按8字节对齐
+     */
+    void putLongVolatile(int offset, long value);
+
+    void get(int offset, byte[] dst, int dstOffset, int length);
+
+    void put(int offset, byte[] src, int srcOffset, int length);
+
+    /**
+     * [offset, offset + length) 的视图，与页内存共享数据，不复制
+     */
+    ByteBuffer slice(int offset, int length);
+
+    /**
+     * 将 [offset, offset + length) 置为0
+     */
+    void clear(int offset, int length);
+
+    /**
+     * offset处的内存地址对unitSize取模的结果，0表示按unitSize对齐
+     */
+    int alignmentOffset(int offset, int unitSize);
+
+    /**
+     * 每隔 {@link #OS_PAGE_SIZE} 字节写一个0，让操作系统提前分配物理页，之后访问不再发生缺页<br>
+     * 会覆盖数据，只能在内存还没有使用时调用。{@link #allocateDirect} 分配时已经清零，预热主要用于其他的分配方式
+     */
+    default void preTouch() {
+        for (int offset = 0; offset < capacity(); offset += OS_PAGE_SIZE) {
+            putByte(offset, (byte) 0);
+        }
+    }
+
+    /**
+     * 释放内存，释放后不能再访问，重复调用无效果
+     */
+    void release();
+
+    /**
+     * 分配堆外内存
+     */
+    static PageMemory allocateDirect(int capacity) {
+        return new DirectPageMemory(capacity, 1);
+    }
+
+    /**
+     * 分配基地址按alignment字节对齐的堆外内存
+     * @param alignment 对齐字节数，必须是2的幂
+     */
+    static PageMemory allocateDirect(int capacity, int alignment) {
+        return new DirectPageMemory(capacity, alignment);
+    }
+}
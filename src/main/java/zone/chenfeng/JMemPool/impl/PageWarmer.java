@@ -0,0 +1,100 @@
+package zone.chenfeng.JMemPool.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在后台线程中预先分配并预热页内存<br>
+ * 后台线程只分配 {@link PageMemory}（分配、清零和缺页都发生在这里），放入每个级别的队列；
+ * 内存池需要新页时从队列中取出，在内存池所在的线程中创建页并登记，内存池的其他状态仍然只有一个线程访问。
+ * 队列中还没有被取走的内存不计入内存池的预留字节数
+ */
+class PageWarmer implements Runnable {
+    private final PoolConfig config;
+    /**
+     * 下标为级别，{@link PoolConfig#HUGE_LEVEL} 为流式存储的段
+     */
+    private final List<Queue<PageMemory>> ready = new ArrayList<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private boolean closed;
+
+    PageWarmer(PoolConfig config) {
+        this.config = config;
+        for (int level = 0; level <= PoolConfig.HUGE_LEVEL; level++) {
+            ready.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    void start() {
+        Thread thread = new Thread(this, "JMemPool-page-warmer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int level = 2; level <= PoolConfig.HUGE_LEVEL; level++) {
+                for (int i = 0; i < config.preallocatedPages[level]; i++) {
+                    PageMemory memory = allocate(config, level);
+                    if (config.preTouch) {
+                        memory.preTouch();
+                    }
+                    synchronized (this) {
+                        if (closed) {
+                            memory.release();
+                            return;
+                        }
+                        ready.get(level).offer(memory);
+                    }
+                }
+            }
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * 分配level级别的页内存，小页的基地址至少对齐到块大小
+     */
+    static PageMemory allocate(PoolConfig config, int level) {
+        if (level == PoolConfig.HUGE_LEVEL) {
+            return config.pageAllocator.allocate(config.chunkSize, config.pageAlignment);
+        }
+        return config.pageAllocator.allocate(config.levelSlotsPerPage[level] << level,
+                Math.max(config.pageAlignment, 1 << level));
+    }
+
+    /**
+     * 取出level级别已经预热的内存
+     * @return 没有时返回null
+     */
+    PageMemory poll(int level) {
+        return ready.get(level).poll();
+    }
+
+    /**
+     * 等待后台线程分配完所有的页
+     * @return 超时返回false
+     */
+    boolean await(long timeoutMillis) throws InterruptedException {
+        return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止分配并释放还没有被取走的内存
+     */
+    synchronized void close() {
+        closed = true;
+        for (Queue<PageMemory> queue : ready) {
+            PageMemory memory;
+            while ((memory = queue.poll()) != null) {
+                memory.release();
+            }
+        }
+    }
+}
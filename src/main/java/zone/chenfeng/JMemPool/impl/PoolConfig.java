@@ -0,0 +1,343 @@
+package zone.chenfeng.JMemPool.impl;
+
+import java.util.Arrays;
+
+/**
+ * 内存池配置<br>
+ * 限制内存池预留的总字节数以及每个级别预留的字节数，并指定达到上限后的行为。<br>
+ * 预留字节数的计算方式：
+ * <ul>
+ *     <li>小页：页创建后即预留整页的大小，即 2^level * 每页的块数（默认2048）</li>
+ *     <li>大页：按value的实际大小预留，malloc时按申请的大小检查是否超出上限</li>
+ * </ul>
+ * 所有的setter都返回this，可以链式调用：
+ * <pre>
+ * new SimpleMemoryPool(new PoolConfig()
+ *         .maxReservedBytes(1L &lt;&lt; 30)
+ *         .levelMaxReservedBytes(8, 64L &lt;&lt; 20)
+ *         .levelPageBytes(8, 256 * 1024)
+ *         .exhaustionPolicy(PoolConfig.ExhaustionPolicy.FAIL_FAST));
+ * </pre>
+ */
+public class PoolConfig {
+
+    /**
+     * 达到上限后的行为
+     */
+    public enum ExhaustionPolicy {
+        /**
+         * 立即失败，malloc/put返回 {@link zone.chenfeng.JMemPool.IMemoryPool#NULL_POINTER}
+         */
+        FAIL_FAST,
+        /**
+         * 阻塞等待其他线程释放内存，超时后失败，只能用于 {@link SynchronizedMemoryPool}
+         */
+        BLOCK,
+        /**
+         * 调用 {@link ReclaimHook} 回收内存后重试，回收不到内存时失败
+         */
+        RECLAIM
+    }
+
+    /**
+     * 内存回收回调，例如淘汰缓存中的key<br>
+     * 在malloc内部调用，回调中可以调用同一个内存池的free
+     */
+    @FunctionalInterface
+    public interface ReclaimHook {
+        /**
+         * @param bytes 本次分配还缺少的字节数，仅供参考
+         * @return 是否释放了内存，返回false时本次分配失败
+         */
+        boolean reclaim(long bytes);
+    }
+
+    /**
+     * 大页在级别数组中的下标
+     */
+    public static final int HUGE_LEVEL = 9;
+    /**
+     * 小页默认的块数
+     */
+    public static final int DEFAULT_SLOTS_PER_PAGE = 2048;
+    /**
+     * 小页最多的块数，受指针中偏移量的位数限制：超过4096块时该级别的指针使用宽格式
+     */
+    public static final int MAX_SLOTS_PER_PAGE = 1 << 18;
+
+    long maxReservedBytes = Long.MAX_VALUE;
+    /**
+     * 下标为级别，2~8为小页，{@link #HUGE_LEVEL} 为大页
+     */
+    final long[] levelMaxReservedBytes = new long[HUGE_LEVEL + 1];
+    ExhaustionPolicy exhaustionPolicy = ExhaustionPolicy.FAIL_FAST;
+    long blockTimeoutMillis = 1000;
+    ReclaimHook reclaimHook;
+    boolean widePointers;
+    /**
+     * 小页基地址的对齐字节数，默认按缓存行对齐
+     */
+    int pageAlignment = 64;
+    /**
+     * 大页value的压缩阈值，0表示不压缩
+     */
+    int compressionThreshold;
+    /**
+     * 流式存储的段大小
+     */
+    int chunkSize = 64 * 1024;
+    /**
+     * 每个级别小页的块数，下标为级别
+     */
+    final int[] levelSlotsPerPage = new int[HUGE_LEVEL];
+    /**
+     * 创建内存池时预先分配的页数，下标为级别，{@link #HUGE_LEVEL} 为流式存储的段
+     */
+    final int[] preallocatedPages = new int[HUGE_LEVEL + 1];
+    PageAllocator pageAllocator = PageAllocator.DIRECT;
+    boolean preTouch;
+    boolean preallocateInBackground;
+
+    public PoolConfig() {
+        Arrays.fill(levelMaxReservedBytes, Long.MAX_VALUE);
+        Arrays.fill(levelSlotsPerPage, DEFAULT_SLOTS_PER_PAGE);
+    }
+
+    /**
+     * 内存池预留的总字节数上限
+     */
+    public PoolConfig maxReservedBytes(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Max reserved bytes must be positive");
+        }
+        this.maxReservedBytes = bytes;
+        return this;
+    }
+
+    /**
+     * 某个级别预留的字节数上限
+     * @param level 2~8为小页的级别，即块大小为2^level，{@link #HUGE_LEVEL} 为大页
+     */
+    public PoolConfig levelMaxReservedBytes(int level, long bytes) {
+        if (level < 2 || level > HUGE_LEVEL) {
+            throw new IllegalArgumentException("Level must be between 2 and " + HUGE_LEVEL);
+        }
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Max reserved bytes must be positive");
+        }
+        levelMaxReservedBytes[level] = bytes;
+        return this;
+    }
+
+    public PoolConfig exhaustionPolicy(ExhaustionPolicy policy) {
+        this.exhaustionPolicy = policy;
+        return this;
+    }
+
+    /**
+     * {@link ExhaustionPolicy#BLOCK} 时最多等待的时间
+     */
+    public PoolConfig blockTimeoutMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+        this.blockTimeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * {@link ExhaustionPolicy#RECLAIM} 时调用的回调，也可以在内存池创建后通过
+     * {@link SimpleMemoryPool#setReclaimHook(ReclaimHook)} 设置
+     */
+    public PoolConfig reclaimHook(ReclaimHook hook) {
+        this.reclaimHook = hook;
+        return this;
+    }
+
+    /**
+     * 总是使用64位的宽指针格式<br>
+     * 默认在页号超出紧凑格式的24位时才自动使用宽格式，已有的紧凑格式指针仍然可以读取
+     */
+    public PoolConfig widePointers(boolean widePointers) {
+        this.widePointers = widePointers;
+        return this;
+    }
+
+    /**
+     * 小页基地址的对齐字节数，默认64即缓存行大小，可以设置为4096按操作系统页对齐<br>
+     * 无论如何设置，小页的基地址至少按块大小对齐，每个块都按块大小自然对齐
+     * @param alignment 2的幂
+     */
+    public PoolConfig pageAlignment(int alignment) {
+        if (alignment <= 0 || Integer.bitCount(alignment) != 1) {
+            throw new IllegalArgumentException("Alignment must be a power of 2");
+        }
+        this.pageAlignment = alignment;
+        return this;
+    }
+
+    /**
+     * 压缩长度不小于threshold且超过256字节的大页value，get时透明解压<br>
+     * 开启后每个大页内存块都有5字节的块头：压缩标记 (1字节) + 原始长度 (4字节)，
+     * 压缩后节省不到1/8时按原样存储。开启前后的内存块格式不同，只能在创建内存池时设置
+     * @param threshold 压缩阈值（字节），0表示不压缩
+     */
+    public PoolConfig compressionThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Compression threshold must not be negative");
+        }
+        this.compressionThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * 流式写入（{@link SimpleMemoryPool#openWriter()}）时每个段的字节数，默认64KB<br>
+     * 段越大，段的个数和链表遍历越少，但最后一个段平均浪费半个段
+     */
+    public PoolConfig chunkSize(int bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = bytes;
+        return this;
+    }
+
+    /**
+     * 某个级别每个小页的块数，默认2048，即页大小为 2^level * 2048<br>
+     * 级别低的块数多可以减少页的个数，级别高的块数少可以减少每次新建页预留的内存
+     * @param level 2~8
+     * @param slots 1~{@link #MAX_SLOTS_PER_PAGE}
+     */
+    public PoolConfig levelSlotsPerPage(int level, int slots) {
+        checkLittleLevel(level);
+        if (slots <= 0 || slots > MAX_SLOTS_PER_PAGE) {
+            throw new IllegalArgumentException("Slots per page must be between 1 and " + MAX_SLOTS_PER_PAGE);
+        }
+        levelSlotsPerPage[level] = slots;
+        return this;
+    }
+
+    /**
+     * 按页的字节数设置某个级别每个小页的块数，向下取整到块大小的整数倍
+     * @param level 2~8
+     */
+    public PoolConfig levelPageBytes(int level, long bytes) {
+        checkLittleLevel(level);
+        long slots = bytes >> level;
+        if (slots <= 0 || slots > MAX_SLOTS_PER_PAGE) {
+            throw new IllegalArgumentException("Page bytes must be between " + (1 << level) + " and "
+                    + ((long) MAX_SLOTS_PER_PAGE << level) + " for level " + level);
+        }
+        levelSlotsPerPage[level] = (int) slots;
+        return this;
+    }
+
+    /**
+     * 创建内存池时预先分配的页数，预分配的页同样计入预留字节数，超出上限时创建内存池失败
+     * @param level 2~8为小页，{@link #HUGE_LEVEL} 为流式存储的段
+     */
+    public PoolConfig preallocatePages(int level, int pages) {
+        if (level < 2 || level > HUGE_LEVEL) {
+            throw new IllegalArgumentException("Level must be between 2 and " + HUGE_LEVEL);
+        }
+        if (pages < 0) {
+            throw new IllegalArgumentException("Preallocated pages must not be negative");
+        }
+        preallocatedPages[level] = pages;
+        return this;
+    }
+
+    /**
+     * 预分配的页是否预热（见 {@link PageMemory#preTouch()}），让缺页发生在启动时而不是请求中
+     */
+    public PoolConfig preTouch(boolean preTouch) {
+        this.preTouch = preTouch;
+        return this;
+    }
+
+    /**
+     * 在后台线程中预分配，创建内存池时不等待<br>
+     * 预分配完成之前需要新页时，已经准备好的页内存直接使用，没有准备好时在malloc中分配。
+     * 后台分配的页在被使用时才计入预留字节数，可以用 {@link SimpleMemoryPool#awaitPreallocation(long)} 等待完成
+     */
+    public PoolConfig preallocateInBackground(boolean background) {
+        this.preallocateInBackground = background;
+        return this;
+    }
+
+    /**
+     * 页内存的分配方式，默认 {@link PageAllocator#DIRECT}
+     */
+    public PoolConfig pageAllocator(PageAllocator allocator) {
+        if (allocator == null) {
+            throw new IllegalArgumentException("Page allocator must not be null");
+        }
+        this.pageAllocator = allocator;
+        return this;
+    }
+
+    private static void checkLittleLevel(int level) {
+        if (level < 2 || level >= HUGE_LEVEL) {
+            throw new IllegalArgumentException("Level must be between 2 and " + (HUGE_LEVEL - 1));
+        }
+    }
+
+    public int getLevelSlotsPerPage(int level) {
+        return levelSlotsPerPage[level];
+    }
+
+    /**
+     * 某个级别每个小页的字节数
+     */
+    public long getLevelPageBytes(int level) {
+        return (long) levelSlotsPerPage[level] << level;
+    }
+
+    public int getPreallocatedPages(int level) {
+        return preallocatedPages[level];
+    }
+
+    public boolean isPreTouch() {
+        return preTouch;
+    }
+
+    public boolean isPreallocateInBackground() {
+        return preallocateInBackground;
+    }
+
+    public PageAllocator getPageAllocator() {
+        return pageAllocator;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public int getPageAlignment() {
+        return pageAlignment;
+    }
+
+    public boolean isWidePointers() {
+        return widePointers;
+    }
+
+    public long getMaxReservedBytes() {
+        return maxReservedBytes;
+    }
+
+    public long getLevelMaxReservedBytes(int level) {
+        return levelMaxReservedBytes[level];
+    }
+
+    public ExhaustionPolicy getExhaustionPolicy() {
+        return exhaustionPolicy;
+    }
+
+    public long getBlockTimeoutMillis() {
+        return blockTimeoutMillis;
+    }
+}
@@ -0,0 +1,94 @@
+package zone.chenfeng.JMemPool.impl;
+
+/**
+ * 内存池的统计信息快照<br>
+ * 按级别的数组下标为级别，与 {@link SimpleMemoryPool#levelReservedBytes()} 一致：2~8为小页，
+ * {@link PoolConfig#HUGE_LEVEL} 为大页（包括流式存储的段），0和1不使用
+ */
+public class PoolStats {
+
+    private final long usedBytes;
+    private final long reservedBytes;
+    private final long[] levelUsedBytes;
+    private final long[] levelReservedBytes;
+    private final int[] levelPageCounts;
+    private final long allocations;
+    private final long frees;
+    private final long failedAllocations;
+
+    PoolStats(long usedBytes, long reservedBytes, long[] levelUsedBytes, long[] levelReservedBytes,
+              int[] levelPageCounts, long allocations, long frees, long failedAllocations) {
+        this.usedBytes = usedBytes;
+        this.reservedBytes = reservedBytes;
+        this.levelUsedBytes = levelUsedBytes;
+        this.levelReservedBytes = levelReservedBytes;
+        this.levelPageCounts = levelPageCounts;
+        this.allocations = allocations;
+        this.frees = frees;
+        this.failedAllocations = failedAllocations;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * 每个级别已使用的字节数，小页按块大小计算
+     */
+    public long[] getLevelUsedBytes() {
+        return levelUsedBytes.clone();
+    }
+
+    /**
+     * 每个级别预留的字节数，小页按整页计算
+     */
+    public long[] getLevelReservedBytes() {
+        return levelReservedBytes.clone();
+    }
+
+    /**
+     * 每个级别的页数
+     */
+    public int[] getLevelPageCounts() {
+        return levelPageCounts.clone();
+    }
+
+    public int getPageCount() {
+        int count = 0;
+        for (int pages : levelPageCounts) {
+            count += pages;
+        }
+        return count;
+    }
+
+    /**
+     * 成功分配的内存块个数（累计），流式存储的value按一个计算
+     */
+    public long getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * 释放的内存块个数（累计）
+     */
+    public long getFrees() {
+        return frees;
+    }
+
+    /**
+     * 因达到容量上限而失败的分配次数（累计）
+     */
+    public long getFailedAllocations() {
+        return failedAllocations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("used=%d, reserved=%d, pages=%d, allocations=%d, frees=%d, failed=%d",
+                usedBytes, reservedBytes, getPageCount(), allocations, frees, failedAllocations);
+    }
+}
@@ -0,0 +1,57 @@
+package zone.chenfeng.JMemPool.impl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * 其他线程释放的指针，多生产者单消费者的无锁栈<br>
+ * 任意线程通过 {@link #push(long)} 加入（一次CAS），内存池所在的线程通过 {@link #takeAll()} 一次取走全部（一次原子交换），
+ * 然后逐个释放。释放的顺序无关紧要，因此使用栈而不是队列，生产者之间只竞争栈顶一个字段
+ */
+final class RemoteFreeList {
+    private static final VarHandle HEAD;
+
+    static {
+        try {
+            HEAD = MethodHandles.lookup().findVarHandle(RemoteFreeList.class, "head", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static final class Node {
+        final long pointer;
+        Node next;
+
+        Node(long pointer) {
+            this.pointer = pointer;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private volatile Node head;
+
+    void push(long pointer) {
+        Node node = new Node(pointer);
+        Node current;
+        do {
+            current = head;
+            node.next = current;
+        } while (!HEAD.weakCompareAndSet(this, current, node));
+    }
+
+    /**
+     * 是否可能有待释放的指针，内存池每次分配前检查，只有一次volatile读
+     */
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    /**
+     * 取走所有待释放的指针
+     * @return 链表头，没有时返回null
+     */
+    Node takeAll() {
+        return (Node) HEAD.getAndSet(this, (Node) null);
+    }
+}
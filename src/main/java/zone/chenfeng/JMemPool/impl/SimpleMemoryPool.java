@@ -1,8 +1,19 @@
 package zone.chenfeng.JMemPool.impl;
 
 import zone.chenfeng.JMemPool.IMemoryPool;
-
+import zone.chenfeng.JMemPool.impl.PoolConfig.ReclaimHook;
+import zone.chenfeng.JMemPool.jfr.HugeAllocationEvent;
+import zone.chenfeng.JMemPool.jfr.PageCreatedEvent;
+import zone.chenfeng.JMemPool.jfr.PageRetiredEvent;
+import zone.chenfeng.JMemPool.jfr.RelocationEvent;
+import zone.chenfeng.JMemPool.profiler.AllocationProfiler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -25,41 +36,56 @@ public class SimpleMemoryPool implements IMemoryPool{
 
     @Override
     public void close() throws Exception {
+        if (warmer != null) {
+            warmer.close();
+        }
+        // 立即释放所有页的堆外内存，关闭后不能再访问内存池
+        pages.forEach(SimpleMemoryPool::pageRetired);
+        pages.forEach(Page::release);
         pages.clear();
+        pageTable = new Page[0];
         levelPages.forEach(List::clear);
+        availablePages.forEach(Deque::clear);
         hugeDataPages.forEach(e -> e.dataList.clear());
+        freeChunks.clear();
         levelPages=null;
         hugeDataPages.clear();
     }
 
-    static class LittlePage implements Page {
+    static class LittlePage implements BlockPage {
         /**
-         * 内存页
+         * 内存页，使用绝对偏移量读写，多个线程可以同时读
          */
-        private ByteBuffer buffer;
+        private PageMemory memory;
         /**
          * 页级别
          * 该页存储的最大内存块大小,即2^level
          */
         private short level;
+        /**
+         * 该页的块数
+         */
+        private final int slots;
         /**
          * 该页剩余空间
          */
-        private short free;
+        private int free;
         /**
          * 该页最后分配的最大的内存块索引
          */
-        private short maxAllocIndex;
+        private int maxAllocIndex;
         /**
          * 业内的内存块是否被占用
          * 0表示空闲，1表示占用，位图
          */
         private long[] freeArray;
         private int globalPageNum;
+        /**
+         * 是否在内存池的可用页队列中
+         */
+        private boolean available;
 
-        private static final int ARRAY_SIZE = 2048;
         private static final int BITS_PER_LONG = 64;
-        private static final int BITMAP_SIZE = ARRAY_SIZE / BITS_PER_LONG;// 向上取整
 
 
         @Override
@@ -67,11 +93,17 @@ public class SimpleMemoryPool implements IMemoryPool{
             return free;
         }
 
-        private LittlePage(short level) {
-            buffer = ByteBuffer.allocateDirect((1<<level)*ARRAY_SIZE);
+        /**
+         * @param slots 块数
+         * @param memory 页内存，基地址至少对齐到块大小，使每个块都按块大小自然对齐
+         */
+        private LittlePage(short level, int slots, PageMemory memory) {
+            this.memory = memory;
             this.level = level;
-            free = ARRAY_SIZE;
-            freeArray = new long[BITMAP_SIZE];
+            this.slots = slots;
+            free = slots;
+            // 向上取整
+            freeArray = new long[(slots + BITS_PER_LONG - 1) / BITS_PER_LONG];
             maxAllocIndex = 0;
         }
 
@@ -81,21 +113,20 @@ public class SimpleMemoryPool implements IMemoryPool{
                 // 该页已经没有空间了
                 return -1;
             }
-            short allocIndex;
-            if(maxAllocIndex < 2047) {
+            int allocIndex;
+            if(maxAllocIndex < slots - 1) {
                 // 该页还有空间，且不需要找碎片
                 maxAllocIndex++;
                 allocIndex = maxAllocIndex;
             }else {
                 // 该页虽然还有空间，但空闲空间是碎片，需要从freeArray中找碎片
-                allocIndex = (short) findFirstFree();
+                allocIndex = findFirstFree();
             }
             free--;
             setBit(allocIndex);
             // 将对应位置的内存块置为0，避免malloc后未put就free
             int start = allocIndex << level;
-            buffer.position(start);
-            buffer.put(new byte[size]);
+            memory.clear(start, size);
 
             return pack(allocIndex, size);
         }
@@ -113,8 +144,7 @@ public class SimpleMemoryPool implements IMemoryPool{
             int size = getSize(pageOffset);
             int start = index << level;
             byte[] result = new byte[size];
-            buffer.position(start);
-            buffer.get(result,0,size);
+            memory.get(start, result, 0, size);
             return result;
         }
 
@@ -123,15 +153,85 @@ public class SimpleMemoryPool implements IMemoryPool{
             int index = getIndex(pageOffset);
             int size = data.length;
             int start = index << level;
-            buffer.position(start);
-            buffer.put(data);
+            memory.put(start, data, 0, size);
 
             return pack(index,size);
         }
 
+        /**
+         * 块内offset处宽度为width的字段在页内存中的位置
+         * @throws IndexOutOfBoundsException 字段超出了块的数据长度
+         */
+        int fieldAddress(int pageOffset, int offset, int width) {
+            Objects.checkFromIndexSize(offset, width, getSize(pageOffset));
+            return (getIndex(pageOffset) << level) + offset;
+        }
+
+        byte getByte(int pageOffset, int offset) {
+            return memory.getByte(fieldAddress(pageOffset, offset, Byte.BYTES));
+        }
+
+        short getShort(int pageOffset, int offset) {
+            return memory.getShort(fieldAddress(pageOffset, offset, Short.BYTES));
+        }
+
+        int getInt(int pageOffset, int offset) {
+            return memory.getInt(fieldAddress(pageOffset, offset, Integer.BYTES));
+        }
+
+        long getLong(int pageOffset, int offset) {
+            return memory.getLong(fieldAddress(pageOffset, offset, Long.BYTES));
+        }
+
+        void getBytes(int pageOffset, int offset, byte[] dst, int dstOffset, int length) {
+            memory.get(fieldAddress(pageOffset, offset, length), dst, dstOffset, length);
+        }
+
+        /**
+         * 乐观读的版本号，写入期间为奇数。只有加锁的写线程修改，见 {@link SynchronizedMemoryPool}
+         */
+        @SuppressWarnings("unused")
+        private long version;
+        private static final VarHandle VERSION;
+
+        static {
+            try {
+                VERSION = MethodHandles.lookup().findVarHandle(LittlePage.class, "version", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        /**
+         * 开始乐观读，读完后用 {@link #validate(long)} 检查期间是否有写入
+         */
+        long readStamp() {
+            return (long) VERSION.getAcquire(this);
+        }
+
+        /**
+         * 从readStamp到现在没有写入，读到的数据一致
+         */
+        boolean validate(long stamp) {
+            VarHandle.acquireFence();
+            return (stamp & 1) == 0 && stamp == (long) VERSION.getOpaque(this);
+        }
+
+        /**
+         * 写入前调用，版本号变为奇数，之后的数据写入不会被重排到它之前
+         */
+        void beginWrite() {
+            VERSION.setOpaque(this, version + 1);
+            VarHandle.storeStoreFence();
+        }
+
+        void endWrite() {
+            VERSION.setRelease(this, version + 1);
+        }
+
         // 设置某个位置为已占用
         public void setBit(int position) {
-            if (position < 0 || position >= ARRAY_SIZE) {
+            if (position < 0 || position >= slots) {
                 throw new IllegalArgumentException("Position out of range");
             }
             int index = position / BITS_PER_LONG;
@@ -141,7 +241,7 @@ public class SimpleMemoryPool implements IMemoryPool{
 
         // 设置某个位置为空闲
         public void clearBit(int position) {
-            if (position < 0 || position >= ARRAY_SIZE) {
+            if (position < 0 || position >= slots) {
                 throw new IllegalArgumentException("Position out of range");
             }
             int index = position / BITS_PER_LONG;
@@ -151,7 +251,7 @@ public class SimpleMemoryPool implements IMemoryPool{
 
         // 检查某个位置是否被占用
         public boolean isBitSet(int position) {
-            if (position < 0 || position >= ARRAY_SIZE) {
+            if (position < 0 || position >= slots) {
                 throw new IllegalArgumentException("Position out of range");
             }
             int index = position / BITS_PER_LONG;
@@ -161,12 +261,12 @@ public class SimpleMemoryPool implements IMemoryPool{
 
         // 查找第一个空闲位置
         public int findFirstFree() {
-            for (int i = 0; i < BITMAP_SIZE; i++) {
+            for (int i = 0; i < freeArray.length; i++) {
                 if (freeArray[i] != -1L) { // -1L 表示所有位都是1
                     // 找到第一个0位
                     int bitPosition = Long.numberOfTrailingZeros(~freeArray[i]);
                     int result = i * BITS_PER_LONG + bitPosition;
-                    return result < ARRAY_SIZE ? result : -1;
+                    return result < slots ? result : -1;
                 }
             }
             return -1;
@@ -174,7 +274,7 @@ public class SimpleMemoryPool implements IMemoryPool{
 
         // 掩码常量
         private static final int SIZE_MASK = 0xFF;           // 8位全1
-        private static final int INDEX_MASK = 0x7FF;         // 11位全1 (0111 1111 1111)
+        private static final int INDEX_MASK = PoolConfig.MAX_SLOTS_PER_PAGE - 1; // 18位全1，紧凑格式的指针只有12位
         private static final int INDEX_SHIFT = 8;            // index在第8位开始
 
         // 打包数据
@@ -182,8 +282,8 @@ public class SimpleMemoryPool implements IMemoryPool{
             if (size < 0 || size > 256) {
                 throw new IllegalArgumentException("Size must be between 0 and 255");
             }
-            if (index < 0 || index > 2048) {
-                throw new IllegalArgumentException("Index must be between 0 and 2048");
+            if (index < 0 || index > INDEX_MASK) {
+                throw new IllegalArgumentException("Index must be between 0 and " + INDEX_MASK);
             }
 
             return (index & INDEX_MASK) << INDEX_SHIFT | (size & SIZE_MASK);
@@ -202,7 +302,7 @@ public class SimpleMemoryPool implements IMemoryPool{
 
         @Override
         public int usedBytes(){
-            return (ARRAY_SIZE-free)*(1<<level);
+            return (slots-free)*(1<<level);
         }
 
         @Override
@@ -217,7 +317,7 @@ public class SimpleMemoryPool implements IMemoryPool{
 
         @Override
         public int size() {
-            return (ARRAY_SIZE-free);
+            return (slots-free);
         }
 
         @Override
@@ -241,9 +341,14 @@ public class SimpleMemoryPool implements IMemoryPool{
         public int maxLength() {
             return 1<<level;
         }
+
+        @Override
+        public void release() {
+            memory.release();
+        }
     }
 
-    static class HugePage implements Page{
+    static class HugePage implements BlockPage {
         private List<byte[]> dataList;
         static int MAX_SIZE = 1<<20;
         private int globalPageNum;
@@ -290,7 +395,7 @@ public class SimpleMemoryPool implements IMemoryPool{
 
         @Override
         public int usedBytes(){
-            return dataList.parallelStream().map(e -> e.length).collect(Collectors.summingInt(e -> e));
+            return dataList.parallelStream().filter(Objects::nonNull).map(e -> e.length).collect(Collectors.summingInt(e -> e));
         }
 
         @Override
@@ -328,25 +433,173 @@ public class SimpleMemoryPool implements IMemoryPool{
             return Integer.MAX_VALUE;
         }
 
+        @Override
+        public void release() {
+            dataList.clear();
+        }
+
     }
     List<Page> pages;
     List<List<Page>> levelPages;
+    /**
+     * 每个级别还有空闲块的页，malloc时不需要遍历该级别的所有页<br>
+     * 页变满时不会立即移除，在malloc取到时才移除
+     */
+    List<Deque<LittlePage>> availablePages;
     List<HugePage> hugeDataPages;
+    /**
+     * 追加转为分段存储时第一个段的最小容量，比小页最大的块大
+     */
+    static final int MIN_CHUNK_SIZE = 512;
+    /**
+     * 已释放的流式存储段，按段的容量分组，分配新段时优先复用相同容量的段
+     */
+    Map<Integer, Deque<ChunkPage>> freeChunks = new HashMap<>();
+    /**
+     * 已使用的字节数，malloc/put/free时增量维护，避免每次统计都遍历所有页
+     */
+    long usedBytes;
+    /**
+     * 预留的字节数，小页按整页计算，大页按数据大小计算
+     */
+    long reservedBytes;
+    /**
+     * 每个级别预留的字节数，下标同 {@link PoolConfig#levelMaxReservedBytes}
+     */
+    long[] levelReservedBytes = new long[PoolConfig.HUGE_LEVEL + 1];
+    /**
+     * 因达到容量上限而失败的分配次数
+     */
+    long failedAllocations;
+    /**
+     * 成功分配和释放的内存块个数，只有内存池所在的线程写入
+     */
+    long allocations;
+    long frees;
+    /**
+     * 分配采样，未开启时为null
+     */
+    AllocationProfiler profiler;
+    PoolConfig config;
+    /**
+     * 后台预分配，未开启时为null
+     */
+    PageWarmer warmer;
+    /**
+     * pages的数组副本，只追加，供其他线程不加锁地查找页，见 {@link #optimisticLittlePage(long)}
+     */
+    private volatile Page[] pageTable = new Page[0];
+    private static final VarHandle PAGE_TABLE = MethodHandles.arrayElementVarHandle(Page[].class);
+    /**
+     * 其他线程通过 {@link #freeRemote(long)} 释放的指针，下一次分配时批量释放
+     */
+    final RemoteFreeList remoteFrees = new RemoteFreeList();
+    /**
+     * 大页压缩，{@link PoolConfig#compressionThreshold} 为0时为null
+     */
+    LZCodec codec;
+    long compressedValues;
+    long incompressibleValues;
+    long compressedOriginalBytes;
+    long compressedBytes;
+    long compressNanos;
+    long decompressNanos;
+    /**
+     * 压缩时使用的缓冲区，复用以减少分配
+     */
+    private byte[] compressBuffer = EMPTY_DATA;
 
     public static byte[] EMPTY_DATA = new byte[0];
 
     public SimpleMemoryPool() {
+        this(new PoolConfig());
+    }
+
+    /**
+     * @param config 容量配置，{@link PoolConfig.ExhaustionPolicy#BLOCK} 需要其他线程释放内存，只能通过 {@link SynchronizedMemoryPool} 使用
+     */
+    public SimpleMemoryPool(PoolConfig config) {
+        this.config = config;
         pages = new ArrayList<>();
-        List<Page> level2Pages8k = new LinkedList<>();
-        List<Page> level3Pages16k = new LinkedList<>();
-        List<Page> level4Pages32k = new LinkedList<>();
-        List<Page> level5Pages64k = new LinkedList<>();
-        List<Page> level6Pages128k = new LinkedList<>();
-        List<Page> level7Pages256k = new LinkedList<>();
-        List<Page> level8Pages512k = new LinkedList<>();
-        // level<2时，也放入level2Pages8k
-        levelPages= Arrays.asList(level2Pages8k,level2Pages8k,level2Pages8k,level3Pages16k,level4Pages32k,level5Pages64k,level6Pages128k,level7Pages256k,level8Pages512k);
+        // 页的大小由 PoolConfig#levelSlotsPerPage 决定，默认每页2048块，level2为8k，level8为512k
+        List<Page> level2Pages = new LinkedList<>();
+        List<Page> level3Pages = new LinkedList<>();
+        List<Page> level4Pages = new LinkedList<>();
+        List<Page> level5Pages = new LinkedList<>();
+        List<Page> level6Pages = new LinkedList<>();
+        List<Page> level7Pages = new LinkedList<>();
+        List<Page> level8Pages = new LinkedList<>();
+        // level<2时，也放入level2Pages
+        levelPages= Arrays.asList(level2Pages,level2Pages,level2Pages,level3Pages,level4Pages,level5Pages,level6Pages,level7Pages,level8Pages);
+        Deque<LittlePage> level2Available = new ArrayDeque<>();
+        availablePages = new ArrayList<>(Arrays.asList(level2Available, level2Available, level2Available));
+        for (int level = 3; level <= 8; level++) {
+            availablePages.add(new ArrayDeque<>());
+        }
         hugeDataPages = new ArrayList<>();
+        if (config.compressionThreshold > 0) {
+            codec = new LZCodec();
+        }
+        preallocate();
+    }
+
+    /**
+     * 按 {@link PoolConfig#preallocatePages} 预先创建页，创建的页直接进入可用页队列或空闲段队列；
+     * 后台预分配时只启动后台线程
+     * @throws IllegalArgumentException 预分配的页超出了预留字节数上限
+     */
+    private void preallocate() {
+        long total = 0;
+        for (int level = 2; level <= PoolConfig.HUGE_LEVEL; level++) {
+            long pageBytes = level == PoolConfig.HUGE_LEVEL ? config.chunkSize : config.getLevelPageBytes(level);
+            long bytes = pageBytes * config.preallocatedPages[level];
+            if (bytes > config.levelMaxReservedBytes[level]) {
+                throw new IllegalArgumentException("Preallocated pages exceed the reserved bytes limit at level " + level);
+            }
+            total += bytes;
+        }
+        if (total == 0) {
+            return;
+        }
+        if (total > config.maxReservedBytes) {
+            throw new IllegalArgumentException("Preallocated pages exceed the reserved bytes limit");
+        }
+        if (config.preallocateInBackground) {
+            warmer = new PageWarmer(config);
+            warmer.start();
+            return;
+        }
+        for (int level = 2; level < PoolConfig.HUGE_LEVEL; level++) {
+            for (int i = 0; i < config.preallocatedPages[level]; i++) {
+                LittlePage page = newLittlePage(level);
+                if (config.preTouch) {
+                    page.memory.preTouch();
+                }
+            }
+        }
+        for (int i = 0; i < config.preallocatedPages[PoolConfig.HUGE_LEVEL]; i++) {
+            ChunkPage chunk = createChunk(config.chunkSize);
+            if (config.preTouch) {
+                chunk.memory.preTouch();
+            }
+            freeChunk(chunk);
+        }
+    }
+
+    /**
+     * 等待后台预分配完成，没有开启后台预分配时立即返回true
+     * @return 超时返回false
+     */
+    public boolean awaitPreallocation(long timeoutMillis) throws InterruptedException {
+        return warmer == null || warmer.await(timeoutMillis);
+    }
+
+    /**
+     * 新页的内存，优先使用后台预分配的内存
+     */
+    private PageMemory pageMemory(int level) {
+        PageMemory memory = warmer == null ? null : warmer.poll(level);
+        return memory != null ? memory : PageWarmer.allocate(config, level);
     }
 
     /**
@@ -373,29 +626,200 @@ public class SimpleMemoryPool implements IMemoryPool{
     @Override
     public long malloc(int size) {
         if(size <= 256) {
-            int levelIndex = ceilToPowerOf2Exponent(size);
-            List<Page> level = levelPages.get(levelIndex);
-            Page freeLittlePage = level.parallelStream().filter(e -> e.freeSize() > 0).findFirst().orElseGet(() -> {
-                LittlePage page = new LittlePage((short) levelIndex);
-                level.add(page);
-                pages.add(page);
-                page.setGlobalPageNum(pages.size() - 1);
-                return page;
-            });
-            int pageOffset = freeLittlePage.malloc(size);
-            return packData(freeLittlePage.type(), freeLittlePage.getGlobalPageNum(), pageOffset);
+            return mallocLittle(size, ceilToPowerOf2Exponent(size));
         }else{
-            // 大于256的数据，直接放入hugeData
-            HugePage freeHugePage = hugeDataPages.parallelStream().filter(e -> e.freeSize() > 0).findFirst().orElseGet(() -> {
-                HugePage page = new HugePage();
-                hugeDataPages.add(page);
-                pages.add(page);
-                page.setGlobalPageNum(pages.size()-1);
-                return page;
-            });
-            int pageOffset = freeHugePage.malloc(size);
-            return packData(freeHugePage.type(), freeHugePage.getGlobalPageNum(), pageOffset);
+            // 大于256的数据，直接放入hugeData，分配全0的数组，可以直接用类型化的put写入
+            return putHuge(codec == null ? new byte[size] : rawHugeBlock(new byte[size]));
+        }
+    }
+
+    /**
+     * 把已编码好的数据块存入大页
+     */
+    private long putHuge(byte[] block) {
+        if (!remoteFrees.isEmpty()) {
+            drainRemoteFrees();
+        }
+        if (!ensureCapacity(PoolConfig.HUGE_LEVEL, block.length)) {
+            return NULL_POINTER;
+        }
+        HugePage freeHugePage = hugeDataPages.parallelStream().filter(e -> e.freeSize() > 0).findFirst().orElseGet(() -> {
+            HugePage page = new HugePage();
+            hugeDataPages.add(page);
+            register(page);
+            pageCreated(page, PoolConfig.HUGE_LEVEL, 0);
+            return page;
+        });
+        int pageOffset = freeHugePage.put(block);
+        usedBytes += block.length;
+        allocations++;
+        reserve(PoolConfig.HUGE_LEVEL, block.length);
+        hugeAllocated(block);
+        long pointer = pack(freeHugePage.type(), freeHugePage.getGlobalPageNum(), pageOffset);
+        if (profiler != null) {
+            profiler.allocated(pointer, block.length, PoolConfig.HUGE_LEVEL);
+        }
+        return pointer;
+    }
+
+    /**
+     * 分配按alignment字节对齐的内存块<br>
+     * 小页的基地址至少按块大小对齐，因此每个块都按块大小自然对齐。
+     * 对齐分配时使用 max(size, alignment) 对应级别的块，例如 mallocAligned(8, 64) 会占用一个64字节的块，
+     * 独占一个缓存行，多个线程写不同的块时不会发生伪共享。<br>
+     * 之后put的数据变大需要重新分配时，新的块级别更高，同样满足对齐；超过256字节后存入大页，不再保证对齐
+     *
+     * @param size      内存块大小，不能超过256
+     * @param alignment 对齐字节数，必须是2的幂且不能超过256
+     */
+    @Override
+    public long mallocAligned(int size, int alignment) {
+        if (alignment <= 0 || alignment > 256 || Integer.bitCount(alignment) != 1) {
+            throw new IllegalArgumentException("Alignment must be a power of 2 not greater than 256");
+        }
+        if (size > 256) {
+            throw new IllegalArgumentException("Aligned blocks must not be larger than 256 bytes");
         }
+        return mallocLittle(size, Math.max(ceilToPowerOf2Exponent(size), Integer.numberOfTrailingZeros(alignment)));
+    }
+
+    /**
+     * 在levelIndex级别的小页中分配内存块
+     */
+    private long mallocLittle(int size, int levelIndex) {
+        if (!remoteFrees.isEmpty()) {
+            drainRemoteFrees();
+        }
+        LittlePage freeLittlePage = availablePage(levelIndex);
+        long pageBytes = config.getLevelPageBytes(levelIndex);
+        while (freeLittlePage == null && exceedsCapacity(levelIndex, pageBytes)) {
+            // 没有空闲的页，且新建页会超出容量上限
+            if (!reclaim(1L << levelIndex)) {
+                return NULL_POINTER;
+            }
+            // 回收时可能释放了该级别的内存块
+            freeLittlePage = availablePage(levelIndex);
+        }
+        if (freeLittlePage == null) {
+            freeLittlePage = newLittlePage(levelIndex);
+        }
+        int pageOffset = freeLittlePage.malloc(size);
+        usedBytes += freeLittlePage.maxLength();
+        allocations++;
+        long pointer = pack(freeLittlePage.type(), freeLittlePage.getGlobalPageNum(), pageOffset);
+        if (profiler != null) {
+            profiler.allocated(blockId(pointer), 1 << levelIndex, levelIndex);
+        }
+        return pointer;
+    }
+
+    /**
+     * 新建一个小页，放入可用页队列的头部
+     */
+    private LittlePage newLittlePage(int levelIndex) {
+        LittlePage page = new LittlePage((short) levelIndex, config.levelSlotsPerPage[levelIndex], pageMemory(levelIndex));
+        levelPages.get(levelIndex).add(page);
+        register(page);
+        long pageBytes = config.getLevelPageBytes(levelIndex);
+        reserve(levelIndex, pageBytes);
+        pageCreated(page, levelIndex, pageBytes);
+        page.available = true;
+        availablePages.get(levelIndex).addFirst(page);
+        return page;
+    }
+
+    /**
+     * 内存块的地址对unitSize取模的结果，0表示按unitSize对齐
+     * @throws IllegalArgumentException 大页的数据存储在堆上，没有固定的地址
+     */
+    public int alignmentOffset(long pointer, int unitSize) {
+        Page page = pages.get(getPageNum(pointer));
+        if (!(page instanceof LittlePage)) {
+            throw new IllegalArgumentException("Huge blocks are not stored in direct memory");
+        }
+        LittlePage littlePage = (LittlePage) page;
+        int start = LittlePage.getIndex(getOffset(pointer)) << littlePage.level;
+        return littlePage.memory.alignmentOffset(start, unitSize);
+    }
+
+    /**
+     * 取出该级别还有空闲块的页，顺便移除队列头部已经满了的页
+     */
+    private LittlePage availablePage(int level) {
+        Deque<LittlePage> available = availablePages.get(level);
+        LittlePage page;
+        while ((page = available.peekFirst()) != null && page.freeSize() == 0) {
+            available.pollFirst();
+            page.available = false;
+        }
+        return page;
+    }
+
+    /**
+     * 检查预留bytes字节后是否超出总上限和该级别的上限，超出时尝试回收
+     * @return 是否可以预留
+     */
+    private boolean ensureCapacity(int level, long bytes) {
+        while (exceedsCapacity(level, bytes)) {
+            if (!reclaim(Math.max(reservedBytes + bytes - config.maxReservedBytes,
+                    levelReservedBytes[level] + bytes - config.levelMaxReservedBytes[level]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 达到容量上限时，策略为 {@link PoolConfig.ExhaustionPolicy#RECLAIM} 则调用回收回调，否则本次分配失败
+     * @return 是否回收了内存，返回false时本次分配失败
+     */
+    private boolean reclaim(long bytes) {
+        ReclaimHook hook = config.reclaimHook;
+        if (config.exhaustionPolicy != PoolConfig.ExhaustionPolicy.RECLAIM || hook == null || !hook.reclaim(bytes)) {
+            failedAllocations++;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean exceedsCapacity(int level, long bytes) {
+        return reservedBytes + bytes > config.maxReservedBytes
+                || levelReservedBytes[level] + bytes > config.levelMaxReservedBytes[level];
+    }
+
+    private void reserve(int level, long bytes) {
+        reservedBytes += bytes;
+        levelReservedBytes[level] += bytes;
+    }
+
+    /*
+     * 指针格式
+     * 紧凑格式（v1），最高16位为0：
+     * | 0 (16位) | type (4位) | pageNum (24位) | offset (20位) |
+     * 宽格式（v2），最高2位为01：
+     * | 01 (2位) | type (4位) | pageNum (32位) | offset (26位) |
+     * 紧凑格式最多只能有2^24个页，小块较多时页号会不够用。
+     * 默认页号和偏移量在紧凑格式的范围内时使用紧凑格式，超出时自动使用宽格式，两种格式的指针可以同时存在；
+     * 配置了 PoolConfig#widePointers 时总是使用宽格式。
+     * 两种格式的指针都不是负数，不会与 NULL_POINTER 冲突。
+     */
+    private static final long WIDE_MARKER = 1L << 62;
+    private static final long VERSION_MASK = 3L << 62;
+    private static final int WIDE_TYPE_SHIFT = 58;
+    private static final int WIDE_PAGE_SHIFT = 26;
+    private static final long WIDE_PAGE_MASK = 0xFFFFFFFFL; // 32位
+    private static final int WIDE_OFFSET_MASK = 0x3FFFFFF; // 26位
+    private static final int COMPACT_PAGE_MAX = 0xFFFFFF;
+    private static final int COMPACT_OFFSET_MAX = 0xFFFFF;
+
+    /**
+     * 按配置的指针格式打包，紧凑格式放不下时使用宽格式
+     */
+    long pack(int type, int pageNum, int offset) {
+        if (!config.widePointers && pageNum <= COMPACT_PAGE_MAX && offset <= COMPACT_OFFSET_MAX) {
+            return packData(type, pageNum, offset);
+        }
+        return packWide(type, pageNum, offset);
     }
 
     // 打包函数
@@ -409,18 +833,43 @@ public class SimpleMemoryPool implements IMemoryPool{
         return ((long)type << 44) | ((long)pageNum << 20) | offset;
     }
 
+    // 打包函数 - 宽格式
+    public static long packWide(int type, int pageNum, int offset) {
+        if (pageNum < 0) {
+            throw new IllegalArgumentException("Page number must not be negative");
+        }
+        if (offset < 0 || offset > WIDE_OFFSET_MASK) {
+            throw new IllegalArgumentException("Offset must be between 0 and " + WIDE_OFFSET_MASK);
+        }
+        return WIDE_MARKER | ((long) (type & 0xF) << WIDE_TYPE_SHIFT) | ((long) pageNum << WIDE_PAGE_SHIFT) | offset;
+    }
+
+    // 是否为宽格式的指针
+    public static boolean isWide(long packed) {
+        return (packed & VERSION_MASK) == WIDE_MARKER;
+    }
+
     // 解包函数 - 获取类型
     public static int getType(long packed) {
+        if (isWide(packed)) {
+            return (int) ((packed >>> WIDE_TYPE_SHIFT) & 0xF);
+        }
         return (int)((packed >> 44) & 0xF);
     }
 
     // 解包函数 - 获取页号
     public static int getPageNum(long packed) {
+        if (isWide(packed)) {
+            return (int) ((packed >>> WIDE_PAGE_SHIFT) & WIDE_PAGE_MASK);
+        }
         return (int)((packed >> 20) & 0xFFFFFF);
     }
 
     // 解包函数 - 获取偏移量
     public static int getOffset(long packed) {
+        if (isWide(packed)) {
+            return (int) (packed & WIDE_OFFSET_MASK);
+        }
         return (int)(packed & 0xFFFFF);
     }
 
@@ -429,32 +878,110 @@ public class SimpleMemoryPool implements IMemoryPool{
         int pageNum = getPageNum(pointer);
         int offset = getOffset(pointer);
         Page page = pages.get(pageNum);
+        frees++;
+        if (page.type() == Page.CHUNK_PAGE_TYPE) {
+            freeChunks((ChunkPage) page);
+            return;
+        }
+        if (profiler != null) {
+            profiler.freed(page instanceof LittlePage ? blockId(pointer) : pointer);
+        }
+        long bytes = blockBytes((BlockPage) page, offset);
+        usedBytes -= bytes;
+        if (page.type() == Page.HUGE_PAGE_TYPE) {
+            reserve(PoolConfig.HUGE_LEVEL, -bytes);
+        }
         page.free(offset);
+        if (page instanceof LittlePage && !((LittlePage) page).available) {
+            // 满页有了空闲块，重新放入可用页队列
+            LittlePage littlePage = (LittlePage) page;
+            littlePage.available = true;
+            availablePages.get(littlePage.level).addLast(littlePage);
+        }
     }
 
+    /**
+     * 从其他线程释放内存块，可以在任意线程调用，不加锁<br>
+     * 指针放入无锁的待释放列表，内存池所在的线程在下一次分配时批量释放（也可以调用 {@link #drainRemoteFrees()}），
+     * 适合一个线程分配、另一个线程释放的生产者/消费者场景。批量释放之前内存块仍然计入 {@link #usedBytes()}
+     */
+    public void freeRemote(long pointer) {
+        remoteFrees.push(pointer);
+    }
+
+    /**
+     * 释放其他线程通过 {@link #freeRemote(long)} 释放的内存块，只能在内存池所在的线程调用
+     * @return 释放的内存块个数
+     */
+    public int drainRemoteFrees() {
+        int count = 0;
+        for (RemoteFreeList.Node node = remoteFrees.takeAll(); node != null; node = node.next) {
+            free(node.pointer);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 更新内存块中的数据<br>
+     * 新数据超过原内存块的最大长度时，会重新分配内存块并释放原内存块。
+     * 重新分配失败时返回 {@link #NULL_POINTER}，原内存块保持不变
+     */
     @Override
     public long put(long pointer, byte[] data) {
 //        int type = getType(pointer);
         int pageNum = getPageNum(pointer);
         int offset = getOffset(pointer);
-        Page page = pages.get(pageNum);
-        if(data.length > page.maxLength()) {
+        Page target = pages.get(pageNum);
+        if (!(target instanceof BlockPage) || data.length > target.maxLength()) {
             // 新数据长度大于原数据长度,且>原始页面的最大数据长度，需要重新在其他页面分配
+            long new_p = put(data);
+            if (new_p == NULL_POINTER) {
+                return NULL_POINTER;
+            }
+            relocated("put", pointer, data.length, false);
             free(pointer);
-            long new_p = malloc(data.length);
-            int newPageNum = getPageNum(new_p);
-            int newOffset = getOffset(new_p);
-            Page newPage = pages.get(newPageNum);
-            newPage.put(newOffset, data);
-            return packData(newPage.type(), newPageNum, newOffset);
+            return new_p;
+        }
+        BlockPage page = (BlockPage) target;
+        if (page.type() == Page.HUGE_PAGE_TYPE) {
+            // 大页复制一份，类型化的put不会修改调用方的数组
+            data = codec == null ? data.clone() : encodeHuge(data);
+        }
+        long oldBytes = blockBytes(page, offset);
+        if (page.type() == Page.HUGE_PAGE_TYPE) {
+            long delta = data.length - oldBytes;
+            if (delta > 0 && !ensureCapacity(PoolConfig.HUGE_LEVEL, delta)) {
+                return NULL_POINTER;
+            }
+            reserve(PoolConfig.HUGE_LEVEL, delta);
+        }
+        usedBytes -= oldBytes;
+        offset = page.put(offset,data);
+        usedBytes += blockBytes(page, offset);
+        return pack(page.type(),pageNum,offset);
+    }
+
+    /**
+     * 内存块实际占用的字节数，小页为固定的块大小，大页为数据长度
+     */
+    private static long blockBytes(BlockPage page, int offset) {
+        if (page.type() == Page.LITTLE_PAGE_TYPE) {
+            return page.maxLength();
         }
-        page.put(offset,data);
-        return packData(page.type(),pageNum,offset);
+        byte[] data = page.get(offset);
+        return data == null ? 0 : data.length;
     }
 
     @Override
     public long put(byte[] data) {
+        if (data.length > 256) {
+            return putHuge(codec == null ? data.clone() : encodeHuge(data));
+        }
         long pointer = malloc(data.length);
+        if (pointer == NULL_POINTER) {
+            return NULL_POINTER;
+        }
         return put(pointer,data);
     }
 
@@ -463,11 +990,769 @@ public class SimpleMemoryPool implements IMemoryPool{
         int pageNum = getPageNum(pointer);
         int offset = getOffset(pointer);
         Page page = pages.get(pageNum);
-        return page.get(offset);
+        if (page.type() == Page.CHUNK_PAGE_TYPE) {
+            return readChunks((ChunkPage) page);
+        }
+        byte[] block = ((BlockPage) page).get(offset);
+        return page.type() == Page.HUGE_PAGE_TYPE && codec != null ? decodeHuge(block) : block;
     }
 
+    /**
+     * 在内存块的数据末尾追加data<br>
+     * <ul>
+     *     <li>小页的块还有空余时原地写入，只复制追加的数据</li>
+     *     <li>小页的块放不下但总长度不超过256字节时，移动到更大的级别，块大小按2的幂增长，均摊后每个字节只复制常数次</li>
+     *     <li>总长度超过256字节时转为分段存储，第一个段的容量为总长度向上取2的幂（至少 {@link #MIN_CHUNK_SIZE}），
+     *     之后每个段的容量翻倍，直到 {@link PoolConfig#chunkSize}。转换时复制一次已有的数据，之后的追加只写入最后一个段，
+     *     均摊后每次追加的开销与追加的数据长度成正比</li>
+     * </ul>
+     */
+    @Override
+    public long append(long pointer, byte[] data) {
+        int pageNum = getPageNum(pointer);
+        int pageOffset = getOffset(pointer);
+        Page page = pages.get(pageNum);
+        if (page.type() == Page.CHUNK_PAGE_TYPE) {
+            return appendChunks((ChunkPage) page, pointer, data);
+        }
+        int length = length(pointer);
+        long newLength = (long) length + data.length;
+        if (page instanceof LittlePage && newLength <= page.maxLength()) {
+            LittlePage littlePage = (LittlePage) page;
+            int index = LittlePage.getIndex(pageOffset);
+            littlePage.memory.put((index << littlePage.level) + length, data, 0, data.length);
+            return pack(page.type(), pageNum, LittlePage.pack(index, (int) newLength));
+        }
+        if (newLength <= 256) {
+            long newPointer = malloc((int) newLength);
+            if (newPointer == NULL_POINTER) {
+                return NULL_POINTER;
+            }
+            LittlePage target = (LittlePage) pages.get(getPageNum(newPointer));
+            int start = LittlePage.getIndex(getOffset(newPointer)) << target.level;
+            if (page instanceof LittlePage) {
+                LittlePage littlePage = (LittlePage) page;
+                int oldStart = LittlePage.getIndex(pageOffset) << littlePage.level;
+                target.memory.slice(start, length).put(littlePage.memory.slice(oldStart, length));
+            } else {
+                // 大页中的短数据，例如原地put过更短的数据
+                target.memory.put(start, get(pointer), 0, length);
+            }
+            target.memory.put(start + length, data, 0, data.length);
+            relocated("append", pointer, newLength, false);
+            free(pointer);
+            return newPointer;
+        }
+        // 转为分段存储，先复制已有的数据，之后的追加不再复制；短value从小的段开始，不占用整个chunkSize
+        ChunkedValueWriter writer;
+        try {
+            writer = openWriter(firstChunkCapacity(newLength));
+        } catch (IOException e) {
+            return NULL_POINTER;
+        }
+        try {
+            transferTo(pointer, 0, writer);
+            writer.write(data);
+        } catch (IOException e) {
+            writer.abort();
+            return NULL_POINTER;
+        }
+        relocated("append", pointer, newLength, true);
+        free(pointer);
+        return writer.pointer();
+    }
+
+    /**
+     * 追加到最后一个段，内存不足时释放新分配的段，恢复原来的长度
+     */
+    private long appendChunks(ChunkPage first, long pointer, byte[] data) {
+        ChunkPage last = chunk(first.last);
+        int lastUsed = last.used;
+        long totalLength = first.totalLength;
+        try {
+            new ChunkedValueWriter(this, first, pointer).write(data);
+        } catch (IOException e) {
+            if (last.next != ChunkPage.NO_NEXT) {
+                freeChunks(chunk(last.next));
+                last.next = ChunkPage.NO_NEXT;
+            }
+            last.used = lastUsed;
+            first.totalLength = totalLength;
+            first.last = last.getGlobalPageNum();
+            return NULL_POINTER;
+        }
+        return pointer;
+    }
+
+    /**
+     * 把内存块的数据长度改为newSize<br>
+     * 小页的块大小足够时原地调整，分段存储的value增长时追加0，其他情况重新分配
+     * @throws IllegalArgumentException newSize小于等于0
+     */
+    @Override
+    public long realloc(long pointer, int newSize) {
+        if (newSize <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        int pageNum = getPageNum(pointer);
+        int pageOffset = getOffset(pointer);
+        Page page = pages.get(pageNum);
+        int length = length(pointer);
+        if (page instanceof LittlePage && newSize <= page.maxLength()) {
+            LittlePage littlePage = (LittlePage) page;
+            int index = LittlePage.getIndex(pageOffset);
+            if (newSize > length) {
+                littlePage.memory.clear((index << littlePage.level) + length, newSize - length);
+            }
+            return pack(page.type(), pageNum, LittlePage.pack(index, newSize));
+        }
+        if (page.type() == Page.CHUNK_PAGE_TYPE && newSize >= length) {
+            return newSize == length ? pointer : append(pointer, new byte[newSize - length]);
+        }
+        return put(pointer, Arrays.copyOf(get(pointer), newSize));
+    }
+
+    /**
+     * 开始流式写入一个新的value，数据按 {@link PoolConfig#chunkSize} 分段存储在堆外内存中
+     * @throws IOException 内存池已满
+     */
+    public ChunkedValueWriter openWriter() throws IOException {
+        return openWriter(config.chunkSize);
+    }
+
+    /**
+     * @param capacity 第一个段的容量，写满后每个段的容量翻倍直到 {@link PoolConfig#chunkSize}
+     */
+    private ChunkedValueWriter openWriter(int capacity) throws IOException {
+        ChunkPage first = newChunk(capacity);
+        if (first == null) {
+            throw new IOException("OOM memory pool exhausted");
+        }
+        allocations++;
+        return new ChunkedValueWriter(this, first, pack(first.type(), first.getGlobalPageNum(), 0));
+    }
+
+    /**
+     * 流式读取 {@link #openWriter()} 写入的value
+     * @throws IllegalArgumentException 不是流式写入的value
+     */
+    public ChunkedValueReader openReader(long pointer) {
+        Page page = pages.get(getPageNum(pointer));
+        if (page.type() != Page.CHUNK_PAGE_TYPE) {
+            throw new IllegalArgumentException("Not a chunked value");
+        }
+        return new ChunkedValueReader(this, (ChunkPage) page);
+    }
+
+    /**
+     * 把value从position开始的数据直接写入target，不复制到堆上（开启压缩时大页的数据需要先解压）<br>
+     * 与 {@link java.nio.channels.FileChannel#transferTo} 类似，非阻塞的channel写不进去时提前返回，
+     * 下次从position + 返回值继续
+     * @return 写入的字节数
+     */
+    public long transferTo(long pointer, long position, WritableByteChannel target) throws IOException {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            int size = LittlePage.getSize(pageOffset);
+            if (position >= size) {
+                return 0;
+            }
+            int start = LittlePage.getIndex(pageOffset) << littlePage.level;
+            return writeFully(littlePage.memory.slice(start + (int) position, size - (int) position), target);
+        }
+        if (page.type() == Page.HUGE_PAGE_TYPE) {
+            byte[] data = get(pointer);
+            if (position >= data.length) {
+                return 0;
+            }
+            return writeFully(ByteBuffer.wrap(data, (int) position, data.length - (int) position), target);
+        }
+        ChunkPage chunk = (ChunkPage) page;
+        long remaining = chunk.totalLength - position;
+        // 跳过position之前的段
+        while (position >= chunk.used && remaining > 0) {
+            position -= chunk.used;
+            chunk = (ChunkPage) pages.get(chunk.next);
+        }
+        long transferred = 0;
+        while (remaining > 0) {
+            int length = chunk.used - (int) position;
+            int written = writeFully(chunk.memory.slice((int) position, length), target);
+            transferred += written;
+            remaining -= written;
+            if (written < length || remaining == 0) {
+                break;
+            }
+            chunk = (ChunkPage) pages.get(chunk.next);
+            position = 0;
+        }
+        return transferred;
+    }
+
+    /**
+     * 写入buffer的全部数据，channel写不进去时提前返回
+     */
+    private static int writeFully(ByteBuffer buffer, WritableByteChannel target) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            int n = target.write(buffer);
+            if (n <= 0) {
+                break;
+            }
+            written += n;
+        }
+        return written;
+    }
+
+    /**
+     * 分配一个流式存储的段，优先复用已释放的相同容量的段
+     * @param capacity 段的容量，不超过 {@link PoolConfig#chunkSize}
+     * @return 内存池已满时返回null
+     */
+    ChunkPage newChunk(int capacity) {
+        if (!remoteFrees.isEmpty()) {
+            drainRemoteFrees();
+        }
+        Deque<ChunkPage> free = freeChunks.get(capacity);
+        ChunkPage chunk = free == null ? null : free.pollFirst();
+        if (chunk == null) {
+            if (!ensureCapacity(PoolConfig.HUGE_LEVEL, capacity)) {
+                return null;
+            }
+            chunk = createChunk(capacity);
+        }
+        chunk.reset();
+        usedBytes += chunk.capacity();
+        if (profiler != null) {
+            profiler.allocated(pack(chunk.type(), chunk.getGlobalPageNum(), 0), chunk.capacity(), PoolConfig.HUGE_LEVEL);
+        }
+        return chunk;
+    }
+
+    /**
+     * 采样时内存块的标识：小页的指针去掉低8位的长度，原地put/append修改长度后标识不变
+     */
+    private static long blockId(long pointer) {
+        return pointer & ~0xFFL;
+    }
+
+    @Override
+    public void setProfiler(AllocationProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * 登记新页，同时发布到无锁读取的页表
+     */
+    private void register(Page page) {
+        pages.add(page);
+        int pageNum = pages.size() - 1;
+        page.setGlobalPageNum(pageNum);
+        Page[] table = pageTable;
+        if (pageNum >= table.length) {
+            table = Arrays.copyOf(table, Math.max(64, table.length * 2));
+            PAGE_TABLE.setRelease(table, pageNum, page);
+            pageTable = table;
+        } else {
+            PAGE_TABLE.setRelease(table, pageNum, page);
+        }
+    }
+
+    /**
+     * 不加锁查找指针所在的小页，用于 {@link SynchronizedMemoryPool} 的乐观读<br>
+     * 页只会追加，指针在创建它的malloc之后才可能被其他线程拿到，因此一定能查到
+     * @return 不是小页时返回null，由调用方加锁读取
+     */
+    LittlePage optimisticLittlePage(long pointer) {
+        Page[] table = pageTable;
+        int pageNum = getPageNum(pointer);
+        if (pageNum >= table.length) {
+            return null;
+        }
+        Page page = (Page) PAGE_TABLE.getAcquire(table, pageNum);
+        return page instanceof LittlePage ? (LittlePage) page : null;
+    }
+
+    /**
+     * 写入指针所在的页之前调用，写完后调用 {@link #endWrite(LittlePage)}，期间的乐观读会重试
+     * @return 不是小页时返回null，非法的指针也返回null，由之后的写操作报错
+     */
+    LittlePage beginWrite(long pointer) {
+        int pageNum = getPageNum(pointer);
+        Page page = pageNum < pages.size() ? pages.get(pageNum) : null;
+        if (!(page instanceof LittlePage)) {
+            return null;
+        }
+        LittlePage littlePage = (LittlePage) page;
+        littlePage.beginWrite();
+        return littlePage;
+    }
+
+    static void endWrite(LittlePage page) {
+        if (page != null) {
+            page.endWrite();
+        }
+    }
+
+    private ChunkPage createChunk(int capacity) {
+        // 后台只预热完整大小的段，追加时使用的小段直接分配
+        PageMemory memory = capacity == config.chunkSize
+                ? pageMemory(PoolConfig.HUGE_LEVEL) : config.pageAllocator.allocate(capacity, config.pageAlignment);
+        ChunkPage chunk = new ChunkPage(memory);
+        register(chunk);
+        reserve(PoolConfig.HUGE_LEVEL, capacity);
+        pageCreated(chunk, PoolConfig.HUGE_LEVEL, capacity);
+        return chunk;
+    }
+
+    /**
+     * 追加转为分段存储时第一个段的容量：总长度向上取2的幂，至少 {@link #MIN_CHUNK_SIZE}，不超过 {@link PoolConfig#chunkSize}
+     */
+    private int firstChunkCapacity(long length) {
+        if (length >= config.chunkSize) {
+            return config.chunkSize;
+        }
+        return Math.min(Math.max(MIN_CHUNK_SIZE, Integer.highestOneBit((int) length - 1) << 1), config.chunkSize);
+    }
+
+    /**
+     * 当前段写满后下一个段的容量，翻倍直到 {@link PoolConfig#chunkSize}
+     */
+    int nextChunkCapacity(ChunkPage current) {
+        return (int) Math.min((long) current.capacity() << 1, config.chunkSize);
+    }
+
+    ChunkPage chunk(int pageNum) {
+        return (ChunkPage) pages.get(pageNum);
+    }
+
+    /**
+     * 释放value的所有段，段的内存保留，放入空闲段队列
+     */
+    private void freeChunks(ChunkPage first) {
+        ChunkPage chunk = first;
+        while (true) {
+            int next = chunk.next;
+            usedBytes -= chunk.capacity();
+            if (profiler != null) {
+                profiler.freed(pack(chunk.type(), chunk.getGlobalPageNum(), 0));
+            }
+            chunk.free(0);
+            freeChunk(chunk);
+            if (next == ChunkPage.NO_NEXT) {
+                break;
+            }
+            chunk = (ChunkPage) pages.get(next);
+        }
+    }
+
+    private void freeChunk(ChunkPage chunk) {
+        freeChunks.computeIfAbsent(chunk.capacity(), capacity -> new ArrayDeque<>()).addLast(chunk);
+    }
+
+    private byte[] readChunks(ChunkPage first) {
+        if (first.totalLength > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Value is too large for a byte array, use openReader instead");
+        }
+        byte[] data = new byte[(int) first.totalLength];
+        int offset = 0;
+        ChunkPage chunk = first;
+        while (true) {
+            chunk.memory.get(0, data, offset, chunk.used);
+            offset += chunk.used;
+            if (chunk.next == ChunkPage.NO_NEXT) {
+                return data;
+            }
+            chunk = (ChunkPage) pages.get(chunk.next);
+        }
+    }
+
+    @Override
+    public int length(long pointer) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            return LittlePage.getSize(pageOffset);
+        }
+        if (page.type() == Page.CHUNK_PAGE_TYPE) {
+            return (int) Math.min(((ChunkPage) page).totalLength, Integer.MAX_VALUE);
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        if (block == null || block.length == 0) {
+            return 0;
+        }
+        if (codec == null) {
+            return block.length;
+        }
+        return readHeaderLength(block);
+    }
+
+    /*
+     * 类型化访问：直接读写内存块中offset处的基本类型，不复制整个内存块，不创建对象。
+     * 按本机字节序读写，offset按字段宽度对齐时为对齐访问。
+     * 小页读写页内存，大页读写堆上的数组；开启压缩时大页只能访问未被压缩的块。
+     */
+    private static final VarHandle SHORT_ARRAY = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INT_ARRAY = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    @Override
+    public byte getByte(long pointer, int offset) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            return littlePage.getByte(pageOffset, offset);
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        return block[hugeFieldIndex(block, offset, Byte.BYTES)];
+    }
+
+    @Override
+    public void putByte(long pointer, int offset, byte value) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            littlePage.memory.putByte(littlePage.fieldAddress(pageOffset, offset, Byte.BYTES), value);
+            return;
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        block[hugeFieldIndex(block, offset, Byte.BYTES)] = value;
+    }
+
+    @Override
+    public short getShort(long pointer, int offset) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            return littlePage.getShort(pageOffset, offset);
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        return (short) SHORT_ARRAY.get(block, hugeFieldIndex(block, offset, Short.BYTES));
+    }
+
+    @Override
+    public void putShort(long pointer, int offset, short value) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            littlePage.memory.putShort(littlePage.fieldAddress(pageOffset, offset, Short.BYTES), value);
+            return;
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        SHORT_ARRAY.set(block, hugeFieldIndex(block, offset, Short.BYTES), value);
+    }
+
+    @Override
+    public int getInt(long pointer, int offset) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            return littlePage.getInt(pageOffset, offset);
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        return (int) INT_ARRAY.get(block, hugeFieldIndex(block, offset, Integer.BYTES));
+    }
+
+    @Override
+    public void putInt(long pointer, int offset, int value) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            littlePage.memory.putInt(littlePage.fieldAddress(pageOffset, offset, Integer.BYTES), value);
+            return;
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        INT_ARRAY.set(block, hugeFieldIndex(block, offset, Integer.BYTES), value);
+    }
+
+    @Override
+    public long getLong(long pointer, int offset) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            return littlePage.getLong(pageOffset, offset);
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        return (long) LONG_ARRAY.get(block, hugeFieldIndex(block, offset, Long.BYTES));
+    }
+
+    @Override
+    public void putLong(long pointer, int offset, long value) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            littlePage.memory.putLong(littlePage.fieldAddress(pageOffset, offset, Long.BYTES), value);
+            return;
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        LONG_ARRAY.set(block, hugeFieldIndex(block, offset, Long.BYTES), value);
+    }
+
+    @Override
+    public void getBytes(long pointer, int offset, byte[] dst, int dstOffset, int length) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            littlePage.getBytes(pageOffset, offset, dst, dstOffset, length);
+            return;
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        System.arraycopy(block, hugeFieldIndex(block, offset, length), dst, dstOffset, length);
+    }
+
+    @Override
+    public void putBytes(long pointer, int offset, byte[] src, int srcOffset, int length) {
+        Page page = pages.get(getPageNum(pointer));
+        int pageOffset = getOffset(pointer);
+        if (page instanceof LittlePage) {
+            LittlePage littlePage = (LittlePage) page;
+            littlePage.memory.put(littlePage.fieldAddress(pageOffset, offset, length), src, srcOffset, length);
+            return;
+        }
+        byte[] block = hugeBlock(page, pageOffset);
+        System.arraycopy(src, srcOffset, block, hugeFieldIndex(block, offset, length), length);
+    }
+
+    /**
+     * 大页中的数据块，流式写入的value分段存储，没有完整的数据块
+     * @throws IllegalArgumentException 指针指向流式写入的value
+     */
+    private static byte[] hugeBlock(Page page, int pageOffset) {
+        if (!(page instanceof HugePage)) {
+            throw new IllegalArgumentException("Typed access is not supported on chunked values, use openReader");
+        }
+        return ((HugePage) page).get(pageOffset);
+    }
+
+    /**
+     * 大页数据块中offset处宽度为width的字段在数组中的下标，开启压缩时跳过块头
+     * @throws IndexOutOfBoundsException 字段超出了数据长度
+     * @throws UnsupportedOperationException 数据块已被压缩
+     */
+    private int hugeFieldIndex(byte[] block, int offset, int width) {
+        int base = 0;
+        if (codec != null && block.length > 0) {
+            if (block[0] != FLAG_RAW) {
+                throw new UnsupportedOperationException("Typed access is not supported on compressed blocks");
+            }
+            base = HUGE_HEADER_SIZE;
+        }
+        Objects.checkFromIndexSize(offset, width, block.length - base);
+        return base + offset;
+    }
+
+    /*
+     * 开启压缩后大页内存块的格式：
+     * | flag (1字节) | 原始长度 (4字节) | 数据 |
+     * flag为0时数据按原样存储，为1时数据为LZCodec压缩后的数据
+     */
+    private static final int HUGE_HEADER_SIZE = 5;
+    private static final byte FLAG_RAW = 0;
+    private static final byte FLAG_LZ = 1;
+
+    /**
+     * 给大页数据加上块头，长度达到阈值且压缩后能节省至少1/8时压缩
+     */
+    private byte[] encodeHuge(byte[] data) {
+        // 不超过256字节的数据即使在大页中也不压缩，总是可以类型化访问
+        if (data.length > 256 && data.length >= config.compressionThreshold) {
+            long start = System.nanoTime();
+            int limit = data.length - (data.length >>> 3);
+            if (compressBuffer.length < HUGE_HEADER_SIZE + limit) {
+                compressBuffer = new byte[HUGE_HEADER_SIZE + limit];
+            }
+            int length = codec.compress(data, data.length, compressBuffer, HUGE_HEADER_SIZE, limit);
+            compressNanos += System.nanoTime() - start;
+            if (length >= 0) {
+                byte[] block = Arrays.copyOf(compressBuffer, HUGE_HEADER_SIZE + length);
+                writeHeader(block, FLAG_LZ, data.length);
+                compressedValues++;
+                compressedOriginalBytes += data.length;
+                compressedBytes += block.length;
+                return block;
+            }
+            incompressibleValues++;
+        }
+        return rawHugeBlock(data);
+    }
+
+    /**
+     * 不压缩，只加上块头
+     */
+    private static byte[] rawHugeBlock(byte[] data) {
+        byte[] block = new byte[HUGE_HEADER_SIZE + data.length];
+        System.arraycopy(data, 0, block, HUGE_HEADER_SIZE, data.length);
+        writeHeader(block, FLAG_RAW, data.length);
+        return block;
+    }
+
+    private byte[] decodeHuge(byte[] block) {
+        if (block == null || block.length == 0) {
+            // malloc后还未put
+            return block;
+        }
+        int length = readHeaderLength(block);
+        byte[] data = new byte[length];
+        if (block[0] == FLAG_LZ) {
+            long start = System.nanoTime();
+            LZCodec.decompress(block, HUGE_HEADER_SIZE, block.length - HUGE_HEADER_SIZE, data, length);
+            decompressNanos += System.nanoTime() - start;
+        } else {
+            System.arraycopy(block, HUGE_HEADER_SIZE, data, 0, length);
+        }
+        return data;
+    }
+
+    private static int readHeaderLength(byte[] block) {
+        return (block[1] & 0xFF) << 24 | (block[2] & 0xFF) << 16 | (block[3] & 0xFF) << 8 | (block[4] & 0xFF);
+    }
+
+    private static void writeHeader(byte[] block, byte flag, int length) {
+        block[0] = flag;
+        block[1] = (byte) (length >>> 24);
+        block[2] = (byte) (length >>> 16);
+        block[3] = (byte) (length >>> 8);
+        block[4] = (byte) length;
+    }
+
+    @Override
     public long usedBytes() {
-        return pages.parallelStream().map(e -> (long) e.usedBytes()).collect(Collectors.summingLong(e -> e));
+        return usedBytes;
+    }
+
+    /**
+     * 预留的字节数，小页按整页计算，大页按数据大小计算
+     */
+    public long reservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * 每个级别预留的字节数，下标为级别，2~8为小页，{@link PoolConfig#HUGE_LEVEL} 为大页
+     */
+    public List<Long> levelReservedBytes() {
+        return Arrays.stream(levelReservedBytes).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * 因达到容量上限而失败的分配次数
+     */
+    public long failedAllocations() {
+        return failedAllocations;
+    }
+
+    /*
+     * JFR事件，默认不开启。事件对象在未开启时由JIT消除，开启后才读取事件的字段
+     */
+
+    private static void pageCreated(Page page, int level, long bytes) {
+        PageCreatedEvent event = new PageCreatedEvent();
+        if (event.isEnabled()) {
+            event.pageType = pageTypeName(page.type());
+            event.level = level;
+            event.pageNum = page.getGlobalPageNum();
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    private static void pageRetired(Page page) {
+        PageRetiredEvent event = new PageRetiredEvent();
+        if (event.isEnabled()) {
+            event.pageType = pageTypeName(page.type());
+            event.pageNum = page.getGlobalPageNum();
+            event.usedBytes = page.usedBytes();
+            event.commit();
+        }
+    }
+
+    private void hugeAllocated(byte[] block) {
+        HugeAllocationEvent event = new HugeAllocationEvent();
+        if (event.isEnabled()) {
+            event.size = codec == null ? block.length : readHeaderLength(block);
+            event.storedBytes = block.length;
+            event.compressed = codec != null && block[0] == FLAG_LZ;
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 在释放原内存块之前调用
+     */
+    private void relocated(String operation, long pointer, long newLength, boolean chunked) {
+        RelocationEvent event = new RelocationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.oldLength = length(pointer);
+            event.newLength = newLength;
+            event.chunked = chunked;
+            event.commit();
+        }
+    }
+
+    private static String pageTypeName(int type) {
+        switch (type) {
+            case Page.LITTLE_PAGE_TYPE:
+                return "little";
+            case Page.HUGE_PAGE_TYPE:
+                return "huge";
+            default:
+                return "chunk";
+        }
+    }
+
+    /**
+     * 内存池的统计信息快照，需要遍历小页，与其他方法一样只能在内存池所在的线程调用
+     */
+    public PoolStats stats() {
+        long[] levelUsed = new long[PoolConfig.HUGE_LEVEL + 1];
+        int[] levelPageCounts = new int[PoolConfig.HUGE_LEVEL + 1];
+        long littleUsed = 0;
+        int littlePages = 0;
+        for (int level = 2; level < PoolConfig.HUGE_LEVEL; level++) {
+            for (Page page : levelPages.get(level)) {
+                levelUsed[level] += page.usedBytes();
+            }
+            levelPageCounts[level] = levelPages.get(level).size();
+            littleUsed += levelUsed[level];
+            littlePages += levelPageCounts[level];
+        }
+        levelUsed[PoolConfig.HUGE_LEVEL] = usedBytes - littleUsed;
+        levelPageCounts[PoolConfig.HUGE_LEVEL] = pages.size() - littlePages;
+        return new PoolStats(usedBytes, reservedBytes, levelUsed, levelReservedBytes.clone(), levelPageCounts,
+                allocations, frees, failedAllocations);
+    }
+
+    /**
+     * 大页压缩的统计信息，未开启压缩时全部为0
+     */
+    public CompressionStats compressionStats() {
+        return new CompressionStats(compressedValues, incompressibleValues, compressedOriginalBytes, compressedBytes,
+                compressNanos, decompressNanos);
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 设置 {@link PoolConfig.ExhaustionPolicy#RECLAIM} 时调用的回收回调
+     */
+    public void setReclaimHook(ReclaimHook hook) {
+        config.reclaimHook = hook;
     }
 
     public long usedBlocks(){
@@ -0,0 +1,524 @@
+package zone.chenfeng.JMemPool.impl;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+import zone.chenfeng.JMemPool.profiler.AllocationProfiler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 线程安全的内存池<br>
+ * 用一把锁保护 {@link SimpleMemoryPool} 的所有操作，实现简单但所有操作都是串行的。
+ * 只释放不分配的线程可以使用不加锁的 {@link #freeRemote(long)}。<br>
+ * 小页的读取（get、类型化的get和length）不加锁：每个小页有一个版本号，写入前后各加一（seqlock），
+ * 读取前后检查版本号，期间同一页有写入时重试，连续失败 {@link #OPTIMISTIC_RETRIES} 次后加锁读取。
+ * 读线程不写共享内存，多个读线程之间没有竞争。大页和流式存储的数据在堆上的列表中，仍然加锁读取。
+ * 关闭内存池时不能有并发的读取。<br>
+ * 配置了 {@link PoolConfig.ExhaustionPolicy#BLOCK} 时，达到容量上限的分配会阻塞，直到其他线程释放内存或超时，
+ * 超时后返回 {@link #NULL_POINTER}
+ */
+public class SynchronizedMemoryPool implements IMemoryPool {
+
+    /**
+     * 乐观读连续失败的次数上限，超过后加锁读取
+     */
+    static final int OPTIMISTIC_RETRIES = 8;
+    /**
+     * 阻塞等待分配时检查待释放列表的间隔
+     */
+    static final long REMOTE_FREE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    final SimpleMemoryPool pool;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * 有内存被释放时通知等待分配的线程
+     */
+    private final Condition freed = lock.newCondition();
+
+    public SynchronizedMemoryPool() {
+        this(new PoolConfig());
+    }
+
+    public SynchronizedMemoryPool(PoolConfig config) {
+        this.pool = new SimpleMemoryPool(config);
+    }
+
+    @Override
+    public long malloc(int size) {
+        lock.lock();
+        try {
+            long pointer = pool.malloc(size);
+            if (pointer != NULL_POINTER || !isBlocking()) {
+                return pointer;
+            }
+            long nanos = TimeUnit.MILLISECONDS.toNanos(pool.config.blockTimeoutMillis);
+            while (pointer == NULL_POINTER && nanos > 0) {
+                nanos = awaitFreed(nanos);
+                pointer = pool.malloc(size);
+            }
+            return pointer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NULL_POINTER;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long mallocAligned(int size, int alignment) {
+        lock.lock();
+        try {
+            long pointer = pool.mallocAligned(size, alignment);
+            if (pointer != NULL_POINTER || !isBlocking()) {
+                return pointer;
+            }
+            long nanos = TimeUnit.MILLISECONDS.toNanos(pool.config.blockTimeoutMillis);
+            while (pointer == NULL_POINTER && nanos > 0) {
+                nanos = awaitFreed(nanos);
+                pointer = pool.mallocAligned(size, alignment);
+            }
+            return pointer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NULL_POINTER;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void free(long pointer) {
+        lock.lock();
+        SimpleMemoryPool.LittlePage written = null;
+        try {
+            written = pool.beginWrite(pointer);
+            pool.free(pointer);
+            freed.signalAll();
+        } finally {
+            SimpleMemoryPool.endWrite(written);
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 不加锁的释放，见 {@link SimpleMemoryPool#freeRemote(long)}，下一次分配时在锁内批量释放<br>
+     * 阻塞策略下如果锁空闲，立即释放并唤醒等待分配的线程；锁被占用时由等待的线程定期检查待释放列表，见 {@link #awaitFreed(long)}
+     */
+    public void freeRemote(long pointer) {
+        pool.freeRemote(pointer);
+        if (isBlocking() && lock.tryLock()) {
+            try {
+                if (pool.drainRemoteFrees() > 0) {
+                    freed.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public long put(long pointer, byte[] data) {
+        lock.lock();
+        try {
+            long result = putOnce(pointer, data);
+            if (result != NULL_POINTER || !isBlocking()) {
+                return result;
+            }
+            long nanos = TimeUnit.MILLISECONDS.toNanos(pool.config.blockTimeoutMillis);
+            while (result == NULL_POINTER && nanos > 0) {
+                nanos = awaitFreed(nanos);
+                result = putOnce(pointer, data);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NULL_POINTER;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long append(long pointer, byte[] data) {
+        lock.lock();
+        try {
+            long result = appendOnce(pointer, data);
+            if (result != NULL_POINTER || !isBlocking()) {
+                return result;
+            }
+            long nanos = TimeUnit.MILLISECONDS.toNanos(pool.config.blockTimeoutMillis);
+            while (result == NULL_POINTER && nanos > 0) {
+                nanos = awaitFreed(nanos);
+                result = appendOnce(pointer, data);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NULL_POINTER;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long realloc(long pointer, int newSize) {
+        lock.lock();
+        try {
+            long result = reallocOnce(pointer, newSize);
+            if (result != NULL_POINTER || !isBlocking()) {
+                return result;
+            }
+            long nanos = TimeUnit.MILLISECONDS.toNanos(pool.config.blockTimeoutMillis);
+            while (result == NULL_POINTER && nanos > 0) {
+                nanos = awaitFreed(nanos);
+                result = reallocOnce(pointer, newSize);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NULL_POINTER;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * 阻塞策略下的每次写入尝试单独更新版本号：等待期间锁被释放，版本号不能停在奇数，
+     * 否则其他写线程的beginWrite/endWrite会把它变成偶数，乐观读在写入过程中也能校验通过
+     */
+
+    private long putOnce(long pointer, byte[] data) {
+        SimpleMemoryPool.LittlePage written = pool.beginWrite(pointer);
+        try {
+            return pool.put(pointer, data);
+        } finally {
+            SimpleMemoryPool.endWrite(written);
+        }
+    }
+
+    private long appendOnce(long pointer, byte[] data) {
+        SimpleMemoryPool.LittlePage written = pool.beginWrite(pointer);
+        try {
+            return pool.append(pointer, data);
+        } finally {
+            SimpleMemoryPool.endWrite(written);
+        }
+    }
+
+    private long reallocOnce(long pointer, int newSize) {
+        SimpleMemoryPool.LittlePage written = pool.beginWrite(pointer);
+        try {
+            return pool.realloc(pointer, newSize);
+        } finally {
+            SimpleMemoryPool.endWrite(written);
+        }
+    }
+
+    @Override
+    public long put(byte[] data) {
+        lock.lock();
+        try {
+            long pointer = malloc(data.length);
+            if (pointer == NULL_POINTER) {
+                return NULL_POINTER;
+            }
+            return pool.put(pointer, data);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] get(long pointer) {
+        SimpleMemoryPool.LittlePage page = pool.optimisticLittlePage(pointer);
+        if (page != null) {
+            for (int i = 0; i < OPTIMISTIC_RETRIES; i++) {
+                long stamp = page.readStamp();
+                byte[] value = page.get(SimpleMemoryPool.getOffset(pointer));
+                if (page.validate(stamp)) {
+                    return value;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        lock.lock();
+        try {
+            return pool.get(pointer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long usedBytes() {
+        lock.lock();
+        try {
+            return pool.usedBytes();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int length(long pointer) {
+        // 小页的数据长度在指针中，只需要确认是小页
+        if (pool.optimisticLittlePage(pointer) != null) {
+            return SimpleMemoryPool.LittlePage.getSize(SimpleMemoryPool.getOffset(pointer));
+        }
+        lock.lock();
+        try {
+            return pool.length(pointer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte getByte(long pointer, int offset) {
+        SimpleMemoryPool.LittlePage page = pool.optimisticLittlePage(pointer);
+        if (page != null) {
+            for (int i = 0; i < OPTIMISTIC_RETRIES; i++) {
+                long stamp = page.readStamp();
+                byte value = page.getByte(SimpleMemoryPool.getOffset(pointer), offset);
+                if (page.validate(stamp)) {
+                    return value;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        lock.lock();
+        try {
+            return pool.getByte(pointer, offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putByte(long pointer, int offset, byte value) {
+        lock.lock();
+        SimpleMemoryPool.LittlePage written = null;
+        try {
+            written = pool.beginWrite(pointer);
+            pool.putByte(pointer, offset, value);
+        } finally {
+            SimpleMemoryPool.endWrite(written);
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public short getShort(long pointer, int offset) {
+        SimpleMemoryPool.LittlePage page = pool.optimisticLittlePage(pointer);
+        if (page != null) {
+            for (int i = 0; i < OPTIMISTIC_RETRIES; i++) {
+                long stamp = page.readStamp();
+                short value = page.getShort(SimpleMemoryPool.getOffset(pointer), offset);
+                if (page.validate(stamp)) {
+                    return value;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        lock.lock();
+        try {
+            return pool.getShort(pointer, offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putShort(long pointer, int offset, short value) {
+        lock.lock();
+        SimpleMemoryPool.LittlePage written = null;
+        try {
+            written = pool.beginWrite(pointer);
+            pool.putShort(pointer, offset, value);
+        } finally {
+            SimpleMemoryPool.endWrite(written);
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getInt(long pointer, int offset) {
+        SimpleMemoryPool.LittlePage page = pool.optimisticLittlePage(pointer);
+        if (page != null) {
+            for (int i = 0; i < OPTIMISTIC_RETRIES; i++) {
+                long stamp = page.readStamp();
+                int value = page.getInt(SimpleMemoryPool.getOffset(pointer), offset);
+                if (page.validate(stamp)) {
+                    return value;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        lock.lock();
+        try {
+            return pool.getInt(pointer, offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putInt(long pointer, int offset, int value) {
+        lock.lock();
+        SimpleMemoryPool.LittlePage written = null;
+        try {
+            written = pool.beginWrite(pointer);
+            pool.putInt(pointer, offset, value);
+        } finally {
+            SimpleMemoryPool.endWrite(written);
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getLong(long pointer, int offset) {
+        SimpleMemoryPool.LittlePage page = pool.optimisticLittlePage(pointer);
+        if (page != null) {
+            for (int i = 0; i < OPTIMISTIC_RETRIES; i++) {
+                long stamp = page.readStamp();
+                long value = page.getLong(SimpleMemoryPool.getOffset(pointer), offset);
+                if (page.validate(stamp)) {
+                    return value;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        lock.lock();
+        try {
+            return pool.getLong(pointer, offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putLong(long pointer, int offset, long value) {
+        lock.lock();
+        SimpleMemoryPool.LittlePage written = null;
+        try {
+            written = pool.beginWrite(pointer);
+            pool.putLong(pointer, offset, value);
+        } finally {
+            SimpleMemoryPool.endWrite(written);
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void getBytes(long pointer, int offset, byte[] dst, int dstOffset, int length) {
+        SimpleMemoryPool.LittlePage page = pool.optimisticLittlePage(pointer);
+        if (page != null) {
+            for (int i = 0; i < OPTIMISTIC_RETRIES; i++) {
+                long stamp = page.readStamp();
+                // 校验失败时dst中可能是写了一半的数据，重试时整体覆盖
+                page.getBytes(SimpleMemoryPool.getOffset(pointer), offset, dst, dstOffset, length);
+                if (page.validate(stamp)) {
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        lock.lock();
+        try {
+            pool.getBytes(pointer, offset, dst, dstOffset, length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putBytes(long pointer, int offset, byte[] src, int srcOffset, int length) {
+        lock.lock();
+        SimpleMemoryPool.LittlePage written = null;
+        try {
+            written = pool.beginWrite(pointer);
+            pool.putBytes(pointer, offset, src, srcOffset, length);
+        } finally {
+            SimpleMemoryPool.endWrite(written);
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setProfiler(AllocationProfiler profiler) {
+        lock.lock();
+        try {
+            pool.setProfiler(profiler);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long reservedBytes() {
+        lock.lock();
+        try {
+            return pool.reservedBytes();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long failedAllocations() {
+        lock.lock();
+        try {
+            return pool.failedAllocations();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public PoolStats stats() {
+        lock.lock();
+        try {
+            return pool.stats();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CompressionStats compressionStats() {
+        lock.lock();
+        try {
+            return pool.compressionStats();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 阻塞策略下等待其他线程释放内存，调用时持有锁<br>
+     * {@link #freeRemote(long)} 拿不到锁时无法通知，因此等待前先批量释放待释放列表，
+     * 并且每次最多等待 {@link #REMOTE_FREE_POLL_NANOS}，醒来后由调用方重试分配
+     * @return 剩余的等待时间，纳秒
+     */
+    private long awaitFreed(long nanos) throws InterruptedException {
+        if (pool.drainRemoteFrees() > 0) {
+            // 已经有内存被释放，不等待直接重试
+            return nanos;
+        }
+        long slice = Math.min(nanos, REMOTE_FREE_POLL_NANOS);
+        return nanos - slice + freed.awaitNanos(slice);
+    }
+
+    private boolean isBlocking() {
+        return pool.config.exhaustionPolicy == PoolConfig.ExhaustionPolicy.BLOCK;
+    }
+
+    @Override
+    public void close() throws Exception {
+        lock.lock();
+        try {
+            pool.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
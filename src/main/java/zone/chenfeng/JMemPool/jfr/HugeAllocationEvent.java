@@ -0,0 +1,41 @@
+package zone.chenfeng.JMemPool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+
+/**
+ * 大页中分配了一个不小于minSize的value，默认记录调用栈<br>
+ * minSize在JFR的配置中设置，例如 {@code zone.chenfeng.JMemPool.HugeAllocation#minSize=1 MB}
+ */
+@Name("zone.chenfeng.JMemPool.HugeAllocation")
+@Label("Huge Allocation")
+@Category({"JMemPool", "Memory Pool"})
+@Description("A value larger than the minimum size was stored in a huge page")
+@Enabled(false)
+public class HugeAllocationEvent extends Event {
+
+    @Label("Size")
+    @Description("Length of the value")
+    @DataAmount
+    public long size;
+
+    @Label("Stored Bytes")
+    @Description("Bytes stored in the huge page, including the header and after compression")
+    @DataAmount
+    public long storedBytes;
+
+    @Label("Compressed")
+    public boolean compressed;
+
+    @Label("Minimum Size")
+    @SettingDefinition
+    protected boolean minSize(SizeSetting setting) {
+        return size >= setting.bytes();
+    }
+}
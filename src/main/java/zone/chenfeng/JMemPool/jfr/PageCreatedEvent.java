@@ -0,0 +1,38 @@
+package zone.chenfeng.JMemPool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 内存池新建了一个页
+ */
+@Name("zone.chenfeng.JMemPool.PageCreated")
+@Label("Page Created")
+@Category({"JMemPool", "Memory Pool"})
+@Description("A memory pool created a new page")
+@Enabled(false)
+@StackTrace(false)
+public class PageCreatedEvent extends Event {
+
+    @Label("Page Type")
+    @Description("little, huge or chunk")
+    public String pageType;
+
+    @Label("Level")
+    @Description("Block size exponent for little pages, 9 for huge pages and chunks")
+    public int level;
+
+    @Label("Page Number")
+    public int pageNum;
+
+    @Label("Bytes")
+    @Description("Off-heap bytes reserved by the page, 0 for huge pages that store values on the heap")
+    @DataAmount
+    public long bytes;
+}
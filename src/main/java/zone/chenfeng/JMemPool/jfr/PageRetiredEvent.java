@@ -0,0 +1,34 @@
+package zone.chenfeng.JMemPool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 内存池释放了一个页的内存
+ */
+@Name("zone.chenfeng.JMemPool.PageRetired")
+@Label("Page Retired")
+@Category({"JMemPool", "Memory Pool"})
+@Description("A memory pool released the memory of a page")
+@Enabled(false)
+@StackTrace(false)
+public class PageRetiredEvent extends Event {
+
+    @Label("Page Type")
+    @Description("little, huge or chunk")
+    public String pageType;
+
+    @Label("Page Number")
+    public int pageNum;
+
+    @Label("Used Bytes")
+    @Description("Bytes still allocated in the page when it was released")
+    @DataAmount
+    public long usedBytes;
+}
@@ -0,0 +1,38 @@
+package zone.chenfeng.JMemPool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 修改value时原内存块放不下，重新分配并复制了数据
+ */
+@Name("zone.chenfeng.JMemPool.Relocation")
+@Label("Relocation")
+@Category({"JMemPool", "Memory Pool"})
+@Description("A value outgrew its block and was copied to a new block")
+@Enabled(false)
+@StackTrace(false)
+public class RelocationEvent extends Event {
+
+    @Label("Operation")
+    @Description("put or append")
+    public String operation;
+
+    @Label("Old Length")
+    @DataAmount
+    public long oldLength;
+
+    @Label("New Length")
+    @DataAmount
+    public long newLength;
+
+    @Label("Chunked")
+    @Description("Whether the value was converted to chunked storage")
+    public boolean chunked;
+}
@@ -0,0 +1,79 @@
+package zone.chenfeng.JMemPool.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.MetadataDefinition;
+import jdk.jfr.Name;
+import jdk.jfr.SettingControl;
+
+import java.util.Set;
+
+/**
+ * 按字节数过滤事件的JFR设置，取值如 {@code 0}、{@code 64 kB}、{@code 1 MB}<br>
+ * 多个录制同时设置时取最小值，满足任意一个录制的条件就记录
+ */
+@MetadataDefinition
+@Name("zone.chenfeng.JMemPool.SizeSetting")
+@Label("Size")
+@Description("Minimum size in bytes, e.g. 0, 64 kB or 1 MB")
+public class SizeSetting extends SettingControl {
+    private static final String DEFAULT = "1 MB";
+
+    private String value = DEFAULT;
+    private volatile long bytes = parse(DEFAULT);
+
+    long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public String combine(Set<String> values) {
+        String min = null;
+        long minBytes = Long.MAX_VALUE;
+        for (String v : values) {
+            long b = parse(v);
+            if (b < minBytes) {
+                minBytes = b;
+                min = v;
+            }
+        }
+        return min == null ? DEFAULT : min;
+    }
+
+    @Override
+    public void setValue(String value) {
+        this.bytes = parse(value);
+        this.value = value;
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 解析带单位的字节数，单位为B、kB、MB、GB（1024进制），无法解析时不过滤
+     */
+    static long parse(String value) {
+        String v = value.trim();
+        long unit = 1;
+        String upper = v.toUpperCase();
+        if (upper.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (upper.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (upper.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        if (unit != 1) {
+            v = v.substring(0, v.length() - 2).trim();
+        } else if (upper.endsWith("B")) {
+            v = v.substring(0, v.length() - 1).trim();
+        }
+        try {
+            return Long.parseLong(v) * unit;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
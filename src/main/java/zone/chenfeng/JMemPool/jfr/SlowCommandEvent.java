@@ -0,0 +1,35 @@
+package zone.chenfeng.JMemPool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 服务端执行时间超过阈值的命令，阈值默认10ms，在JFR的配置中修改
+ */
+@Name("zone.chenfeng.JMemPool.SlowCommand")
+@Label("Slow Command")
+@Category({"JMemPool", "Server"})
+@Description("A server command that took longer than the threshold to execute")
+@Enabled(false)
+@Threshold("10 ms")
+@StackTrace(false)
+public class SlowCommandEvent extends Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Value Size")
+    @Description("Length of the value in the request for writes, length of the response otherwise")
+    @DataAmount
+    public long valueSize;
+}
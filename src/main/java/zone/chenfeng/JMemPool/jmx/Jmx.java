@@ -0,0 +1,43 @@
+package zone.chenfeng.JMemPool.jmx;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * 在平台MBeanServer中注册MBean，域名为 {@value #DOMAIN}
+ */
+public final class Jmx {
+    public static final String DOMAIN = "zone.chenfeng.JMemPool";
+
+    private Jmx() {
+    }
+
+    /**
+     * 注册MBean，同名的MBean已存在时替换
+     * @return 注册的ObjectName，用于 {@link #unregister(ObjectName)}
+     * @throws IllegalArgumentException name不是合法的ObjectName属性值，或mbean不是合法的MBean
+     */
+    public static ObjectName register(Object mbean, String type, String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Failed to register MBean " + name, e);
+        }
+    }
+
+    public static void unregister(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            // 已经注销
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package zone.chenfeng.JMemPool.jmx;
+
+/**
+ * 内存池的JMX接口，ObjectName为 {@code zone.chenfeng.JMemPool:type=MemoryPool,name=...}<br>
+ * 按级别的数组下标为级别：2~8为小页，9为大页（包括流式存储的段），0和1不使用
+ */
+public interface PoolMXBean {
+
+    long getUsedBytes();
+
+    long getReservedBytes();
+
+    long[] getLevelUsedBytes();
+
+    long[] getLevelReservedBytes();
+
+    int getPageCount();
+
+    int[] getLevelPageCounts();
+
+    long getAllocations();
+
+    long getFrees();
+
+    long getFailedAllocations();
+
+    /**
+     * 最近一个统计周期内每秒分配的内存块个数
+     */
+    double getAllocationRate();
+
+    /**
+     * 最近一个统计周期内每秒释放的内存块个数
+     */
+    double getFreeRate();
+}
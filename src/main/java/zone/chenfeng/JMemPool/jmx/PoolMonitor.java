@@ -0,0 +1,79 @@
+package zone.chenfeng.JMemPool.jmx;
+
+import zone.chenfeng.JMemPool.impl.PoolStats;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link PoolMXBean} 的实现，每次读取属性时通过stats获取快照<br>
+ * stats在JMX的线程中调用，需要是线程安全的，例如 {@link zone.chenfeng.JMemPool.impl.SynchronizedMemoryPool#stats()}，
+ * 或者由内存池所在的线程定期刷新的快照。内存池本身不因为监控增加任何开销
+ */
+public class PoolMonitor implements PoolMXBean {
+
+    private final Supplier<PoolStats> stats;
+    private final RateMeter allocationRate;
+    private final RateMeter freeRate;
+
+    public PoolMonitor(Supplier<PoolStats> stats) {
+        this.stats = stats;
+        PoolStats current = stats.get();
+        allocationRate = new RateMeter(current.getAllocations());
+        freeRate = new RateMeter(current.getFrees());
+    }
+
+    @Override
+    public long getUsedBytes() {
+        return stats.get().getUsedBytes();
+    }
+
+    @Override
+    public long getReservedBytes() {
+        return stats.get().getReservedBytes();
+    }
+
+    @Override
+    public long[] getLevelUsedBytes() {
+        return stats.get().getLevelUsedBytes();
+    }
+
+    @Override
+    public long[] getLevelReservedBytes() {
+        return stats.get().getLevelReservedBytes();
+    }
+
+    @Override
+    public int getPageCount() {
+        return stats.get().getPageCount();
+    }
+
+    @Override
+    public int[] getLevelPageCounts() {
+        return stats.get().getLevelPageCounts();
+    }
+
+    @Override
+    public long getAllocations() {
+        return stats.get().getAllocations();
+    }
+
+    @Override
+    public long getFrees() {
+        return stats.get().getFrees();
+    }
+
+    @Override
+    public long getFailedAllocations() {
+        return stats.get().getFailedAllocations();
+    }
+
+    @Override
+    public double getAllocationRate() {
+        return allocationRate.rate(stats.get().getAllocations());
+    }
+
+    @Override
+    public double getFreeRate() {
+        return freeRate.rate(stats.get().getFrees());
+    }
+}
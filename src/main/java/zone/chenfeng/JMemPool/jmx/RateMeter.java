@@ -0,0 +1,33 @@
+package zone.chenfeng.JMemPool.jmx;
+
+/**
+ * 根据累计计数计算速率<br>
+ * 每次读取时与上一个采样点比较，距离上一个采样点不足1秒时返回上一次的结果，避免频繁读取时速率抖动
+ */
+class RateMeter {
+    private static final long MIN_INTERVAL_NANOS = 1_000_000_000L;
+
+    private long lastCount;
+    private long lastNanos;
+    private double rate;
+
+    RateMeter(long count) {
+        lastCount = count;
+        lastNanos = System.nanoTime();
+    }
+
+    /**
+     * @param count 当前的累计计数
+     * @return 每秒的增量
+     */
+    synchronized double rate(long count) {
+        long now = System.nanoTime();
+        long elapsed = now - lastNanos;
+        if (elapsed >= MIN_INTERVAL_NANOS) {
+            rate = (count - lastCount) * 1e9 / elapsed;
+            lastCount = count;
+            lastNanos = now;
+        }
+        return rate;
+    }
+}
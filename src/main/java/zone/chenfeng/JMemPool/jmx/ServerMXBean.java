@@ -0,0 +1,47 @@
+package zone.chenfeng.JMemPool.jmx;
+
+import java.util.Map;
+
+/**
+ * 服务端的JMX接口，ObjectName为 {@code zone.chenfeng.JMemPool:type=Server,name=...}<br>
+ * 延迟是命令在服务端的执行耗时，不包括网络传输，单位微秒
+ */
+public interface ServerMXBean {
+
+    long getConnections();
+
+    long getTotalConnections();
+
+    long getCommands();
+
+    /**
+     * 最近一个统计周期内每秒的请求数
+     */
+    double getCommandRate();
+
+    Map<String, Long> getCommandCounts();
+
+    /**
+     * 命令类型 -> 最近一个统计周期内每秒的请求数
+     */
+    Map<String, Double> getCommandRates();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    double getLatencyMeanMicros();
+
+    double getLatencyP50Micros();
+
+    double getLatencyP99Micros();
+
+    double getLatencyP999Micros();
+
+    double getLatencyMaxMicros();
+
+    /**
+     * 清空延迟直方图（包括按命令类型的直方图），之后的分位数只统计新的请求
+     */
+    void resetLatency();
+}
@@ -0,0 +1,100 @@
+package zone.chenfeng.JMemPool.jmx;
+
+import zone.chenfeng.JMemPool.server.LatencyHistogram;
+import zone.chenfeng.JMemPool.server.ServerStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link ServerMXBean} 的实现，直接读取 {@link ServerStats} 的计数
+ */
+public class ServerMonitor implements ServerMXBean {
+
+    private final ServerStats stats;
+    private final RateMeter commandRate;
+    private final Map<String, RateMeter> commandRates = new LinkedHashMap<>();
+
+    public ServerMonitor(ServerStats stats) {
+        this.stats = stats;
+        commandRate = new RateMeter(stats.commands());
+        stats.commandCounts().forEach((type, count) -> commandRates.put(type, new RateMeter(count)));
+    }
+
+    @Override
+    public long getConnections() {
+        return stats.connections();
+    }
+
+    @Override
+    public long getTotalConnections() {
+        return stats.totalConnections();
+    }
+
+    @Override
+    public long getCommands() {
+        return stats.commands();
+    }
+
+    @Override
+    public double getCommandRate() {
+        return commandRate.rate(stats.commands());
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        return stats.commandCounts();
+    }
+
+    @Override
+    public Map<String, Double> getCommandRates() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        stats.commandCounts().forEach((type, count) -> rates.put(type, commandRates.get(type).rate(count)));
+        return rates;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return stats.bytesIn();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return stats.bytesOut();
+    }
+
+    @Override
+    public double getLatencyMeanMicros() {
+        return stats.latency().mean() / 1000;
+    }
+
+    @Override
+    public double getLatencyP50Micros() {
+        return percentileMicros(0.5);
+    }
+
+    @Override
+    public double getLatencyP99Micros() {
+        return percentileMicros(0.99);
+    }
+
+    @Override
+    public double getLatencyP999Micros() {
+        return percentileMicros(0.999);
+    }
+
+    @Override
+    public double getLatencyMaxMicros() {
+        return stats.latency().max() / 1000.0;
+    }
+
+    @Override
+    public void resetLatency() {
+        stats.resetLatency();
+    }
+
+    private double percentileMicros(double quantile) {
+        LatencyHistogram latency = stats.latency();
+        return latency.percentile(quantile) / 1000.0;
+    }
+}
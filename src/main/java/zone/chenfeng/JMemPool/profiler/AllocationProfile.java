@@ -0,0 +1,182 @@
+package zone.chenfeng.JMemPool.profiler;
+
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link AllocationProfiler} 的采样结果快照：按调用点汇总的估算字节数和存活时间，以及按大小级别的直方图
+ */
+public class AllocationProfile {
+
+    /**
+     * 一个调用点的采样统计，调用点是内存池和集合类之外的第一个栈帧
+     */
+    public static final class CallSite {
+        private final StackTraceElement frame;
+        private final List<StackTraceElement> stack;
+        private long samples;
+        private double estimatedBytes;
+        private long freedSamples;
+        private long totalLifetimeNanos;
+        private long maxLifetimeNanos;
+
+        CallSite(StackTraceElement frame, List<StackTraceElement> stack) {
+            this.frame = frame;
+            this.stack = Collections.unmodifiableList(stack);
+        }
+
+        void sampled(double weight) {
+            samples++;
+            estimatedBytes += weight;
+        }
+
+        void freed(long lifetimeNanos) {
+            freedSamples++;
+            totalLifetimeNanos += lifetimeNanos;
+            maxLifetimeNanos = Math.max(maxLifetimeNanos, lifetimeNanos);
+        }
+
+        CallSite copy() {
+            CallSite copy = new CallSite(frame, stack);
+            copy.samples = samples;
+            copy.estimatedBytes = estimatedBytes;
+            copy.freedSamples = freedSamples;
+            copy.totalLifetimeNanos = totalLifetimeNanos;
+            copy.maxLifetimeNanos = maxLifetimeNanos;
+            return copy;
+        }
+
+        public StackTraceElement frame() {
+            return frame;
+        }
+
+        /**
+         * 第一次采样时从调用点开始的调用栈
+         */
+        public List<StackTraceElement> stack() {
+            return stack;
+        }
+
+        public long samples() {
+            return samples;
+        }
+
+        /**
+         * 估算的分配字节数
+         */
+        public double estimatedBytes() {
+            return estimatedBytes;
+        }
+
+        /**
+         * 已释放的样本数，其余的样本仍然存活
+         */
+        public long freedSamples() {
+            return freedSamples;
+        }
+
+        public long liveSamples() {
+            return samples - freedSamples;
+        }
+
+        /**
+         * 已释放样本的平均存活时间，没有已释放的样本时为0
+         */
+        public double meanLifetimeNanos() {
+            return freedSamples == 0 ? 0 : (double) totalLifetimeNanos / freedSamples;
+        }
+
+        public long maxLifetimeNanos() {
+            return maxLifetimeNanos;
+        }
+    }
+
+    private final long samplingInterval;
+    private final long allocatedBytes;
+    private final long samples;
+    private final List<CallSite> callSites;
+    private final long[] sizeClassSamples;
+    private final double[] sizeClassBytes;
+
+    AllocationProfile(long samplingInterval, long allocatedBytes, long samples, List<CallSite> callSites,
+                      long[] sizeClassSamples, double[] sizeClassBytes) {
+        this.samplingInterval = samplingInterval;
+        this.allocatedBytes = allocatedBytes;
+        this.samples = samples;
+        this.callSites = Collections.unmodifiableList(callSites);
+        this.sizeClassSamples = sizeClassSamples;
+        this.sizeClassBytes = sizeClassBytes;
+    }
+
+    public long samplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * 实际分配的字节数（不是估算值）
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long samples() {
+        return samples;
+    }
+
+    /**
+     * 按估算字节数从大到小排列的调用点
+     */
+    public List<CallSite> callSites() {
+        return callSites;
+    }
+
+    /**
+     * 每个大小级别的样本数，下标为级别：2~8为小页，{@link PoolConfig#HUGE_LEVEL} 为大页
+     */
+    public long[] sizeClassSamples() {
+        return sizeClassSamples.clone();
+    }
+
+    /**
+     * 每个大小级别估算的分配字节数，下标同 {@link #sizeClassSamples()}
+     */
+    public double[] sizeClassBytes() {
+        return sizeClassBytes.clone();
+    }
+
+    /**
+     * 文本报告，包括估算字节数最多的top个调用点和大小直方图
+     */
+    public String format(int top) {
+        double total = 0;
+        for (CallSite site : callSites) {
+            total += site.estimatedBytes;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Sampling interval: %d bytes, allocated: %d bytes, samples: %d%n",
+                samplingInterval, allocatedBytes, samples));
+        sb.append("Bytes by call site:\n");
+        for (int i = 0; i < Math.min(top, callSites.size()); i++) {
+            CallSite site = callSites.get(i);
+            sb.append(String.format("  %5.1f%% %12.0f  samples=%d live=%d lifetime(mean/max)=%.3f/%.3f ms  %s%n",
+                    total == 0 ? 0 : site.estimatedBytes * 100 / total, site.estimatedBytes, site.samples,
+                    site.liveSamples(), site.meanLifetimeNanos() / 1e6, site.maxLifetimeNanos / 1e6, site.frame));
+        }
+        sb.append("Size histogram:\n");
+        for (int level = 2; level <= PoolConfig.HUGE_LEVEL; level++) {
+            if (sizeClassSamples[level] == 0) {
+                continue;
+            }
+            String name = level == PoolConfig.HUGE_LEVEL ? "huge" : String.valueOf(1 << level);
+            sb.append(String.format("  %6s %12.0f  samples=%d%n", name, sizeClassBytes[level], sizeClassSamples[level]));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format(10);
+    }
+}
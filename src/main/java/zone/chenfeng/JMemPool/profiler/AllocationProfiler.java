@@ -0,0 +1,232 @@
+package zone.chenfeng.JMemPool.profiler;
+
+import zone.chenfeng.JMemPool.collections.LongLongHashMap;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * 内存池的分配采样分析器，通过 {@link zone.chenfeng.JMemPool.IMemoryPool#setProfiler(AllocationProfiler)} 开启<br>
+ * 按分配的字节数采样：平均每分配samplingInterval字节采样一次，采样间隔服从指数分布，避免与固定的分配模式同步。
+ * 被采样的分配记录大小级别和调用栈，释放时记录存活时间。按调用点汇总估算的字节数，大的分配更容易被采样，
+ * 每个样本按 {@code size / (1 - e^(-size/interval))} 加权，估算是无偏的。
+ * <p>
+ * 未采样的分配只有一次减法和比较，未采样的释放只检查一次计数过滤器，采样时才获取调用栈。采样间隔越大开销越小，默认512KB。
+ * 分配和释放的回调只能由内存池所在的线程调用，{@link #profile()} 和 {@link #reset()} 可以在任意线程调用
+ * </p>
+ */
+public class AllocationProfiler implements AutoCloseable {
+    public static final long DEFAULT_SAMPLING_INTERVAL = 512 * 1024;
+    static final int MAX_STACK_DEPTH = 32;
+    /**
+     * 内存池和封装内存池的库代码，调用点取这些包之外的第一个栈帧
+     */
+    private static final String[] LIBRARY_PACKAGES = {
+            "zone.chenfeng.JMemPool.impl.",
+            "zone.chenfeng.JMemPool.profiler.",
+            "zone.chenfeng.JMemPool.collections.",
+            "zone.chenfeng.JMemPool.struct.",
+    };
+    private static final long NO_SAMPLE = -1;
+    private static final int FILTER_BITS = 12;
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final long samplingInterval;
+    private final SplittableRandom random;
+    /**
+     * 距离下一次采样还需要分配的字节数
+     */
+    private long bytesUntilSample;
+    /**
+     * 已经生成的采样间隔之和，减去bytesUntilSample就是分配的字节数，分配时不需要单独累加
+     */
+    private long intervalSum;
+
+    /**
+     * 存活的样本：内存块 -> 样本编号，用独立的内存池存储，释放时查找不装箱
+     */
+    private final SimpleMemoryPool indexPool = new SimpleMemoryPool();
+    private final LongLongHashMap liveBlocks = new LongLongHashMap(indexPool, NO_SAMPLE);
+    private final Map<Long, Sample> liveSamples = new HashMap<>();
+    /**
+     * 存活样本的计数过滤器，下标为内存块标识的哈希，计数为0的内存块一定没有被采样，释放时不需要查找哈希表
+     */
+    private final int[] liveFilter = new int[1 << FILTER_BITS];
+    private long nextSampleId;
+
+    private final Map<StackTraceElement, AllocationProfile.CallSite> callSites = new HashMap<>();
+    private final long[] sizeClassSamples = new long[PoolConfig.HUGE_LEVEL + 1];
+    private final double[] sizeClassBytes = new double[PoolConfig.HUGE_LEVEL + 1];
+    private long samples;
+
+    private static class Sample {
+        final AllocationProfile.CallSite site;
+        final long allocatedNanos;
+
+        Sample(AllocationProfile.CallSite site, long allocatedNanos) {
+            this.site = site;
+            this.allocatedNanos = allocatedNanos;
+        }
+    }
+
+    public AllocationProfiler() {
+        this(DEFAULT_SAMPLING_INTERVAL);
+    }
+
+    /**
+     * @param samplingInterval 平均每分配多少字节采样一次
+     */
+    public AllocationProfiler(long samplingInterval) {
+        this(samplingInterval, new SplittableRandom());
+    }
+
+    /**
+     * @param random 生成采样间隔的随机数，固定种子时采样结果可以复现
+     */
+    public AllocationProfiler(long samplingInterval, SplittableRandom random) {
+        if (samplingInterval <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive");
+        }
+        this.samplingInterval = samplingInterval;
+        this.random = random;
+        bytesUntilSample = nextInterval();
+    }
+
+    /**
+     * 由内存池在分配成功后调用
+     * @param block 内存块的标识，内存块释放前不变
+     * @param bytes 内存块占用的字节数
+     * @param sizeClass 大小级别，2~8为小页，{@link PoolConfig#HUGE_LEVEL} 为大页
+     */
+    public void allocated(long block, int bytes, int sizeClass) {
+        if ((bytesUntilSample -= bytes) > 0) {
+            return;
+        }
+        sample(block, bytes, sizeClass);
+    }
+
+    /**
+     * 由内存池在释放内存块时调用<br>
+     * 过滤器只由内存池所在的线程增加，不加锁读到0说明没有被采样；{@link #reset()} 可能在其他线程并发清空，
+     * 因此查找和修改存活样本都在锁内进行，并在锁内重新检查过滤器
+     */
+    public void freed(long block) {
+        int slot = filterSlot(block);
+        if (liveFilter[slot] == 0) {
+            return;
+        }
+        sampleFreed(block, slot);
+    }
+
+    private synchronized void sample(long block, int bytes, int sizeClass) {
+        // 间隔是无记忆的，采样后重新生成，越过的字节不计入下一个间隔
+        intervalSum -= bytesUntilSample;
+        bytesUntilSample = nextInterval();
+        List<StackWalker.StackFrame> frames = WALKER.walk(s -> s.limit(MAX_STACK_DEPTH).collect(Collectors.toList()));
+        int first = 0;
+        while (first < frames.size() - 1 && isLibraryFrame(frames.get(first))) {
+            first++;
+        }
+        StackTraceElement frame = frames.get(first).toStackTraceElement();
+        AllocationProfile.CallSite site = callSites.get(frame);
+        if (site == null) {
+            List<StackTraceElement> stack = new ArrayList<>(frames.size() - first);
+            for (int i = first; i < frames.size(); i++) {
+                stack.add(frames.get(i).toStackTraceElement());
+            }
+            site = new AllocationProfile.CallSite(frame, stack);
+            callSites.put(frame, site);
+        }
+        double weight = bytes / -Math.expm1(-(double) bytes / samplingInterval);
+        site.sampled(weight);
+        sizeClassSamples[sizeClass]++;
+        sizeClassBytes[sizeClass] += weight;
+        samples++;
+
+        long id = nextSampleId++;
+        long previous = liveBlocks.put(block, id);
+        if (previous != NO_SAMPLE) {
+            // 释放时没有通知分析器，例如内存池关闭后重新使用
+            liveSamples.remove(previous);
+        } else {
+            liveFilter[filterSlot(block)]++;
+        }
+        liveSamples.put(id, new Sample(site, System.nanoTime()));
+    }
+
+    private synchronized void sampleFreed(long block, int slot) {
+        if (liveFilter[slot] == 0) {
+            return;
+        }
+        long id = liveBlocks.remove(block);
+        if (id == NO_SAMPLE) {
+            return;
+        }
+        liveFilter[slot]--;
+        Sample sample = liveSamples.remove(id);
+        sample.site.freed(System.nanoTime() - sample.allocatedNanos);
+    }
+
+    private static int filterSlot(long block) {
+        return (int) ((block * 0x9E3779B97F4A7C15L) >>> (64 - FILTER_BITS));
+    }
+
+    private static boolean isLibraryFrame(StackWalker.StackFrame frame) {
+        String className = frame.getClassName();
+        for (String prefix : LIBRARY_PACKAGES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 指数分布的采样间隔，均值为samplingInterval，至少为1
+     */
+    private long nextInterval() {
+        long interval = (long) (-Math.log(1 - random.nextDouble()) * samplingInterval) + 1;
+        intervalSum += interval;
+        return interval;
+    }
+
+    /**
+     * 当前的采样结果快照
+     */
+    public synchronized AllocationProfile profile() {
+        List<AllocationProfile.CallSite> sites = new ArrayList<>(callSites.size());
+        for (AllocationProfile.CallSite site : callSites.values()) {
+            sites.add(site.copy());
+        }
+        sites.sort((a, b) -> Double.compare(b.estimatedBytes(), a.estimatedBytes()));
+        return new AllocationProfile(samplingInterval, intervalSum - bytesUntilSample, samples, sites,
+                sizeClassSamples.clone(), sizeClassBytes.clone());
+    }
+
+    /**
+     * 清空采样结果，存活的样本不再记录存活时间
+     */
+    public synchronized void reset() {
+        liveBlocks.clear();
+        liveSamples.clear();
+        Arrays.fill(liveFilter, 0);
+        callSites.clear();
+        Arrays.fill(sizeClassSamples, 0);
+        Arrays.fill(sizeClassBytes, 0);
+        samples = 0;
+        intervalSum = bytesUntilSample;
+    }
+
+    @Override
+    public synchronized void close() throws Exception {
+        liveBlocks.close();
+        indexPool.close();
+    }
+}
@@ -0,0 +1,113 @@
+package zone.chenfeng.JMemPool.server;
+
+import zone.chenfeng.JMemPool.collections.Utf8Key;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 在读缓冲区上按字节解析请求，不创建String<br>
+ * 一条请求是以空白分隔的若干参数，空白指空格和ASCII控制字符，与 trim() 后 split("\\s+") 的结果一致。
+ * 解析只记录每个参数在缓冲区数组中的起止位置，数组复用，参数个数不增加时不分配内存。
+ * 解析结果在缓冲区被下一次读取覆盖前有效。非线程安全
+ */
+final class RequestParser {
+    private byte[] data;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+
+    /**
+     * 解析request中position到limit的字节，不修改request的position
+     * @param request 必须是堆上的缓冲区
+     * @return 参数个数
+     */
+    int parse(ByteBuffer request) {
+        data = request.array();
+        int end = request.arrayOffset() + request.limit();
+        count = 0;
+        int i = request.arrayOffset() + request.position();
+        while (true) {
+            while (i < end && isSpace(data[i])) {
+                i++;
+            }
+            if (i == end) {
+                return count;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count << 1);
+                ends = Arrays.copyOf(ends, count << 1);
+            }
+            starts[count] = i;
+            while (i < end && !isSpace(data[i])) {
+                i++;
+            }
+            ends[count++] = i;
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    int count() {
+        return count;
+    }
+
+    byte[] array() {
+        return data;
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    int length(int index) {
+        return ends[index] - starts[index];
+    }
+
+    /**
+     * 第index个参数是否等于name，忽略大小写
+     * @param name 小写字母组成的命令名
+     */
+    boolean is(int index, byte[] name) {
+        if (length(index) != name.length) {
+            return false;
+        }
+        int start = starts[index];
+        for (int i = 0; i < name.length; i++) {
+            // 大写字母置位0x20后变为小写，name中只有字母，其他字符置位后不会相等
+            if ((data[start + i] | 0x20) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 让key指向第index个参数
+     * @return key
+     */
+    Utf8Key key(int index, Utf8Key key) {
+        return key.wrap(data, starts[index], length(index));
+    }
+
+    String arg(int index) {
+        return new String(data, starts[index], length(index), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解码全部参数，没有参数时与 "".split(...) 一致，返回一个空字符串
+     */
+    String[] args() {
+        if (count == 0) {
+            return new String[]{""};
+        }
+        String[] args = new String[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = arg(i);
+        }
+        return args;
+    }
+}
@@ -0,0 +1,162 @@
+package zone.chenfeng.JMemPool.server;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务端的统计信息：连接数、按命令类型的请求数、读写字节数和命令的执行延迟<br>
+ * 计数使用 {@link LongAdder}，由事件循环线程写入，JMX等其他线程可以随时读取
+ */
+public class ServerStats {
+    /**
+     * 不认识的命令统一计入这个类型，避免命令类型无限增长
+     */
+    public static final String OTHER = "other";
+
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder closedConnections = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    /**
+     * 命令类型 -> 请求数和延迟，创建后不再修改
+     */
+    private final Map<String, CommandStats> commands;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    /**
+     * 最近一个采样周期的每秒请求数，由事件循环调用 {@link #sample(long)} 更新
+     */
+    private volatile double instantaneousOps;
+    private long lastSampleCommands;
+    private long lastSampleNanos;
+
+    private static class CommandStats {
+        final LongAdder count = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    /**
+     * @param commandTypes 需要单独计数的命令类型，小写
+     */
+    public ServerStats(String... commandTypes) {
+        Map<String, CommandStats> map = new LinkedHashMap<>();
+        for (String type : commandTypes) {
+            map.put(type, new CommandStats());
+        }
+        map.put(OTHER, new CommandStats());
+        commands = Collections.unmodifiableMap(map);
+        lastSampleNanos = System.nanoTime();
+    }
+
+    void connectionAccepted() {
+        acceptedConnections.increment();
+    }
+
+    void connectionClosed() {
+        closedConnections.increment();
+    }
+
+    void bytesIn(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    void bytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    /**
+     * 记录一次命令
+     * @param type 命令类型，小写
+     * @param nanos 执行耗时
+     */
+    void command(String type, long nanos) {
+        CommandStats command = commands.get(type);
+        if (command == null) {
+            command = commands.get(OTHER);
+        }
+        command.count.increment();
+        command.latency.record(nanos);
+        latency.record(nanos);
+    }
+
+    /**
+     * 当前的连接数
+     */
+    public long connections() {
+        return acceptedConnections.sum() - closedConnections.sum();
+    }
+
+    public long totalConnections() {
+        return acceptedConnections.sum();
+    }
+
+    public long bytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long bytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * 请求数（累计）
+     */
+    public long commands() {
+        long total = 0;
+        for (CommandStats command : commands.values()) {
+            total += command.count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * 命令类型 -> 请求数（累计）
+     */
+    public Map<String, Long> commandCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        commands.forEach((type, command) -> counts.put(type, command.count.sum()));
+        return counts;
+    }
+
+    /**
+     * 命令类型 -> 延迟直方图
+     */
+    public Map<String, LatencyHistogram> commandLatencies() {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        commands.forEach((type, command) -> latencies.put(type, command.latency));
+        return latencies;
+    }
+
+    /**
+     * 清空所有延迟直方图
+     */
+    public void resetLatency() {
+        latency.reset();
+        commands.values().forEach(command -> command.latency.reset());
+    }
+
+    /**
+     * 每秒请求数采样，间隔不足1秒时忽略
+     */
+    void sample(long nanos) {
+        long elapsed = nanos - lastSampleNanos;
+        if (elapsed >= 1_000_000_000L) {
+            long total = commands();
+            instantaneousOps = (total - lastSampleCommands) * 1e9 / elapsed;
+            lastSampleCommands = total;
+            lastSampleNanos = nanos;
+        }
+    }
+
+    /**
+     * 最近一秒左右的每秒请求数
+     */
+    public double instantaneousOps() {
+        return instantaneousOps;
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+}
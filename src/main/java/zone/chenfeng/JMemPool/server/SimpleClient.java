@@ -48,9 +48,30 @@ public class SimpleClient implements IClient {
         channel.write(ByteBuffer.wrap(command.getBytes()));
 
         // 读取响应
+        return readResponse();
+    }
+
+    /**
+     * 读取一条完整的响应，服务端的响应都以换行结尾<br>
+     * 大value的响应可能会分多次到达，需要一直读到换行为止
+     */
+    private String readResponse() throws IOException {
         ByteBuffer buffer = ByteBuffer.allocate(256);
-        buffer.clear();
-        channel.read(buffer);
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            int r = channel.read(buffer);
+            if (r < 0) {
+                throw new IOException("Connection closed by server");
+            }
+            if (buffer.position() > 0 && buffer.get(buffer.position() - 1) == '\n') {
+                break;
+            }
+        }
         buffer.flip();
 
         return Charset.defaultCharset().decode(buffer).toString();
@@ -71,12 +92,7 @@ public class SimpleClient implements IClient {
             channel.write(ByteBuffer.wrap(command.getBytes(StandardCharsets.UTF_8)));
 
             // 读取响应
-            ByteBuffer buffer = ByteBuffer.allocate(256);
-            buffer.clear();
-            channel.read(buffer);
-            buffer.flip();
-
-            return Charset.defaultCharset().decode(buffer).toString();
+            return readResponse();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -90,12 +106,7 @@ public class SimpleClient implements IClient {
             channel.write(ByteBuffer.wrap(command.getBytes(StandardCharsets.UTF_8)));
 
             // 读取响应
-            ByteBuffer buffer = ByteBuffer.allocate(256);
-            buffer.clear();
-            channel.read(buffer);
-            buffer.flip();
-
-            return Charset.defaultCharset().decode(buffer).toString();
+            return readResponse();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
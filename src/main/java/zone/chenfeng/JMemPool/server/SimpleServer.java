@@ -1,33 +1,203 @@
 package zone.chenfeng.JMemPool.server;
 
+import zone.chenfeng.JMemPool.collections.EvictionPolicy;
 import zone.chenfeng.JMemPool.collections.StringMap;
+import zone.chenfeng.JMemPool.collections.StringPool;
+import zone.chenfeng.JMemPool.collections.Utf8Key;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.PoolStats;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.jfr.SlowCommandEvent;
+import zone.chenfeng.JMemPool.jmx.Jmx;
+import zone.chenfeng.JMemPool.jmx.PoolMonitor;
+import zone.chenfeng.JMemPool.jmx.ServerMonitor;
+import zone.chenfeng.JMemPool.trace.TracingMemoryPool;
 
+import jdk.jfr.EventType;
+
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 public class SimpleServer {
 
+    /**
+     * 读缓冲区大小，一条命令需要在一次读取中完整到达，因此要能放下超过256字节的大value
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * 主动过期的间隔，select最多阻塞这么久
+     */
+    static final long EXPIRE_INTERVAL_MS = 100;
+    /**
+     * 每次主动过期最多处理的key个数，避免大量key同时过期时阻塞请求处理
+     */
+    static final int ACTIVE_EXPIRE_BUDGET = 1000;
+
+    /**
+     * 单独统计的命令类型
+     */
+    static final String[] COMMANDS = {"set", "get", "append", "expire", "ttl", "info", "slowlog", "latency"};
+    /**
+     * 内存池统计快照的刷新间隔
+     */
+    static final long POOL_STATS_INTERVAL_MS = 1000;
+    /**
+     * 慢日志的默认阈值（微秒）和长度，与Redis一致
+     */
+    static final long DEFAULT_SLOWLOG_SLOWER_THAN = 10_000;
+    static final int DEFAULT_SLOWLOG_MAX_LEN = 128;
+
+    private static final byte[] SET = {'s', 'e', 't'};
+    private static final byte[] GET = {'g', 'e', 't'};
+    private static final byte[] OK_RESPONSE = "OK\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL_RESPONSE = "null\n".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * 只在JFR开启了慢命令事件时创建事件对象
+     */
+    private static final EventType SLOW_COMMAND_EVENT = EventType.getEventType(SlowCommandEvent.class);
+
     int port;
     StringMap storage;
+    /**
+     * 存储使用的内存池，用于JMX监控，可以为null
+     */
+    SimpleMemoryPool pool;
+    /**
+     * 内存池只能在事件循环线程中访问，由事件循环定期刷新快照，JMX线程读取快照
+     */
+    volatile PoolStats poolStats;
+    long poolStatsRefreshed;
+    final ServerStats stats = new ServerStats(COMMANDS);
+    SlowLog slowLog = new SlowLog(DEFAULT_SLOWLOG_SLOWER_THAN, DEFAULT_SLOWLOG_MAX_LEN);
+    /**
+     * 记录分配轨迹时storage使用的内存池包装，事件循环定期写入文件，未记录时为null
+     */
+    TracingMemoryPool tracer;
+    final long startTime = System.currentTimeMillis();
+    /**
+     * 请求解析和响应写入复用的对象，只在事件循环线程中使用
+     */
+    final RequestParser parser = new RequestParser();
+    final Utf8Key requestKey = new Utf8Key();
+    ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+
     public SimpleServer(int port, StringMap storage) {
         this.port = port;
         this.storage = storage;
     }
 
+    /**
+     * @param pool storage使用的内存池，启动时注册内存池的MBean
+     */
+    public SimpleServer(int port, StringMap storage, SimpleMemoryPool pool) {
+        this(port, storage);
+        this.pool = pool;
+    }
+
+    /**
+     * @param slowerThanMicros 记录执行时间不低于该值的命令，单位微秒，负数表示不记录
+     * @param maxLength 最多保存的记录条数
+     */
+    public void setSlowLog(long slowerThanMicros, int maxLength) {
+        slowLog = new SlowLog(slowerThanMicros, maxLength);
+    }
+
+    public void setTracer(TracingMemoryPool tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * 启动参数：[--maxmemory 100mb] [--maxmemory-policy noeviction|allkeys-lru|allkeys-lfu] [--compress-threshold 1kb] [--dedup yes|no]
+     * [--slowlog-slower-than 10000] [--slowlog-max-len 128] [--trace 轨迹文件] [--preallocate 4:16,8:2]<br>
+     * --preallocate 为逗号分隔的 级别:页数，启动时预分配并预热，完成后才开始监听端口<br>
+     * args[0]为server
+     */
     public static void main(String[] args) throws Exception {
-        SimpleServer simpleServer = new SimpleServer(9800, new StringMap());
+        PoolConfig config = new PoolConfig();
+        long maxMemory = 0;
+        boolean dedup = false;
+        long slowerThan = DEFAULT_SLOWLOG_SLOWER_THAN;
+        int slowLogLength = DEFAULT_SLOWLOG_MAX_LEN;
+        EvictionPolicy policy = EvictionPolicy.ALLKEYS_LRU;
+        String traceFile = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--maxmemory":
+                    maxMemory = parseBytes(args[i + 1]);
+                    break;
+                case "--maxmemory-policy":
+                    policy = EvictionPolicy.valueOf(args[i + 1].toUpperCase().replace('-', '_'));
+                    break;
+                case "--compress-threshold":
+                    config.compressionThreshold((int) parseBytes(args[i + 1]));
+                    break;
+                case "--dedup":
+                    dedup = "yes".equalsIgnoreCase(args[i + 1]);
+                    break;
+                case "--slowlog-slower-than":
+                    slowerThan = Long.parseLong(args[i + 1]);
+                    break;
+                case "--slowlog-max-len":
+                    slowLogLength = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--trace":
+                    traceFile = args[i + 1];
+                    break;
+                case "--preallocate":
+                    for (String item : args[i + 1].split(",")) {
+                        String[] levelPages = item.split(":");
+                        config.preallocatePages(Integer.parseInt(levelPages[0]), Integer.parseInt(levelPages[1]));
+                    }
+                    config.preTouch(true);
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+        SimpleMemoryPool pool = new SimpleMemoryPool(config);
+        // 记录轨迹时storage通过包装访问内存池，监控仍然读取原内存池
+        TracingMemoryPool tracer = traceFile == null ? null : new TracingMemoryPool(pool, new FileOutputStream(traceFile));
+        StringMap storage = new StringMap(new StringPool(tracer == null ? pool : tracer, dedup), System::currentTimeMillis);
+        storage.setMaxMemory(maxMemory, policy);
+        SimpleServer simpleServer = new SimpleServer(9800, storage, pool);
+        simpleServer.setSlowLog(slowerThan, slowLogLength);
+        simpleServer.setTracer(tracer);
         simpleServer.start();
     }
 
-    private static void closeConnection(SelectionKey key) {
+    /**
+     * 解析带单位的字节数，如 1024、64kb、100mb、2gb
+     */
+    static long parseBytes(String value) {
+        String v = value.toLowerCase();
+        long unit = 1;
+        if (v.endsWith("kb")) {
+            unit = 1L << 10;
+        } else if (v.endsWith("mb")) {
+            unit = 1L << 20;
+        } else if (v.endsWith("gb")) {
+            unit = 1L << 30;
+        }
+        if (unit != 1) {
+            v = v.substring(0, v.length() - 2);
+        }
+        return Long.parseLong(v) * unit;
+    }
+
+    private void closeConnection(SelectionKey key) {
+        stats.connectionClosed();
         try {
             key.cancel();
             key.channel().close();
@@ -36,6 +206,35 @@ public class SimpleServer {
         }
     }
 
+    /**
+     * 发送响应，非阻塞的channel一次可能只写出一部分<br>
+     * 没写完的部分复制一份作为key的attachment，改为等待可写，写完之前不再读取该连接的命令，保证响应的顺序
+     */
+    private void send(SelectionKey key, ByteBuffer response) throws IOException {
+        SocketChannel client = (SocketChannel) key.channel();
+        stats.bytesOut(client.write(response));
+        if (!response.hasRemaining()) {
+            return;
+        }
+        // 响应在共享的输出缓冲区中，处理下一个连接的命令时会被覆盖
+        ByteBuffer pending = ByteBuffer.allocate(response.remaining());
+        pending.put(response).flip();
+        key.attach(pending);
+        key.interestOps(SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * 继续发送没写完的响应，写完后恢复读取命令
+     */
+    private void flushPending(SelectionKey key) throws IOException {
+        ByteBuffer pending = (ByteBuffer) key.attachment();
+        stats.bytesOut(((SocketChannel) key.channel()).write(pending));
+        if (!pending.hasRemaining()) {
+            key.attach(null);
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
     public void start() throws Exception {
         // nio
         ServerSocketChannel serverChannel = ServerSocketChannel.open();
@@ -45,11 +244,18 @@ public class SimpleServer {
         Selector selector = Selector.open();
         serverChannel.register(selector, SelectionKey.OP_ACCEPT);
 
-        ByteBuffer buffer = ByteBuffer.allocate(256);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        registerMBeans();
 
         try {
             while (true) {
-                selector.select();
+                selector.select(EXPIRE_INTERVAL_MS);
+                storage.activeExpire(ACTIVE_EXPIRE_BUDGET);
+                refreshPoolStats();
+                stats.sample(System.nanoTime());
+                if (tracer != null) {
+                    tracer.flush();
+                }
                 Set<SelectionKey> selectedKeys = selector.selectedKeys();
                 Iterator<SelectionKey> iter = selectedKeys.iterator();
 
@@ -61,9 +267,20 @@ public class SimpleServer {
                             SocketChannel client = serverChannel.accept();
                             client.configureBlocking(false);
                             client.register(selector, SelectionKey.OP_READ);
+                            stats.connectionAccepted();
                             System.out.println("Accepted new connection from " + client);
                         }
 
+                        if (key.isWritable()) {
+                            try {
+                                flushPending(key);
+                            } catch (IOException e) {
+                                System.out.println("Client disconnected: " + e.getMessage());
+                                closeConnection(key);
+                                continue;
+                            }
+                        }
+
                         if (key.isReadable()) {
                             SocketChannel client = (SocketChannel) key.channel();
                             buffer.clear();
@@ -75,12 +292,9 @@ public class SimpleServer {
                                     continue;
                                 }
 
+                                stats.bytesIn(r);
                                 buffer.flip();
-                                String command = Charset.defaultCharset().decode(buffer).toString();
-                                String response = processCommand(command.trim());
-
-                                ByteBuffer writeBuffer = ByteBuffer.wrap(response.getBytes());
-                                client.write(writeBuffer);
+                                send(key, processCommand(buffer));
                             } catch (Exception e) {
                                 // 客户端异常断开连接
                                 System.out.println("Client disconnected: " + e.getMessage());
@@ -103,24 +317,358 @@ public class SimpleServer {
 
     }
 
-    private String processCommand(String command) {
-        String[] parts = command.split("\\s+");
-        if (parts.length == 0) return "Invalid command\n";
+    /**
+     * 注册服务端和内存池的MBean，名称为端口号
+     */
+    private void registerMBeans() {
+        String name = String.valueOf(port);
+        Jmx.register(new ServerMonitor(stats), "Server", name);
+        if (pool != null) {
+            poolStats = pool.stats();
+            poolStatsRefreshed = System.currentTimeMillis();
+            Jmx.register(new PoolMonitor(() -> poolStats), "MemoryPool", name);
+        }
+    }
+
+    private void refreshPoolStats() {
+        long now = System.currentTimeMillis();
+        if (pool != null && now - poolStatsRefreshed >= POOL_STATS_INTERVAL_MS) {
+            poolStats = pool.stats();
+            poolStatsRefreshed = now;
+        }
+    }
+
+    /**
+     * 执行request中position到limit的一条命令<br>
+     * 不带过期时间的SET和GET直接在请求的字节上解析和执行：key按字节查找，GET的值从内存块直接复制到输出缓冲区，
+     * key已存在且值的内存块能放下时不在堆上分配对象。其他命令解码为String后执行
+     * @return 响应，position到limit为待发送的数据，下一次调用前有效
+     */
+    public ByteBuffer processCommand(ByteBuffer request) {
+        parser.parse(request);
+        output.clear();
+        boolean set = parser.count() == 3 && parser.is(0, SET);
+        boolean get = parser.count() == 2 && parser.is(0, GET);
+        if (!set && !get) {
+            String response = processCommand(parser.args());
+            writeResponse(response.getBytes(StandardCharsets.UTF_8));
+            output.flip();
+            return output;
+        }
+        SlowCommandEvent event = SLOW_COMMAND_EVENT.isEnabled() ? new SlowCommandEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+        int valueSize = set ? executeSet() : executeGet();
+        long nanos = System.nanoTime() - start;
+        String type = set ? "set" : "get";
+        stats.command(type, nanos);
+        if (slowLog.isSlow(nanos)) {
+            slowLog.record(parser.args(), nanos, System.currentTimeMillis() - nanos / 1_000_000);
+        }
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = type;
+                event.key = parser.arg(1);
+                event.valueSize = valueSize;
+                event.commit();
+            }
+        }
+        output.flip();
+        return output;
+    }
+
+    /**
+     * set key value
+     * @return 值的字节数
+     */
+    private int executeSet() {
+        try {
+            storage.put(parser.key(1, requestKey), parser.array(), parser.start(2), parser.length(2));
+            writeResponse(OK_RESPONSE);
+        } catch (IllegalStateException e) {
+            // 内存达到上限且不允许淘汰
+            writeResponse((e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return parser.length(2);
+    }
+
+    /**
+     * get key
+     * @return 响应的字节数，不含换行
+     */
+    private int executeGet() {
+        parser.key(1, requestKey);
+        int length;
+        while (true) {
+            try {
+                length = storage.get(requestKey, output);
+                break;
+            } catch (BufferOverflowException e) {
+                // 超过输出缓冲区的大value，扩容后重试
+                ensureOutput(output.remaining() + 1);
+            }
+        }
+        if (length < 0) {
+            writeResponse(NULL_RESPONSE);
+            return NULL_RESPONSE.length - 1;
+        }
+        ensureOutput(1);
+        output.put((byte) '\n');
+        return length;
+    }
 
-        switch (parts[0].toLowerCase()) {
+    private void writeResponse(byte[] response) {
+        ensureOutput(response.length);
+        output.put(response);
+    }
+
+    /**
+     * 保证输出缓冲区至少还能写入bytes字节，不够时扩容，扩容后的缓冲区继续复用
+     */
+    private void ensureOutput(int bytes) {
+        if (output.remaining() >= bytes) {
+            return;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(output.capacity() << 1, output.position() + bytes));
+        output.flip();
+        grown.put(output);
+        output = grown;
+    }
+
+    private String processCommand(String[] parts) {
+        String type = parts[0].toLowerCase();
+        SlowCommandEvent event = SLOW_COMMAND_EVENT.isEnabled() ? new SlowCommandEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+        String response = execute(type, parts);
+        long nanos = System.nanoTime() - start;
+        stats.command(type, nanos);
+        slowLog.record(parts, nanos, System.currentTimeMillis() - nanos / 1_000_000);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = type;
+                event.key = parts.length > 1 ? parts[1] : null;
+                event.valueSize = parts.length > 2 ? parts[2].length() : response.length() - 1;
+                event.commit();
+            }
+        }
+        return response;
+    }
+
+    private String execute(String type, String[] parts) {
+        switch (type) {
             case "set":
-                if (parts.length != 3) return "Invalid set command. Usage: set key value\n";
-                storage.put(parts[1], parts[2]);
-                return "OK\n";
+                try {
+                    if (parts.length == 3) {
+                        storage.put(parts[1], parts[2]);
+                        return "OK\n";
+                    }
+                    if (parts.length == 5) {
+                        long ttl = parseTtl(parts[3], parts[4]);
+                        if (ttl <= 0) return "Invalid expire time in set\n";
+                        storage.put(parts[1], parts[2], ttl);
+                        return "OK\n";
+                    }
+                } catch (IllegalStateException e) {
+                    // 内存达到上限且不允许淘汰
+                    return e.getMessage() + "\n";
+                }
+                return "Invalid set command. Usage: set key value [EX seconds|PX milliseconds]\n";
 
             case "get":
                 if (parts.length != 2) return "Invalid get command. Usage: get key\n";
                 String value = storage.get(parts[1]);
                 return value != null ? value + "\n" : "null\n";
 
+            case "append":
+                if (parts.length != 3) return "Invalid append command. Usage: append key value\n";
+                try {
+                    return storage.append(parts[1], parts[2]) + "\n";
+                } catch (IllegalStateException e) {
+                    return e.getMessage() + "\n";
+                }
+
+            case "expire":
+                if (parts.length != 3) return "Invalid expire command. Usage: expire key seconds\n";
+                long seconds;
+                try {
+                    seconds = Long.parseLong(parts[2]);
+                } catch (NumberFormatException e) {
+                    return "Invalid expire time\n";
+                }
+                return storage.expire(parts[1], seconds * 1000) ? "1\n" : "0\n";
+
+            case "ttl":
+                if (parts.length != 2) return "Invalid ttl command. Usage: ttl key\n";
+                long ttl = storage.ttl(parts[1]);
+                // 与Redis一致，-2表示key不存在，-1表示没有过期时间，否则向上取整到秒
+                return (ttl < 0 ? ttl : (ttl + 999) / 1000) + "\n";
+
+            case "info":
+                if (parts.length > 2) return "Invalid info command. Usage: info [section]\n";
+                return info(parts.length == 2 ? parts[1] : null);
+
+            case "slowlog":
+                return slowLogCommand(parts);
+
+            case "latency":
+                return latencyCommand(parts);
+
             default:
                 return "Unknown command\n";
         }
     }
 
+    /**
+     * 服务端状态，格式与Redis的INFO类似，每个section以"# 名称"开头，每行一个"字段:值"
+     * @param section 只返回该section，为null时返回全部
+     */
+    private String info(String section) {
+        StringBuilder sb = new StringBuilder();
+        if (section == null || "server".equalsIgnoreCase(section)) {
+            sb.append("# Server\n");
+            sb.append("port:").append(port).append('\n');
+            sb.append("uptime_in_seconds:").append((System.currentTimeMillis() - startTime) / 1000).append('\n');
+        }
+        if (section == null || "clients".equalsIgnoreCase(section)) {
+            sb.append("# Clients\n");
+            sb.append("connected_clients:").append(stats.connections()).append('\n');
+            sb.append("total_connections_received:").append(stats.totalConnections()).append('\n');
+        }
+        if (section == null || "stats".equalsIgnoreCase(section)) {
+            sb.append("# Stats\n");
+            sb.append("total_commands_processed:").append(stats.commands()).append('\n');
+            sb.append("instantaneous_ops_per_sec:").append(Math.round(stats.instantaneousOps())).append('\n');
+            sb.append("total_net_input_bytes:").append(stats.bytesIn()).append('\n');
+            sb.append("total_net_output_bytes:").append(stats.bytesOut()).append('\n');
+            sb.append("evicted_keys:").append(storage.evictedKeys()).append('\n');
+            sb.append("slowlog_len:").append(slowLog.size()).append('\n');
+        }
+        if (section == null || "memory".equalsIgnoreCase(section)) {
+            sb.append("# Memory\n");
+            sb.append("used_memory:").append(storage.usedMemory()).append('\n');
+            sb.append("maxmemory:").append(storage.getMaxMemory()).append('\n');
+            sb.append("maxmemory_policy:").append(storage.getEvictionPolicy().name().toLowerCase().replace('_', '-')).append('\n');
+            if (pool != null) {
+                appendPoolInfo(sb);
+            }
+        }
+        if (section == null || "keyspace".equalsIgnoreCase(section)) {
+            sb.append("# Keyspace\n");
+            sb.append("keys:").append(storage.size()).append('\n');
+            sb.append("expires:").append(storage.expiringKeys()).append('\n');
+        }
+        return sb.length() == 0 ? "Unknown info section\n" : sb.toString();
+    }
+
+    /**
+     * 内存池按级别的使用情况，小页的已使用字节数按块大小计算
+     */
+    private void appendPoolInfo(StringBuilder sb) {
+        List<Long> usedBytes = pool.levelUsedBytes();
+        List<Long> usedBlocks = pool.levelUsedBlocks();
+        List<Long> reservedBytes = pool.levelReservedBytes();
+        sb.append("reserved_memory:").append(pool.reservedBytes()).append('\n');
+        sb.append("failed_allocations:").append(pool.failedAllocations()).append('\n');
+        long littleBytes = 0;
+        long littleBlocks = 0;
+        for (int level = 2; level < PoolConfig.HUGE_LEVEL; level++) {
+            sb.append("level_").append(level)
+                    .append(":block_size=").append(1 << level)
+                    .append(",used_bytes=").append(usedBytes.get(level))
+                    .append(",used_blocks=").append(usedBlocks.get(level))
+                    .append(",reserved_bytes=").append(reservedBytes.get(level)).append('\n');
+            littleBytes += usedBytes.get(level);
+            littleBlocks += usedBlocks.get(level);
+        }
+        sb.append("huge:used_bytes=").append(pool.usedBytes() - littleBytes)
+                .append(",used_blocks=").append(pool.usedBlocks() - littleBlocks)
+                .append(",reserved_bytes=").append(reservedBytes.get(PoolConfig.HUGE_LEVEL)).append('\n');
+    }
+
+    /**
+     * slowlog get [count] | slowlog len | slowlog reset
+     */
+    private String slowLogCommand(String[] parts) {
+        String usage = "Invalid slowlog command. Usage: slowlog get [count] | slowlog len | slowlog reset\n";
+        if (parts.length < 2) return usage;
+        switch (parts[1].toLowerCase()) {
+            case "get":
+                int count = 10;
+                if (parts.length > 3) return usage;
+                if (parts.length == 3) {
+                    try {
+                        count = Integer.parseInt(parts[2]);
+                    } catch (NumberFormatException e) {
+                        return usage;
+                    }
+                    if (count < 0) return usage;
+                }
+                List<SlowLog.Entry> entries = slowLog.latest(count);
+                if (entries.isEmpty()) return "(empty list)\n";
+                // 每行：id 开始时间（秒） 耗时（微秒） 命令
+                StringBuilder sb = new StringBuilder();
+                for (SlowLog.Entry entry : entries) {
+                    sb.append(entry).append('\n');
+                }
+                return sb.toString();
+            case "len":
+                return parts.length == 2 ? slowLog.size() + "\n" : usage;
+            case "reset":
+                if (parts.length != 2) return usage;
+                slowLog.reset();
+                return "OK\n";
+            default:
+                return usage;
+        }
+    }
+
+    /**
+     * latency：按命令类型输出执行延迟的分位数，单位微秒；latency reset：清空直方图
+     */
+    private String latencyCommand(String[] parts) {
+        if (parts.length == 2 && "reset".equalsIgnoreCase(parts[1])) {
+            stats.resetLatency();
+            return "OK\n";
+        }
+        if (parts.length != 1) return "Invalid latency command. Usage: latency [reset]\n";
+        StringBuilder sb = new StringBuilder();
+        stats.commandLatencies().forEach((type, latency) -> {
+            if (latency.count() == 0) {
+                return;
+            }
+            sb.append(String.format("%s calls=%d mean=%.1f p50=%.1f p99=%.1f p999=%.1f max=%.1f%n", type,
+                    latency.count(), latency.mean() / 1000, latency.percentile(0.5) / 1000.0,
+                    latency.percentile(0.99) / 1000.0, latency.percentile(0.999) / 1000.0, latency.max() / 1000.0));
+        });
+        return sb.length() == 0 ? "(empty list)\n" : sb.toString();
+    }
+
+    /**
+     * 解析set命令的过期时间
+     * @return 过期时间（毫秒），非法时返回-1
+     */
+    private static long parseTtl(String unit, String amount) {
+        long value;
+        try {
+            value = Long.parseLong(amount);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        switch (unit.toLowerCase()) {
+            case "ex":
+                return value * 1000;
+            case "px":
+                return value;
+            default:
+                return -1;
+        }
+    }
+
 }
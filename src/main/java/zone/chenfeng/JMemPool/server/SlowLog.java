@@ -0,0 +1,112 @@
+package zone.chenfeng.JMemPool.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 慢命令日志，与Redis的SLOWLOG类似<br>
+ * 执行时间不低于阈值的命令放入固定容量的环形缓冲区，满了以后覆盖最旧的记录。
+ * 只有慢命令才会创建记录，正常的命令只比较一次耗时。非线程安全，只在事件循环线程中使用
+ */
+public class SlowLog {
+    /**
+     * 每条记录最多保存的参数个数和每个参数的最大长度，避免大value占用内存
+     */
+    static final int MAX_ARGS = 32;
+    static final int MAX_ARG_LENGTH = 128;
+
+    public static class Entry {
+        public final long id;
+        /**
+         * 命令开始执行的时间，毫秒
+         */
+        public final long timestamp;
+        public final long durationMicros;
+        public final String[] args;
+
+        Entry(long id, long timestamp, long durationMicros, String[] args) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.durationMicros = durationMicros;
+            this.args = args;
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + timestamp / 1000 + " " + durationMicros + " " + String.join(" ", args);
+        }
+    }
+
+    private final long slowerThanMicros;
+    private final Entry[] entries;
+    private long nextId;
+    private int size;
+
+    /**
+     * @param slowerThanMicros 记录执行时间不低于该值的命令，单位微秒，负数表示不记录
+     * @param maxLength 最多保存的记录条数
+     */
+    public SlowLog(long slowerThanMicros, int maxLength) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("Slow log length must be positive");
+        }
+        this.slowerThanMicros = slowerThanMicros;
+        this.entries = new Entry[maxLength];
+    }
+
+    /**
+     * 执行时间为durationNanos的命令是否会被记录，调用方可以先判断，只为慢命令准备参数
+     */
+    public boolean isSlow(long durationNanos) {
+        return slowerThanMicros >= 0 && durationNanos / 1000 >= slowerThanMicros;
+    }
+
+    /**
+     * @return 是否记录了该命令
+     */
+    public boolean record(String[] args, long durationNanos, long timestamp) {
+        if (!isSlow(durationNanos)) {
+            return false;
+        }
+        long micros = durationNanos / 1000;
+        int count = Math.min(args.length, MAX_ARGS);
+        String[] saved = new String[count];
+        for (int i = 0; i < count; i++) {
+            String arg = args[i];
+            saved[i] = arg.length() > MAX_ARG_LENGTH ? arg.substring(0, MAX_ARG_LENGTH) + "..." : arg;
+        }
+        if (args.length > count) {
+            saved[count - 1] = "... (" + (args.length - count + 1) + " more arguments)";
+        }
+        entries[(int) (nextId % entries.length)] = new Entry(nextId, timestamp, micros, saved);
+        nextId++;
+        size = Math.min(size + 1, entries.length);
+        return true;
+    }
+
+    /**
+     * 最新的count条记录，从新到旧
+     * @throws IllegalArgumentException count为负数
+     */
+    public List<Entry> latest(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative");
+        }
+        int n = Math.min(count, size);
+        List<Entry> result = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            result.add(entries[(int) ((nextId - i) % entries.length)]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        Arrays.fill(entries, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,26 @@
+package zone.chenfeng.JMemPool.struct;
+
+/**
+ * 记录字段的类型
+ */
+public enum FieldType {
+    BYTE(1),
+    SHORT(2),
+    INT(4),
+    LONG(8),
+    FLOAT(4),
+    DOUBLE(8);
+
+    /**
+     * 字段占用的字节数，也是字段的对齐字节数
+     */
+    final int size;
+
+    FieldType(int size) {
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,87 @@
+package zone.chenfeng.JMemPool.struct;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+
+/**
+ * 内存池中定长记录的享元<br>
+ * 一个实例通过 {@link #wrap(long)} 反复指向不同的记录，读写直接访问内存池中的内存块，不复制记录，不创建对象。
+ * 字段用 {@link RecordLayout#offset(String)} 得到的偏移量访问，偏移量可以提前取出保存在常量中。<br>
+ * 记录需要由 {@link RecordLayout#allocate(IMemoryPool)} 分配，或者put了不小于 {@link RecordLayout#size()} 字节的数据。<br>
+ * 非线程安全，每个线程使用自己的实例
+ */
+public class RecordFlyweight {
+
+    private final RecordLayout layout;
+    private final IMemoryPool pool;
+    private long pointer = IMemoryPool.NULL_POINTER;
+
+    public RecordFlyweight(RecordLayout layout, IMemoryPool pool) {
+        this.layout = layout;
+        this.pool = pool;
+    }
+
+    /**
+     * 指向pointer对应的记录
+     * @return this
+     */
+    public RecordFlyweight wrap(long pointer) {
+        this.pointer = pointer;
+        return this;
+    }
+
+    public long pointer() {
+        return pointer;
+    }
+
+    public RecordLayout layout() {
+        return layout;
+    }
+
+    public byte getByte(int offset) {
+        return pool.getByte(pointer, offset);
+    }
+
+    public void putByte(int offset, byte value) {
+        pool.putByte(pointer, offset, value);
+    }
+
+    public short getShort(int offset) {
+        return pool.getShort(pointer, offset);
+    }
+
+    public void putShort(int offset, short value) {
+        pool.putShort(pointer, offset, value);
+    }
+
+    public int getInt(int offset) {
+        return pool.getInt(pointer, offset);
+    }
+
+    public void putInt(int offset, int value) {
+        pool.putInt(pointer, offset, value);
+    }
+
+    public long getLong(int offset) {
+        return pool.getLong(pointer, offset);
+    }
+
+    public void putLong(int offset, long value) {
+        pool.putLong(pointer, offset, value);
+    }
+
+    public float getFloat(int offset) {
+        return pool.getFloat(pointer, offset);
+    }
+
+    public void putFloat(int offset, float value) {
+        pool.putFloat(pointer, offset, value);
+    }
+
+    public double getDouble(int offset) {
+        return pool.getDouble(pointer, offset);
+    }
+
+    public void putDouble(int offset, double value) {
+        pool.putDouble(pointer, offset, value);
+    }
+}
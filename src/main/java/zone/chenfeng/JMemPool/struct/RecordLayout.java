@@ -0,0 +1,123 @@
+package zone.chenfeng.JMemPool.struct;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 定长记录的布局<br>
+ * 每个字段按自身宽度对齐，记录大小向上取整到最宽字段的宽度。内存池的块按块大小自然对齐，
+ * 因此不超过256字节的记录中所有字段都是对齐访问。<br>
+ * 字段名只在创建时使用，读写时使用 {@link #offset(String)} 得到的偏移量，不需要查找字段名：
+ * <pre>
+ * RecordLayout layout = RecordLayout.builder()
+ *         .field("id", FieldType.LONG)
+ *         .field("count", FieldType.INT)
+ *         .field("score", FieldType.DOUBLE)
+ *         .build();
+ * int count = layout.offset("count");
+ * RecordFlyweight record = new RecordFlyweight(layout, pool).wrap(layout.allocate(pool));
+ * record.putInt(count, record.getInt(count) + 1);
+ * </pre>
+ */
+public class RecordLayout {
+
+    private final Map<String, Integer> offsets;
+    private final Map<String, FieldType> types;
+    private final int size;
+
+    private RecordLayout(Map<String, Integer> offsets, Map<String, FieldType> types, int size) {
+        this.offsets = offsets;
+        this.types = types;
+        this.size = size;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 记录的字节数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 字段在记录中的偏移量
+     * @throws IllegalArgumentException 字段不存在
+     */
+    public int offset(String name) {
+        Integer offset = offsets.get(name);
+        if (offset == null) {
+            throw new IllegalArgumentException("Unknown field: " + name);
+        }
+        return offset;
+    }
+
+    public FieldType type(String name) {
+        FieldType type = types.get(name);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown field: " + name);
+        }
+        return type;
+    }
+
+    /**
+     * 按定义顺序排列的字段名
+     */
+    public List<String> fields() {
+        return Collections.unmodifiableList(new ArrayList<>(offsets.keySet()));
+    }
+
+    /**
+     * 在内存池中分配一条记录，所有字段为0
+     * @return 记录的指针，内存不足时返回 {@link IMemoryPool#NULL_POINTER}
+     */
+    public long allocate(IMemoryPool pool) {
+        return pool.malloc(size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RecordLayout{size=").append(size);
+        offsets.forEach((name, offset) -> sb.append(", ").append(name).append(':').append(types.get(name)).append('@').append(offset));
+        return sb.append('}').toString();
+    }
+
+    public static class Builder {
+        private final Map<String, Integer> offsets = new LinkedHashMap<>();
+        private final Map<String, FieldType> types = new LinkedHashMap<>();
+        private int size;
+        private int alignment = 1;
+
+        private Builder() {
+        }
+
+        /**
+         * 按定义顺序追加字段，必要时在前面填充字节使字段对齐
+         */
+        public Builder field(String name, FieldType type) {
+            if (offsets.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate field: " + name);
+            }
+            int offset = (size + type.size - 1) & -type.size;
+            offsets.put(name, offset);
+            types.put(name, type);
+            size = offset + type.size;
+            alignment = Math.max(alignment, type.size);
+            return this;
+        }
+
+        public RecordLayout build() {
+            if (offsets.isEmpty()) {
+                throw new IllegalStateException("Record layout has no fields");
+            }
+            return new RecordLayout(new LinkedHashMap<>(offsets), new LinkedHashMap<>(types), (size + alignment - 1) & -alignment);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package zone.chenfeng.JMemPool.trace;
+
+/**
+ * 一次重放的结果：峰值内存、碎片率随时间的变化和吞吐量<br>
+ * 碎片率为 1 - used / reserved，即已预留但未被内存块占用的比例，每隔若干操作采样一次
+ */
+public class ReplayReport {
+    private final String name;
+    private final long operations;
+    private final long failedOperations;
+    private final long elapsedNanos;
+    private final long peakUsedBytes;
+    private final long peakReservedBytes;
+    private final long finalUsedBytes;
+    private final long finalReservedBytes;
+    private final long sampleInterval;
+    private final long[] usedSamples;
+    private final long[] reservedSamples;
+
+    ReplayReport(String name, long operations, long failedOperations, long elapsedNanos, long peakUsedBytes,
+                 long peakReservedBytes, long finalUsedBytes, long finalReservedBytes, long sampleInterval,
+                 long[] usedSamples, long[] reservedSamples) {
+        this.name = name;
+        this.operations = operations;
+        this.failedOperations = failedOperations;
+        this.elapsedNanos = elapsedNanos;
+        this.peakUsedBytes = peakUsedBytes;
+        this.peakReservedBytes = peakReservedBytes;
+        this.finalUsedBytes = finalUsedBytes;
+        this.finalReservedBytes = finalReservedBytes;
+        this.sampleInterval = sampleInterval;
+        this.usedSamples = usedSamples;
+        this.reservedSamples = reservedSamples;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * 重放时失败的分配，例如配置的容量上限比记录时小；失败的内存块之后的操作会被跳过，也计入失败
+     */
+    public long getFailedOperations() {
+        return failedOperations;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getOpsPerSecond() {
+        return elapsedNanos == 0 ? 0 : operations * 1e9 / elapsedNanos;
+    }
+
+    public long getPeakUsedBytes() {
+        return peakUsedBytes;
+    }
+
+    public long getPeakReservedBytes() {
+        return peakReservedBytes;
+    }
+
+    public long getFinalUsedBytes() {
+        return finalUsedBytes;
+    }
+
+    public long getFinalReservedBytes() {
+        return finalReservedBytes;
+    }
+
+    /**
+     * 两次采样之间的操作数
+     */
+    public long getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * 第i次采样（第 (i + 1) * sampleInterval 个操作之后）的碎片率，reserved为0时为0
+     */
+    public double[] getFragmentation() {
+        double[] fragmentation = new double[usedSamples.length];
+        for (int i = 0; i < fragmentation.length; i++) {
+            fragmentation[i] = fragmentation(usedSamples[i], reservedSamples[i]);
+        }
+        return fragmentation;
+    }
+
+    public long[] getUsedSamples() {
+        return usedSamples.clone();
+    }
+
+    public long[] getReservedSamples() {
+        return reservedSamples.clone();
+    }
+
+    private static double fragmentation(long used, long reserved) {
+        return reserved == 0 ? 0 : 1 - (double) used / reserved;
+    }
+
+    /**
+     * 一行的汇总，与 {@link #header()} 对齐
+     */
+    @Override
+    public String toString() {
+        // 平均值和最大值包括结束时的状态，操作数少于采样间隔时也有结果
+        double finalFragmentation = fragmentation(finalUsedBytes, finalReservedBytes);
+        double maxFragmentation = finalFragmentation;
+        double sum = finalFragmentation;
+        for (double f : getFragmentation()) {
+            maxFragmentation = Math.max(maxFragmentation, f);
+            sum += f;
+        }
+        double meanFragmentation = sum / (usedSamples.length + 1);
+        return String.format("%-32s %12d %8d %14.0f %14d %14d %8.1f%% %8.1f%% %8.1f%%",
+                name, operations, failedOperations, getOpsPerSecond(), peakUsedBytes, peakReservedBytes,
+                meanFragmentation * 100, maxFragmentation * 100, finalFragmentation * 100);
+    }
+
+    public static String header() {
+        return String.format("%-32s %12s %8s %14s %14s %14s %9s %9s %9s",
+                "config", "ops", "failed", "ops/s", "peak used", "peak reserved", "frag avg", "frag max", "frag end");
+    }
+}
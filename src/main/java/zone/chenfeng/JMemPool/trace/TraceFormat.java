@@ -0,0 +1,50 @@
+package zone.chenfeng.JMemPool.trace;
+
+/**
+ * 分配轨迹文件的格式<br>
+ * 文件头是 {@link #MAGIC} 和 {@link #VERSION}（各4字节，大端），之后是连续的记录，每条记录一个操作码和若干无符号变长整数（LEB128）：
+ * <pre>
+ * MALLOC         size
+ * MALLOC_ALIGNED size alignment
+ * PUT_NEW        length
+ * PUT            id length
+ * APPEND         id appendedLength
+ * REALLOC        id newSize
+ * FREE           id
+ * </pre>
+ * 分配内存块的记录（MALLOC、MALLOC_ALIGNED、PUT_NEW）隐含地分配下一个编号，编号从0开始，释放后不复用。
+ * 指针在重放时会变化，因此记录编号而不是指针。只记录成功的操作，不记录数据内容
+ */
+final class TraceFormat {
+    static final int MAGIC = 0x4A4D5054;
+    static final int VERSION = 1;
+
+    static final byte MALLOC = 1;
+    static final byte MALLOC_ALIGNED = 2;
+    static final byte PUT_NEW = 3;
+    static final byte PUT = 4;
+    static final byte APPEND = 5;
+    static final byte REALLOC = 6;
+    static final byte FREE = 7;
+
+    /**
+     * 一条记录的最大字节数：操作码和两个long
+     */
+    static final int MAX_RECORD_SIZE = 1 + 2 * 10;
+
+    private TraceFormat() {
+    }
+
+    /**
+     * 把value写到buffer的pos处
+     * @return 写入后的位置
+     */
+    static int writeVarLong(byte[] buffer, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+}
@@ -0,0 +1,264 @@
+package zone.chenfeng.JMemPool.trace;
+
+import zone.chenfeng.JMemPool.collections.LongArrayList;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import static zone.chenfeng.JMemPool.IMemoryPool.NULL_POINTER;
+
+/**
+ * 分配轨迹的离线重放<br>
+ * 把 {@link TracingMemoryPool} 记录的轨迹按顺序在新的内存池上执行，比较不同配置下的峰值内存、碎片率和吞吐量。
+ * 轨迹不包含数据内容，put/append写入全0的数据，开启压缩时压缩率会比实际高。
+ * 轨迹整个读入内存后再重放，吞吐量不包含读文件的时间
+ * <p>
+ * 用法：replay &lt;轨迹文件&gt; [配置...]，每个配置是逗号分隔的 key=value，例如
+ * {@code chunkSize=16kb,compressionThreshold=1kb}，可用的key见 {@link #parseConfig(String)}，不指定配置时使用默认配置
+ * </p>
+ */
+public class TraceReplayer {
+    /**
+     * 默认每隔多少个操作采样一次内存占用
+     */
+    public static final long DEFAULT_SAMPLE_INTERVAL = 10_000;
+
+    private final ByteBuffer trace;
+    private long sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+    private final Map<Integer, byte[]> zeros = new HashMap<>();
+
+    /**
+     * @param trace 完整的轨迹，包括文件头
+     * @throws IllegalArgumentException 不是轨迹文件或版本不支持
+     */
+    public TraceReplayer(byte[] trace) {
+        this.trace = ByteBuffer.wrap(trace);
+        if (trace.length < 8 || this.trace.getInt(0) != TraceFormat.MAGIC) {
+            throw new IllegalArgumentException("Not an allocation trace");
+        }
+        if (this.trace.getInt(4) != TraceFormat.VERSION) {
+            throw new IllegalArgumentException("Unsupported trace version: " + this.trace.getInt(4));
+        }
+    }
+
+    public TraceReplayer sampleInterval(long operations) {
+        if (operations <= 0) {
+            throw new IllegalArgumentException("Sample interval must be positive");
+        }
+        this.sampleInterval = operations;
+        return this;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("用法：replay <轨迹文件> [key=value,...]...");
+            return;
+        }
+        TraceReplayer replayer = new TraceReplayer(Files.readAllBytes(Paths.get(args[1])));
+        System.out.println(ReplayReport.header());
+        if (args.length == 2) {
+            System.out.println(replayer.replay("default", new PoolConfig()));
+        }
+        for (int i = 2; i < args.length; i++) {
+            System.out.println(replayer.replay(args[i], parseConfig(args[i])));
+        }
+    }
+
+    /**
+     * 解析逗号分隔的配置，支持的key：maxReservedBytes、chunkSize、compressionThreshold、pageAlignment、widePointers，
+     * 以及每个级别的页大小 level&lt;N&gt;.slots、level&lt;N&gt;.pageBytes 和预分配页数 level&lt;N&gt;.preallocate，
+     * 字节数可以带kb/mb/gb单位
+     */
+    public static PoolConfig parseConfig(String spec) {
+        PoolConfig config = new PoolConfig();
+        for (String item : spec.split(",")) {
+            if (item.isEmpty() || item.equals("default")) {
+                continue;
+            }
+            int eq = item.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value: " + item);
+            }
+            String key = item.substring(0, eq);
+            String value = item.substring(eq + 1);
+            if (key.startsWith("level") && key.indexOf('.') > 0) {
+                parseLevelConfig(config, key, value);
+                continue;
+            }
+            switch (key) {
+                case "maxReservedBytes":
+                    config.maxReservedBytes(parseBytes(value));
+                    break;
+                case "chunkSize":
+                    config.chunkSize((int) parseBytes(value));
+                    break;
+                case "compressionThreshold":
+                    config.compressionThreshold((int) parseBytes(value));
+                    break;
+                case "pageAlignment":
+                    config.pageAlignment((int) parseBytes(value));
+                    break;
+                case "widePointers":
+                    config.widePointers(Boolean.parseBoolean(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown config key: " + key);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * level&lt;N&gt;.slots、level&lt;N&gt;.pageBytes、level&lt;N&gt;.preallocate
+     */
+    private static void parseLevelConfig(PoolConfig config, String key, String value) {
+        int dot = key.indexOf('.');
+        int level = Integer.parseInt(key.substring("level".length(), dot));
+        switch (key.substring(dot + 1)) {
+            case "slots":
+                config.levelSlotsPerPage(level, Integer.parseInt(value));
+                break;
+            case "pageBytes":
+                config.levelPageBytes(level, parseBytes(value));
+                break;
+            case "preallocate":
+                config.preallocatePages(level, Integer.parseInt(value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown config key: " + key);
+        }
+    }
+
+    private static long parseBytes(String value) {
+        String v = value.toLowerCase();
+        long unit = 1;
+        if (v.endsWith("kb")) {
+            unit = 1L << 10;
+        } else if (v.endsWith("mb")) {
+            unit = 1L << 20;
+        } else if (v.endsWith("gb")) {
+            unit = 1L << 30;
+        }
+        if (unit != 1) {
+            v = v.substring(0, v.length() - 2);
+        }
+        return Long.parseLong(v) * unit;
+    }
+
+    /**
+     * 在按config新建的内存池上重放整个轨迹，重放结束后关闭内存池
+     */
+    public ReplayReport replay(String name, PoolConfig config) throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool(config);
+        // 编号 -> 指针，存储在独立的内存池中，不计入被测的内存池
+        SimpleMemoryPool tablePool = new SimpleMemoryPool();
+        LongArrayList pointers = new LongArrayList(tablePool);
+        LongArrayList usedSamples = new LongArrayList(tablePool);
+        LongArrayList reservedSamples = new LongArrayList(tablePool);
+        long operations = 0;
+        long failed = 0;
+        long peakUsed = 0;
+        long peakReserved = 0;
+        trace.position(8);
+        long start = System.nanoTime();
+        while (trace.hasRemaining()) {
+            byte op = trace.get();
+            long pointer;
+            switch (op) {
+                case TraceFormat.MALLOC:
+                    pointer = pool.malloc(readInt());
+                    pointers.add(pointer);
+                    break;
+                case TraceFormat.MALLOC_ALIGNED:
+                    int size = readInt();
+                    pointer = pool.mallocAligned(size, readInt());
+                    pointers.add(pointer);
+                    break;
+                case TraceFormat.PUT_NEW:
+                    pointer = pool.put(zeros(readInt()));
+                    pointers.add(pointer);
+                    break;
+                case TraceFormat.PUT:
+                case TraceFormat.APPEND:
+                case TraceFormat.REALLOC:
+                    int id = readId();
+                    int length = readInt();
+                    pointer = pointers.get(id);
+                    if (pointer != NULL_POINTER) {
+                        long newPointer = op == TraceFormat.PUT ? pool.put(pointer, zeros(length))
+                                : op == TraceFormat.APPEND ? pool.append(pointer, zeros(length))
+                                : pool.realloc(pointer, length);
+                        if (newPointer != NULL_POINTER) {
+                            pointers.set(id, newPointer);
+                        }
+                        pointer = newPointer;
+                    }
+                    break;
+                case TraceFormat.FREE:
+                    id = readId();
+                    pointer = pointers.get(id);
+                    if (pointer != NULL_POINTER) {
+                        pool.free(pointer);
+                        pointers.set(id, NULL_POINTER);
+                        // 释放成功，不计为失败
+                        pointer = 0;
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Corrupted trace: unknown op " + op + " at " + (trace.position() - 1));
+            }
+            if (pointer == NULL_POINTER) {
+                failed++;
+            }
+            operations++;
+            peakUsed = Math.max(peakUsed, pool.usedBytes());
+            peakReserved = Math.max(peakReserved, pool.reservedBytes());
+            if (operations % sampleInterval == 0) {
+                usedSamples.add(pool.usedBytes());
+                reservedSamples.add(pool.reservedBytes());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        ReplayReport report = new ReplayReport(name, operations, failed, elapsed, peakUsed, peakReserved,
+                pool.usedBytes(), pool.reservedBytes(), sampleInterval, usedSamples.toArray(), reservedSamples.toArray());
+        pool.close();
+        tablePool.close();
+        return report;
+    }
+
+    /**
+     * 长度为n的全0数组，重放时只读，按长度复用
+     */
+    private byte[] zeros(int n) {
+        return zeros.computeIfAbsent(n, byte[]::new);
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = trace.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private int readInt() {
+        return (int) readVarLong();
+    }
+
+    private int readId() {
+        long id = readVarLong();
+        if (id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Trace has too many blocks to replay: " + id);
+        }
+        return (int) id;
+    }
+}
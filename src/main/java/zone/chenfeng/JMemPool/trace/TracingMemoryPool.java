@@ -0,0 +1,301 @@
+package zone.chenfeng.JMemPool.trace;
+
+import zone.chenfeng.JMemPool.IMemoryPool;
+import zone.chenfeng.JMemPool.collections.LongLongHashMap;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.profiler.AllocationProfiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 记录分配轨迹的内存池包装，用 {@link TraceReplayer} 离线重放<br>
+ * 把malloc/put/append/realloc/free按执行顺序写入输出流（格式见 {@link TraceFormat}），读操作和类型化访问不影响分配，不记录。
+ * 每条记录只有几个字节，先写入缓冲区，缓冲区满或调用 {@link #flush()} 时才写入输出流。
+ * 写入失败时停止记录，不影响内存池本身的操作，通过 {@link #isRecording()} 检查。
+ * <p>
+ * 与被包装的内存池一样非线程安全，只能在一个线程中使用，内存池回收时的free也会按实际顺序记录
+ * </p>
+ */
+public class TracingMemoryPool implements IMemoryPool {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long NO_ID = -1;
+
+    private final IMemoryPool pool;
+    private OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    /**
+     * 指针 -> 编号，用独立的内存池存储，不计入被记录的内存池
+     */
+    private final SimpleMemoryPool idPool = new SimpleMemoryPool();
+    private final LongLongHashMap ids = new LongLongHashMap(idPool, NO_ID);
+    private long nextId;
+    private long records;
+
+    /**
+     * @param out 轨迹的输出流，停止记录时关闭
+     */
+    public TracingMemoryPool(IMemoryPool pool, OutputStream out) {
+        this.pool = pool;
+        this.out = out;
+        position = writeInt(buffer, 0, TraceFormat.MAGIC);
+        position = writeInt(buffer, position, TraceFormat.VERSION);
+    }
+
+    private static int writeInt(byte[] buffer, int pos, int value) {
+        buffer[pos] = (byte) (value >>> 24);
+        buffer[pos + 1] = (byte) (value >>> 16);
+        buffer[pos + 2] = (byte) (value >>> 8);
+        buffer[pos + 3] = (byte) value;
+        return pos + 4;
+    }
+
+    public boolean isRecording() {
+        return out != null;
+    }
+
+    /**
+     * 已记录的操作数
+     */
+    public long records() {
+        return records;
+    }
+
+    @Override
+    public long malloc(int size) {
+        long pointer = pool.malloc(size);
+        if (pointer != NULL_POINTER && isRecording()) {
+            allocated(pointer);
+            record(TraceFormat.MALLOC, size);
+        }
+        return pointer;
+    }
+
+    @Override
+    public long mallocAligned(int size, int alignment) {
+        long pointer = pool.mallocAligned(size, alignment);
+        if (pointer != NULL_POINTER && isRecording()) {
+            allocated(pointer);
+            record(TraceFormat.MALLOC_ALIGNED, size, alignment);
+        }
+        return pointer;
+    }
+
+    @Override
+    public long put(byte[] data) {
+        long pointer = pool.put(data);
+        if (pointer != NULL_POINTER && isRecording()) {
+            allocated(pointer);
+            record(TraceFormat.PUT_NEW, data.length);
+        }
+        return pointer;
+    }
+
+    @Override
+    public long put(long pointer, byte[] data) {
+        long newPointer = pool.put(pointer, data);
+        if (newPointer != NULL_POINTER && isRecording()) {
+            long id = moved(pointer, newPointer);
+            if (id != NO_ID) {
+                record(TraceFormat.PUT, id, data.length);
+            }
+        }
+        return newPointer;
+    }
+
+    @Override
+    public long append(long pointer, byte[] data) {
+        long newPointer = pool.append(pointer, data);
+        if (newPointer != NULL_POINTER && isRecording()) {
+            long id = moved(pointer, newPointer);
+            if (id != NO_ID) {
+                record(TraceFormat.APPEND, id, data.length);
+            }
+        }
+        return newPointer;
+    }
+
+    @Override
+    public long realloc(long pointer, int newSize) {
+        long newPointer = pool.realloc(pointer, newSize);
+        if (newPointer != NULL_POINTER && isRecording()) {
+            long id = moved(pointer, newPointer);
+            if (id != NO_ID) {
+                record(TraceFormat.REALLOC, id, newSize);
+            }
+        }
+        return newPointer;
+    }
+
+    @Override
+    public void free(long pointer) {
+        pool.free(pointer);
+        if (isRecording()) {
+            // 开始记录之前分配的内存块没有编号，不记录
+            long id = ids.remove(pointer);
+            if (id != NO_ID) {
+                record(TraceFormat.FREE, id);
+            }
+        }
+    }
+
+    private void allocated(long pointer) {
+        ids.put(pointer, nextId++);
+    }
+
+    /**
+     * 指针变化后更新编号
+     * @return 内存块的编号，开始记录之前分配的内存块返回 {@link #NO_ID}
+     */
+    private long moved(long pointer, long newPointer) {
+        if (pointer == newPointer) {
+            return ids.get(pointer);
+        }
+        long id = ids.remove(pointer);
+        if (id != NO_ID) {
+            ids.put(newPointer, id);
+        }
+        return id;
+    }
+
+    private void record(byte op, long value) {
+        ensureSpace();
+        buffer[position++] = op;
+        position = TraceFormat.writeVarLong(buffer, position, value);
+        records++;
+    }
+
+    private void record(byte op, long first, long second) {
+        ensureSpace();
+        buffer[position++] = op;
+        position = TraceFormat.writeVarLong(buffer, position, first);
+        position = TraceFormat.writeVarLong(buffer, position, second);
+        records++;
+    }
+
+    private void ensureSpace() {
+        if (position + TraceFormat.MAX_RECORD_SIZE > buffer.length) {
+            flush();
+        }
+    }
+
+    /**
+     * 把缓冲区中的记录写入输出流，写入失败时停止记录
+     */
+    public void flush() {
+        if (out == null || position == 0) {
+            return;
+        }
+        try {
+            out.write(buffer, 0, position);
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Error writing allocation trace, recording stopped: " + e.getMessage());
+            closeOutput();
+        }
+        position = 0;
+    }
+
+    /**
+     * 写入剩余的记录并关闭输出流，内存池可以继续使用
+     */
+    public void stopRecording() {
+        flush();
+        closeOutput();
+        ids.clear();
+    }
+
+    private void closeOutput() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println("Error closing allocation trace: " + e.getMessage());
+        }
+        out = null;
+    }
+
+    @Override
+    public byte[] get(long pointer) {
+        return pool.get(pointer);
+    }
+
+    @Override
+    public long usedBytes() {
+        return pool.usedBytes();
+    }
+
+    @Override
+    public int length(long pointer) {
+        return pool.length(pointer);
+    }
+
+    @Override
+    public void setProfiler(AllocationProfiler profiler) {
+        pool.setProfiler(profiler);
+    }
+
+    @Override
+    public byte getByte(long pointer, int offset) {
+        return pool.getByte(pointer, offset);
+    }
+
+    @Override
+    public void putByte(long pointer, int offset, byte value) {
+        pool.putByte(pointer, offset, value);
+    }
+
+    @Override
+    public short getShort(long pointer, int offset) {
+        return pool.getShort(pointer, offset);
+    }
+
+    @Override
+    public void putShort(long pointer, int offset, short value) {
+        pool.putShort(pointer, offset, value);
+    }
+
+    @Override
+    public int getInt(long pointer, int offset) {
+        return pool.getInt(pointer, offset);
+    }
+
+    @Override
+    public void putInt(long pointer, int offset, int value) {
+        pool.putInt(pointer, offset, value);
+    }
+
+    @Override
+    public long getLong(long pointer, int offset) {
+        return pool.getLong(pointer, offset);
+    }
+
+    @Override
+    public void putLong(long pointer, int offset, long value) {
+        pool.putLong(pointer, offset, value);
+    }
+
+    @Override
+    public void getBytes(long pointer, int offset, byte[] dst, int dstOffset, int length) {
+        pool.getBytes(pointer, offset, dst, dstOffset, length);
+    }
+
+    @Override
+    public void putBytes(long pointer, int offset, byte[] src, int srcOffset, int length) {
+        pool.putBytes(pointer, offset, src, srcOffset, length);
+    }
+
+    /**
+     * 停止记录并关闭被包装的内存池
+     */
+    @Override
+    public void close() throws Exception {
+        stopRecording();
+        ids.close();
+        idPool.close();
+        pool.close();
+    }
+}
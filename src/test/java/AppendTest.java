@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.IMemoryPool;
+import zone.chenfeng.JMemPool.collections.StringMap;
+import zone.chenfeng.JMemPool.collections.StringPool;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.impl.SynchronizedMemoryPool;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppendTest {
+
+    @Test
+    @DisplayName("追加测试")
+    public void appendTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool(new PoolConfig().chunkSize(1024));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        long pointer = pool.put(new byte[]{1});
+        expected.write(1);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long usedBefore = 0;
+        for (int i = 0; i < 2000; i++) {
+            byte[] data = new byte[random.nextInt(1, 20)];
+            random.nextBytes(data);
+            long before = pointer;
+            pointer = pool.append(pointer, data);
+            expected.write(data);
+            assertEquals(expected.size(), pool.length(pointer));
+            if (expected.size() <= 4) {
+                // 小页的块还有空余时原地写入，只有长度变化
+                assertEquals(SimpleMemoryPool.getPageNum(before), SimpleMemoryPool.getPageNum(pointer));
+            }
+            if (expected.size() > 256) {
+                // 超过256字节后转为分段存储，之后的追加不再移动已有的数据，指针不再变化
+                if (usedBefore > 0) {
+                    assertEquals(before, pointer);
+                }
+                usedBefore = pool.usedBytes();
+            }
+        }
+        assertArrayEquals(expected.toByteArray(), pool.get(pointer));
+        // 只占用分段存储的内存，中间的小块都已释放：第一个段512字节，之后的段翻倍到chunkSize
+        assertEquals(512 + (expected.size() - 512 + 1023) / 1024 * 1024, pool.usedBytes());
+        pool.free(pointer);
+        assertEquals(0, pool.usedBytes());
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("段容量翻倍测试")
+    public void geometricChunkTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        byte[] data = new byte[10];
+        for (int round = 0; round < 2; round++) {
+            long pointer = pool.put(new byte[250]);
+            long converted = IMemoryPool.NULL_POINTER;
+            for (int i = 0; i < 3000; i++) {
+                pointer = pool.append(pointer, data);
+                if (converted == IMemoryPool.NULL_POINTER && pool.length(pointer) > 256) {
+                    converted = pointer;
+                }
+                // 转为分段存储后只写入最后一个段
+                assertEquals(converted == IMemoryPool.NULL_POINTER ? pointer : converted, pointer);
+            }
+            assertEquals(30250, pool.length(pointer));
+            // 512、1K、2K、4K、8K、16K六个段，而不是每次追加都复制整个value
+            assertEquals(512 + 1024 + 2048 + 4096 + 8192 + 16384, pool.usedBytes());
+            long reserved = pool.reservedBytes();
+            pool.free(pointer);
+            assertEquals(0, pool.usedBytes());
+            // 释放的段按容量复用，第二轮不再预留新的内存
+            assertEquals(reserved, pool.reservedBytes());
+        }
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("realloc测试")
+    public void reallocTest() throws Exception {
+        IMemoryPool pool = new SynchronizedMemoryPool(new PoolConfig().chunkSize(1024));
+        long pointer = pool.put(new byte[]{1, 2, 3});
+        pointer = pool.realloc(pointer, 4);
+        assertArrayEquals(new byte[]{1, 2, 3, 0}, pool.get(pointer));
+        pointer = pool.realloc(pointer, 2);
+        assertArrayEquals(new byte[]{1, 2}, pool.get(pointer));
+        // 缩短后再增长，截断的数据不会重新出现
+        pointer = pool.realloc(pointer, 3);
+        assertArrayEquals(new byte[]{1, 2, 0}, pool.get(pointer));
+        pointer = pool.realloc(pointer, 100);
+        byte[] data = pool.get(pointer);
+        assertEquals(100, data.length);
+        assertArrayEquals(new byte[]{1, 2, 0}, Arrays.copyOf(data, 3));
+        pointer = pool.realloc(pointer, 1000);
+        assertEquals(1000, pool.length(pointer));
+        pointer = pool.append(pointer, new byte[]{7});
+        pointer = pool.realloc(pointer, 3000);
+        data = pool.get(pointer);
+        assertEquals(3000, data.length);
+        assertEquals(7, data[1000]);
+        pointer = pool.realloc(pointer, 10);
+        assertArrayEquals(new byte[]{1, 2, 0, 0, 0, 0, 0, 0, 0, 0}, pool.get(pointer));
+        assertThrows(IllegalArgumentException.class, () -> pool.realloc(IMemoryPool.NULL_POINTER, 0));
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("StringMap追加测试")
+    public void stringAppendTest() {
+        for (boolean dedup : new boolean[]{false, true}) {
+            StringMap map = new StringMap(new StringPool(new SimpleMemoryPool(), dedup), System::currentTimeMillis);
+            assertEquals(5, map.append("k", "hello"));
+            map.put("other", "hello");
+            assertEquals(11, map.append("k", " world"));
+            assertEquals("hello world", map.get("k"));
+            assertEquals("hello", map.get("other"));
+            StringBuilder expected = new StringBuilder("hello world");
+            for (int i = 0; i < 100; i++) {
+                map.append("k", "，追加" + i);
+                expected.append("，追加").append(i);
+            }
+            assertEquals(expected.toString(), map.get("k"));
+        }
+    }
+}
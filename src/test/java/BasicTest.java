@@ -1,5 +1,6 @@
 import org.junit.jupiter.api.*;
 import zone.chenfeng.JMemPool.IMemoryPool;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
 import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
 import zone.chenfeng.JMemPool.utils.BenchmarkUtils;
 import zone.chenfeng.JMemPool.utils.StringUtils;
@@ -10,8 +11,7 @@ import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Stream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class BasicTest {
@@ -122,4 +122,94 @@ public class BasicTest {
             throw new RuntimeException(e);
         }
     }
+
+    @Test
+    @DisplayName("宽指针测试")
+    @Order(4)
+    public void widePointerTest(){
+        // 紧凑格式和宽格式都能正确解包
+        long compact = SimpleMemoryPool.packData(1, 0xABCDEF, 0x12345);
+        assertFalse(SimpleMemoryPool.isWide(compact));
+        assertEquals(0xABCDEF, SimpleMemoryPool.getPageNum(compact));
+        assertEquals(0x12345, SimpleMemoryPool.getOffset(compact));
+        long wide = SimpleMemoryPool.packWide(2, Integer.MAX_VALUE, 0x3FFFFFF);
+        assertTrue(SimpleMemoryPool.isWide(wide));
+        assertTrue(wide > 0);
+        assertEquals(2, SimpleMemoryPool.getType(wide));
+        assertEquals(Integer.MAX_VALUE, SimpleMemoryPool.getPageNum(wide));
+        assertEquals(0x3FFFFFF, SimpleMemoryPool.getOffset(wide));
+
+        try(IMemoryPool pool = new SimpleMemoryPool(new PoolConfig().widePointers(true))){
+            List<Long> pointers = new ArrayList<>();
+            List<String> strs = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                String str = StringUtils.randomString(1, 600);
+                strs.add(str);
+                long pointer = pool.put(str.getBytes(StandardCharsets.UTF_8));
+                assertTrue(SimpleMemoryPool.isWide(pointer));
+                pointers.add(pointer);
+            }
+            for (int i = 0; i < strs.size(); i++) {
+                assertEquals(strs.get(i), new String(pool.get(pointers.get(i)), StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    @DisplayName("并发读测试")
+    @Order(5)
+    public void concurrentReadTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        List<String> strs = new ArrayList<>();
+        List<Long> pointers = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String str = StringUtils.randomString(1, 256);
+            strs.add(str);
+            pointers.add(pool.put(str.getBytes(StandardCharsets.UTF_8)));
+        }
+        // 只读时多个线程可以同时访问同一页
+        long errors = Stream.iterate(0, i -> i + 1).limit(8).parallel().mapToLong(t -> {
+            long errCount = 0;
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < strs.size(); i++) {
+                    if (!strs.get(i).equals(new String(pool.get(pointers.get(i)), StandardCharsets.UTF_8))) {
+                        errCount++;
+                    }
+                }
+            }
+            return errCount;
+        }).sum();
+        assertEquals(0, errors);
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("对齐分配测试")
+    @Order(6)
+    public void alignedMallocTest() throws Exception {
+        try (SimpleMemoryPool pool = new SimpleMemoryPool()) {
+            for (int i = 0; i < 100; i++) {
+                long pointer = pool.mallocAligned(8, 64);
+                assertEquals(0, pool.alignmentOffset(pointer, 64));
+                byte[] data = new byte[8];
+                data[0] = (byte) i;
+                pool.put(pointer, data);
+                assertArrayEquals(data, pool.get(pointer));
+            }
+            // 普通分配的块按块大小自然对齐
+            long pointer = pool.malloc(16);
+            assertEquals(0, pool.alignmentOffset(pointer, 16));
+            assertThrows(IllegalArgumentException.class, () -> pool.mallocAligned(8, 48));
+        }
+        try (SimpleMemoryPool pool = new SimpleMemoryPool(new PoolConfig().pageAlignment(4096))) {
+            // 页的基地址按4096对齐，页内第一个4096字节中必然有一个块的地址是4096的倍数
+            boolean found = false;
+            for (int i = 0; i < 1024; i++) {
+                found |= pool.alignmentOffset(pool.malloc(4), 4096) == 0;
+            }
+            assertTrue(found);
+        }
+    }
 }
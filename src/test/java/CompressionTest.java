@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.impl.CompressionStats;
+import zone.chenfeng.JMemPool.impl.LZCodec;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionTest {
+
+    private static byte[] json(int records) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < records; i++) {
+            sb.append("{\"id\":").append(i).append(",\"name\":\"user-").append(i)
+                    .append("\",\"email\":\"user").append(i).append("@example.com\",\"active\":true},");
+        }
+        return sb.append("]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("LZ压缩解压测试")
+    public void codecTest() {
+        LZCodec codec = new LZCodec();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[][] inputs = {
+                new byte[0],
+                "abc".getBytes(StandardCharsets.UTF_8),
+                new byte[100_000],
+                json(2000),
+                new byte[5000],
+        };
+        random.nextBytes(inputs[4]);
+        for (byte[] input : inputs) {
+            byte[] compressed = new byte[input.length * 2 + 16];
+            int length = codec.compress(input, input.length, compressed, 3, compressed.length - 3);
+            assertTrue(length > 0);
+            byte[] output = new byte[input.length];
+            LZCodec.decompress(compressed, 3, length, output, output.length);
+            assertArrayEquals(input, output);
+        }
+        // 字母表较小的随机数据，覆盖各种长度的字面量和重叠匹配
+        for (int i = 0; i < 200; i++) {
+            byte[] input = new byte[random.nextInt(1, 20000)];
+            int alphabet = random.nextInt(1, 8);
+            for (int j = 0; j < input.length; j++) {
+                input[j] = (byte) random.nextInt(alphabet);
+            }
+            byte[] compressed = new byte[input.length * 2 + 16];
+            int length = codec.compress(input, input.length, compressed, 0, compressed.length);
+            byte[] output = new byte[input.length];
+            LZCodec.decompress(compressed, 0, length, output, output.length);
+            assertArrayEquals(input, output);
+        }
+        // 超出上限时放弃压缩
+        assertEquals(-1, codec.compress(inputs[4], inputs[4].length, new byte[4000], 0, 4000));
+    }
+
+    @Test
+    @DisplayName("大页透明压缩测试")
+    public void poolCompressionTest() throws Exception {
+        byte[] compressible = json(100);
+        byte[] incompressible = new byte[4096];
+        ThreadLocalRandom.current().nextBytes(incompressible);
+        byte[] small = new byte[300];
+        try (SimpleMemoryPool pool = new SimpleMemoryPool(new PoolConfig().compressionThreshold(1024))) {
+            long p1 = pool.put(compressible);
+            long p2 = pool.put(incompressible);
+            long p3 = pool.put(small);
+            assertArrayEquals(compressible, pool.get(p1));
+            assertArrayEquals(incompressible, pool.get(p2));
+            assertArrayEquals(small, pool.get(p3));
+            // 按压缩后的大小统计已使用的字节数
+            assertTrue(pool.usedBytes() < compressible.length + incompressible.length);
+
+            CompressionStats stats = pool.compressionStats();
+            assertEquals(1, stats.getCompressedValues());
+            assertEquals(1, stats.getIncompressibleValues());
+            assertEquals(compressible.length, stats.getOriginalBytes());
+            assertTrue(stats.getRatio() > 3);
+
+            // 原地更新
+            long p4 = pool.put(p1, incompressible);
+            assertArrayEquals(incompressible, pool.get(p4));
+            pool.free(p2);
+            pool.free(p3);
+            pool.free(p4);
+            assertEquals(0, pool.usedBytes());
+        }
+    }
+}
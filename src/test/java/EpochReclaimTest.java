@@ -0,0 +1,109 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.collections.ConcurrentStringMap;
+import zone.chenfeng.JMemPool.impl.EpochReclaimer;
+import zone.chenfeng.JMemPool.impl.SynchronizedMemoryPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpochReclaimTest {
+
+    @Test
+    @DisplayName("读取中的指针延迟释放测试")
+    public void deferTest() throws Exception {
+        List<Long> released = new ArrayList<>();
+        EpochReclaimer reclaimer = new EpochReclaimer(released::add, 1);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch retired = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            reclaimer.enter();
+            entered.countDown();
+            try {
+                retired.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                reclaimer.exit();
+            }
+        });
+        reader.start();
+        entered.await();
+        reclaimer.retire(42);
+        for (int i = 0; i < 10; i++) {
+            reclaimer.collect();
+        }
+        // 读线程停留在旧的epoch，全局epoch最多推进一次
+        assertTrue(released.isEmpty());
+        assertEquals(1, reclaimer.pendingPointers());
+        retired.countDown();
+        reader.join();
+        reclaimer.collect();
+        reclaimer.collect();
+        assertEquals(List.of(42L), released);
+        assertEquals(0, reclaimer.pendingPointers());
+        assertThrows(IllegalStateException.class, reclaimer::exit);
+    }
+
+    @Test
+    @DisplayName("并发读写字符串Map测试")
+    public void concurrentMapTest() throws Exception {
+        SynchronizedMemoryPool pool = new SynchronizedMemoryPool();
+        ConcurrentStringMap map = new ConcurrentStringMap(pool);
+        int keys = 16;
+        for (int i = 0; i < keys; i++) {
+            map.put("key" + i, value(i, 0));
+        }
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            boolean writer = t < 2;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int n = 1; n <= 20_000; n++) {
+                        int i = n % keys;
+                        if (writer) {
+                            map.put("key" + i, value(i, n));
+                            continue;
+                        }
+                        // 值由key和版本号组成并重复多次，读到复用的内存块时前后不一致
+                        String value = map.get("key" + i);
+                        String[] parts = value.split(",");
+                        for (String part : parts) {
+                            assertEquals(parts[0], part);
+                        }
+                        assertTrue(parts[0].startsWith(i + ":"), value);
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        assertEquals(keys, map.size());
+        int length = map.append("key1", "x");
+        assertEquals(map.get("key1").length(), length);
+        for (int i = 0; i < keys; i++) {
+            assertNotNull(map.remove("key" + i));
+        }
+        map.releaseAll();
+        assertEquals(0, map.usedMemory());
+        assertEquals(0, map.getReclaimer().pendingPointers());
+        pool.close();
+    }
+
+    private static String value(int key, int version) {
+        String part = key + ":" + version;
+        return String.join(",", part, part, part, part, part, part, part, part);
+    }
+}
@@ -0,0 +1,84 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JfrTest {
+
+    private static List<RecordedEvent> record(Recording recording, Runnable action) throws Exception {
+        recording.start();
+        action.run();
+        recording.stop();
+        Path file = Files.createTempFile("jmempool", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith("zone.chenfeng.JMemPool"))
+                    .collect(Collectors.toList());
+        } finally {
+            recording.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void allocate() {
+        try (SimpleMemoryPool pool = new SimpleMemoryPool(new PoolConfig().chunkSize(1024))) {
+            long little = pool.put(new byte[10]);
+            pool.put(little, new byte[100]);
+            pool.put(new byte[500]);
+            pool.put(new byte[5000]);
+            long pointer = pool.put(new byte[200]);
+            pool.append(pointer, new byte[2000]);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    @DisplayName("JFR事件测试")
+    public void eventsTest() throws Exception {
+        Recording recording = new Recording();
+        recording.enable("zone.chenfeng.JMemPool.PageCreated");
+        recording.enable("zone.chenfeng.JMemPool.PageRetired");
+        recording.enable("zone.chenfeng.JMemPool.Relocation");
+        recording.enable("zone.chenfeng.JMemPool.HugeAllocation").with("minSize", "1 kB");
+        List<RecordedEvent> events = record(recording, JfrTest::allocate);
+
+        List<RecordedEvent> created = byName(events, "PageCreated");
+        // 16、128、256字节的小页，一个大页，2200字节追加后的三个段
+        assertEquals(7, created.size());
+        assertEquals(created.size(), byName(events, "PageRetired").size());
+
+        List<RecordedEvent> huge = byName(events, "HugeAllocation");
+        assertEquals(1, huge.size());
+        assertEquals(5000, huge.get(0).getLong("size"));
+        assertNotNull(huge.get(0).getStackTrace());
+
+        List<RecordedEvent> relocations = byName(events, "Relocation");
+        assertEquals(2, relocations.size());
+        assertEquals("put", relocations.get(0).getString("operation"));
+        assertEquals(10, relocations.get(0).getLong("oldLength"));
+        assertEquals("append", relocations.get(1).getString("operation"));
+        assertTrue(relocations.get(1).getBoolean("chunked"));
+    }
+
+    @Test
+    @DisplayName("JFR事件默认关闭测试")
+    public void disabledByDefaultTest() throws Exception {
+        assertTrue(record(new Recording(), JfrTest::allocate).isEmpty());
+    }
+
+    private static List<RecordedEvent> byName(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().endsWith("." + name)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.PoolStats;
+import zone.chenfeng.JMemPool.impl.SynchronizedMemoryPool;
+import zone.chenfeng.JMemPool.jmx.Jmx;
+import zone.chenfeng.JMemPool.jmx.PoolMonitor;
+import zone.chenfeng.JMemPool.jmx.ServerMonitor;
+import zone.chenfeng.JMemPool.server.LatencyHistogram;
+import zone.chenfeng.JMemPool.server.ServerStats;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JmxTest {
+
+    @Test
+    @DisplayName("内存池MBean测试")
+    public void poolMBeanTest() throws Exception {
+        SynchronizedMemoryPool pool = new SynchronizedMemoryPool(new PoolConfig().maxReservedBytes(64 * 1024));
+        long little = pool.malloc(10);
+        long huge = pool.put(new byte[1000]);
+        pool.free(little);
+        // 16字节的页已经占满了上限
+        assertEquals(-1, pool.malloc(200));
+
+        PoolStats stats = pool.stats();
+        assertEquals(2, stats.getAllocations());
+        assertEquals(1, stats.getFrees());
+        assertEquals(1, stats.getFailedAllocations());
+        assertEquals(2, stats.getPageCount());
+        assertEquals(1, stats.getLevelPageCounts()[4]);
+        assertEquals(1000, stats.getLevelUsedBytes()[PoolConfig.HUGE_LEVEL]);
+        assertEquals(32 * 1024, stats.getLevelReservedBytes()[4]);
+
+        ObjectName name = Jmx.register(new PoolMonitor(pool::stats), "MemoryPool", "test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(1000L, server.getAttribute(name, "UsedBytes"));
+        assertEquals(1L, server.getAttribute(name, "FailedAllocations"));
+        assertArrayEquals(stats.getLevelReservedBytes(), (long[]) server.getAttribute(name, "LevelReservedBytes"));
+        assertNotNull(server.getAttribute(name, "AllocationRate"));
+        Jmx.unregister(name);
+        assertFalse(server.isRegistered(name));
+        pool.free(huge);
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("服务端MBean测试")
+    public void serverMBeanTest() throws Exception {
+        ServerStats stats = new ServerStats("get", "set");
+        ObjectName name = Jmx.register(new ServerMonitor(stats), "Server", "test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(0L, server.getAttribute(name, "Commands"));
+        TabularData counts = (TabularData) server.getAttribute(name, "CommandCounts");
+        assertEquals(3, counts.size());
+        assertNotNull(server.getAttribute(name, "CommandRates"));
+        assertEquals(0.0, server.getAttribute(name, "LatencyP99Micros"));
+        server.invoke(name, "resetLatency", null, null);
+        Jmx.unregister(name);
+    }
+
+    @Test
+    @DisplayName("延迟直方图测试")
+    public void histogramTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000, histogram.max());
+        assertEquals(50_000.5, histogram.mean(), 0.001);
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long expected = (long) (quantile * 100_000);
+            long actual = histogram.percentile(quantile);
+            // 返回区间上界，相对误差不超过12.5%
+            assertTrue(actual >= expected && actual <= expected * 1.125, quantile + ": " + actual);
+        }
+        assertEquals(100_000, histogram.percentile(1));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.percentile(1));
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.5));
+    }
+}
@@ -0,0 +1,109 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.IMemoryPool;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SynchronizedMemoryPool;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptimisticReadTest {
+
+    @Test
+    @DisplayName("并发写入时无锁读取不会读到不一致的数据")
+    public void consistentReadTest() throws Exception {
+        SynchronizedMemoryPool pool = new SynchronizedMemoryPool();
+        long[] pointers = new long[16];
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i] = pool.put(filled(64, (byte) 0));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> error = new AtomicReference<>();
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                long reads = 0;
+                while (running.get() || reads == 0) {
+                    for (long pointer : pointers) {
+                        byte[] data = pool.get(pointer);
+                        long first = pool.getLong(pointer, 0);
+                        assertEquals(64, pool.length(pointer));
+                        for (byte b : data) {
+                            if (b != data[0]) {
+                                error.compareAndSet(null, "Torn read: " + Arrays.toString(data));
+                            }
+                        }
+                        byte f = (byte) first;
+                        if (first != filledLong(f)) {
+                            error.compareAndSet(null, "Torn long: " + Long.toHexString(first));
+                        }
+                        reads++;
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        for (int i = 0; i < 100_000; i++) {
+            int index = i % pointers.length;
+            // 长度不变时原地写入，指针不变
+            assertEquals(pointers[index], pool.put(pointers[index], filled(64, (byte) i)));
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(error.get());
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("阻塞等待的写线程不影响其他写入的版本号")
+    public void blockedWriterTest() throws Exception {
+        // 只能有一个64字节的页，移动到更大级别的put会阻塞等待
+        SynchronizedMemoryPool pool = new SynchronizedMemoryPool(new PoolConfig()
+                .maxReservedBytes(64 * 2048)
+                .exhaustionPolicy(PoolConfig.ExhaustionPolicy.BLOCK)
+                .blockTimeoutMillis(1000));
+        long blocked = pool.put(filled(64, (byte) 1));
+        long pointer = pool.put(filled(64, (byte) 0));
+        long[] result = {0};
+        Thread waiter = new Thread(() -> result[0] = pool.put(blocked, new byte[100]));
+        waiter.start();
+        AtomicReference<String> error = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (waiter.isAlive()) {
+                byte[] data = pool.get(pointer);
+                for (byte b : data) {
+                    if (b != data[0]) {
+                        error.compareAndSet(null, "Torn read: " + Arrays.toString(data));
+                    }
+                }
+            }
+        });
+        reader.start();
+        // 与等待中的写线程写同一个页
+        for (int i = 0; waiter.isAlive(); i++) {
+            assertEquals(pointer, pool.put(pointer, filled(64, (byte) i)));
+        }
+        reader.join();
+        assertNull(error.get());
+        // 超时后原来的数据不变
+        assertEquals(IMemoryPool.NULL_POINTER, result[0]);
+        assertArrayEquals(filled(64, (byte) 1), pool.get(blocked));
+        pool.close();
+    }
+
+    private static byte[] filled(int length, byte value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, value);
+        return data;
+    }
+
+    private static long filledLong(byte value) {
+        long v = value & 0xFFL;
+        return v * 0x0101010101010101L;
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.impl.PageMemory;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.trace.TraceReplayer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageGeometryTest {
+
+    @Test
+    @DisplayName("每个级别的页大小测试")
+    public void levelPageSizeTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool(new PoolConfig()
+                .levelSlotsPerPage(2, 8192)
+                .levelPageBytes(8, 64 * 1024));
+        long[] small = new long[8192];
+        for (int i = 0; i < small.length; i++) {
+            small[i] = pool.malloc(4);
+            pool.putInt(small[i], 0, i);
+        }
+        // 8192块都在同一个页中，超过4096块的部分使用宽指针
+        assertEquals(8192 * 4, pool.reservedBytes());
+        assertTrue(SimpleMemoryPool.isWide(small[small.length - 2]));
+        assertFalse(SimpleMemoryPool.isWide(small[0]));
+        for (int i = 0; i < small.length; i++) {
+            assertEquals(i, pool.getInt(small[i], 0));
+        }
+        pool.free(small[100]);
+        long reused = pool.malloc(3);
+        assertEquals(8192 * 4, pool.reservedBytes());
+        assertEquals(3, pool.length(reused));
+
+        // 64KB的页只能放256个256字节的块
+        for (int i = 0; i < 300; i++) {
+            assertNotEquals(SimpleMemoryPool.NULL_POINTER, pool.malloc(256));
+        }
+        assertEquals(8192 * 4 + 2 * 64 * 1024, pool.reservedBytes());
+        assertEquals(2, pool.stats().getLevelPageCounts()[8]);
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("预分配和自定义页内存分配测试")
+    public void preallocateTest() throws Exception {
+        AtomicInteger allocated = new AtomicInteger();
+        PoolConfig config = new PoolConfig()
+                .levelPageBytes(4, 16 * 1024)
+                .preallocatePages(4, 3)
+                .preallocatePages(PoolConfig.HUGE_LEVEL, 2)
+                .chunkSize(4096)
+                .pageAllocator((capacity, alignment) -> {
+                    allocated.incrementAndGet();
+                    return PageMemory.allocateDirect(capacity, alignment);
+                });
+        SimpleMemoryPool pool = new SimpleMemoryPool(config);
+        assertEquals(5, allocated.get());
+        assertEquals(3 * 16 * 1024 + 2 * 4096, pool.reservedBytes());
+        assertEquals(0, pool.usedBytes());
+        // 预分配的页和段直接使用，不再分配新的内存
+        for (int i = 0; i < 3 * 1024; i++) {
+            pool.malloc(16);
+        }
+        long pointer = pool.put(new byte[300]);
+        pool.append(pointer, new byte[5000]);
+        assertEquals(5, allocated.get());
+        pool.close();
+
+        assertThrows(IllegalArgumentException.class, () -> new SimpleMemoryPool(new PoolConfig()
+                .maxReservedBytes(64 * 1024).preallocatePages(8, 1)));
+        assertThrows(IllegalArgumentException.class, () -> new PoolConfig().levelPageBytes(8, 100));
+        assertThrows(IllegalArgumentException.class, () -> new PoolConfig().levelSlotsPerPage(PoolConfig.HUGE_LEVEL, 16));
+        assertEquals(1024, TraceReplayer.parseConfig("level5.pageBytes=32kb").getLevelSlotsPerPage(5));
+    }
+}
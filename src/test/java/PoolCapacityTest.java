@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.*;
+import zone.chenfeng.JMemPool.IMemoryPool;
+import zone.chenfeng.JMemPool.collections.EvictionPolicy;
+import zone.chenfeng.JMemPool.collections.StringMap;
+import zone.chenfeng.JMemPool.collections.StringPool;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.impl.SynchronizedMemoryPool;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PoolCapacityTest {
+
+    @Test
+    @DisplayName("容量上限立即失败测试")
+    public void failFastTest() throws Exception {
+        // 16字节的块，一页为32k，最多预留一页
+        PoolConfig config = new PoolConfig().levelMaxReservedBytes(4, 16 * 2048);
+        try (SimpleMemoryPool pool = new SimpleMemoryPool(config)) {
+            long last = 0;
+            for (int i = 0; i < 2048; i++) {
+                last = pool.put(new byte[16]);
+                assertNotEquals(IMemoryPool.NULL_POINTER, last);
+            }
+            assertEquals(IMemoryPool.NULL_POINTER, pool.put(new byte[16]));
+            assertEquals(1, pool.failedAllocations());
+            // 其他级别不受影响
+            assertNotEquals(IMemoryPool.NULL_POINTER, pool.put(new byte[32]));
+            // 释放后可以继续分配
+            pool.free(last);
+            assertNotEquals(IMemoryPool.NULL_POINTER, pool.put(new byte[16]));
+            assertEquals(16 * 2048 + 32 * 2048, pool.reservedBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("容量上限阻塞测试")
+    public void blockTest() throws Exception {
+        PoolConfig config = new PoolConfig()
+                .maxReservedBytes(4096)
+                .exhaustionPolicy(PoolConfig.ExhaustionPolicy.BLOCK)
+                .blockTimeoutMillis(5000);
+        try (SynchronizedMemoryPool pool = new SynchronizedMemoryPool(config)) {
+            long pointer = pool.put(new byte[4000]);
+            assertNotEquals(IMemoryPool.NULL_POINTER, pointer);
+            CompletableFuture<Long> blocked = CompletableFuture.supplyAsync(() -> pool.put(new byte[1000]));
+            Thread.sleep(100);
+            assertFalse(blocked.isDone());
+            pool.free(pointer);
+            assertNotEquals(IMemoryPool.NULL_POINTER, blocked.get(5, TimeUnit.SECONDS));
+        }
+        config.blockTimeoutMillis(50);
+        try (SynchronizedMemoryPool pool = new SynchronizedMemoryPool(config)) {
+            pool.put(new byte[4000]);
+            assertEquals(IMemoryPool.NULL_POINTER, pool.put(new byte[1000]));
+        }
+    }
+
+    @Test
+    @DisplayName("容量上限回收测试")
+    public void reclaimTest() throws Exception {
+        PoolConfig config = new PoolConfig()
+                .maxReservedBytes(64 * 1024)
+                .exhaustionPolicy(PoolConfig.ExhaustionPolicy.RECLAIM);
+        SimpleMemoryPool pool = new SimpleMemoryPool(config);
+        StringMap map = new StringMap(new StringPool(pool), System::currentTimeMillis);
+        map.setMaxMemory(0, EvictionPolicy.ALLKEYS_LRU);
+        pool.setReclaimHook(map::reclaim);
+        for (int i = 0; i < 10000; i++) {
+            map.put("key-" + i, "value-" + i + "-0123456789");
+            assertEquals("value-" + i + "-0123456789", map.get("key-" + i));
+            assertTrue(pool.reservedBytes() <= 64 * 1024);
+        }
+        assertTrue(map.evictedKeys() > 0);
+        assertEquals(0, pool.failedAllocations());
+    }
+}
@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.impl.DirectPageMemory;
+import zone.chenfeng.JMemPool.impl.PageMemory;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreallocationTest {
+
+    @Test
+    @DisplayName("后台预分配和预热测试")
+    public void backgroundTest() throws Exception {
+        AtomicInteger allocated = new AtomicInteger();
+        AtomicInteger touched = new AtomicInteger();
+        PoolConfig config = new PoolConfig()
+                .preallocatePages(3, 2)
+                .preallocatePages(PoolConfig.HUGE_LEVEL, 1)
+                .chunkSize(4096)
+                .preTouch(true)
+                .preallocateInBackground(true)
+                .pageAllocator((capacity, alignment) -> {
+                    allocated.incrementAndGet();
+                    return new DirectPageMemory(capacity, alignment) {
+                        @Override
+                        public void preTouch() {
+                            touched.incrementAndGet();
+                            super.preTouch();
+                        }
+                    };
+                });
+        SimpleMemoryPool pool = new SimpleMemoryPool(config);
+        assertTrue(pool.awaitPreallocation(10_000));
+        assertEquals(3, allocated.get());
+        assertEquals(3, touched.get());
+        // 后台分配的页在使用时才计入预留字节数
+        assertEquals(0, pool.reservedBytes());
+
+        for (int i = 0; i < 4096; i++) {
+            pool.malloc(8);
+        }
+        try (var writer = pool.openWriter()) {
+            writer.write(new byte[100]);
+        }
+        assertEquals(3, allocated.get());
+        assertEquals(2 * 8 * 2048 + 4096, pool.reservedBytes());
+        // 预分配用完后按需分配，不再预热
+        pool.malloc(8);
+        assertEquals(4, allocated.get());
+        assertEquals(3, touched.get());
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("同步预分配测试")
+    public void synchronousTest() throws Exception {
+        AtomicInteger touched = new AtomicInteger();
+        SimpleMemoryPool pool = new SimpleMemoryPool(new PoolConfig()
+                .preallocatePages(2, 4)
+                .preTouch(true)
+                .pageAllocator((capacity, alignment) -> new DirectPageMemory(capacity, alignment) {
+                    @Override
+                    public void preTouch() {
+                        touched.incrementAndGet();
+                        super.preTouch();
+                    }
+                }));
+        assertTrue(pool.awaitPreallocation(0));
+        assertEquals(4, touched.get());
+        assertEquals(4 * 4 * 2048, pool.reservedBytes());
+        pool.close();
+
+        // 后台预分配未完成时关闭，剩余的内存由后台线程释放
+        SimpleMemoryPool closed = new SimpleMemoryPool(new PoolConfig()
+                .preallocatePages(8, 4).preallocateInBackground(true));
+        closed.close();
+        PageMemory memory = PageMemory.allocateDirect(10000);
+        memory.putByte(4096, (byte) 1);
+        memory.preTouch();
+        assertEquals(0, memory.getByte(4096));
+        memory.release();
+    }
+}
@@ -0,0 +1,109 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.collections.IntArrayList;
+import zone.chenfeng.JMemPool.collections.LongArrayList;
+import zone.chenfeng.JMemPool.collections.LongLongHashMap;
+import zone.chenfeng.JMemPool.collections.LongRingQueue;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrimitiveCollectionsTest {
+
+    @Test
+    @DisplayName("堆外列表测试")
+    public void listTest() throws Exception {
+        try (SimpleMemoryPool pool = new SimpleMemoryPool()) {
+            LongArrayList longs = new LongArrayList(pool);
+            IntArrayList ints = new IntArrayList(pool, 10);
+            for (int i = 0; i < 10_000; i++) {
+                longs.add(i * 1_000_000_007L);
+                ints.add(-i);
+            }
+            longs.addAll(new long[]{1, 2, 3, 4}, 1, 2);
+            assertEquals(10_002, longs.size());
+            assertEquals(3, longs.removeLast());
+            assertEquals(2, longs.get(10_000));
+            assertEquals(5 * 1_000_000_007L, longs.set(5, 7));
+            assertEquals(7, longs.get(5));
+            assertEquals(-9999, ints.get(9999));
+            assertThrows(IndexOutOfBoundsException.class, () -> ints.get(10_000));
+            assertEquals(10_000, ints.toArray().length);
+
+            long used = pool.usedBytes();
+            assertTrue(used >= 10_001 * 8 + 10_000 * 4);
+            longs.close();
+            ints.close();
+            assertEquals(0, pool.usedBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("堆外哈希表测试")
+    public void mapTest() throws Exception {
+        try (SimpleMemoryPool pool = new SimpleMemoryPool()) {
+            LongLongHashMap map = new LongLongHashMap(pool, Long.MIN_VALUE);
+            Map<Long, Long> expected = new HashMap<>();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 100_000; i++) {
+                // key范围较小，覆盖重复写入、删除后重新插入和key为0的情况
+                long key = random.nextLong(-2000, 2000);
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.getOrDefault(key, Long.MIN_VALUE), map.remove(key));
+                    expected.remove(key);
+                } else {
+                    long value = random.nextLong();
+                    Long old = expected.put(key, value);
+                    assertEquals(old == null ? Long.MIN_VALUE : old, map.put(key, value));
+                }
+            }
+            assertEquals(expected.size(), map.size());
+            expected.forEach((k, v) -> assertEquals(v, map.get(k)));
+            Map<Long, Long> iterated = new HashMap<>();
+            map.forEach(iterated::put);
+            assertEquals(expected, iterated);
+            map.clear();
+            assertEquals(Long.MIN_VALUE, map.get(0));
+            map.close();
+            assertEquals(0, pool.usedBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("堆外队列测试")
+    public void queueTest() throws Exception {
+        try (SimpleMemoryPool pool = new SimpleMemoryPool()) {
+            LongRingQueue queue = new LongRingQueue(pool);
+            ArrayDeque<Long> expected = new ArrayDeque<>();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long next = 0;
+            for (int i = 0; i < 50_000; i++) {
+                // 入队多于出队，队列会在环绕的状态下扩容
+                if (random.nextInt(5) < 3 || expected.isEmpty()) {
+                    queue.offer(next);
+                    expected.offer(next++);
+                } else {
+                    assertEquals(expected.peek(), queue.peek());
+                    assertEquals(expected.poll(), queue.poll());
+                }
+            }
+            assertEquals(expected.size(), queue.size());
+            long[] drained = new long[100];
+            assertEquals(100, queue.drainTo(drained));
+            for (long value : drained) {
+                assertEquals(expected.poll(), value);
+            }
+            queue.drain(value -> assertEquals(expected.poll(), value), Integer.MAX_VALUE);
+            assertTrue(queue.isEmpty());
+            assertThrows(NoSuchElementException.class, queue::poll);
+            queue.close();
+            assertEquals(0, pool.usedBytes());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.profiler.AllocationProfile;
+import zone.chenfeng.JMemPool.profiler.AllocationProfiler;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfilerTest {
+
+    @Test
+    @DisplayName("按调用点估算分配字节数测试")
+    public void callSiteTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        AllocationProfiler profiler = new AllocationProfiler(4096, new SplittableRandom(42));
+        pool.setProfiler(profiler);
+        long[] small = new long[200_000];
+        long[] large = new long[100_000];
+        allocateSmall(pool, small);
+        allocateLarge(pool, large);
+        for (long pointer : small) {
+            pool.free(pointer);
+        }
+
+        AllocationProfile profile = profiler.profile();
+        assertEquals(200_000L * 16 + 100_000L * 128, profile.allocatedBytes());
+        assertEquals(2, profile.callSites().size());
+        AllocationProfile.CallSite first = profile.callSites().get(0);
+        AllocationProfile.CallSite second = profile.callSites().get(1);
+        assertEquals("allocateLarge", first.frame().getMethodName());
+        assertEquals("allocateSmall", second.frame().getMethodName());
+        // 估算值与实际分配的字节数相差不超过20%
+        assertEquals(100_000 * 128, first.estimatedBytes(), 100_000 * 128 * 0.2);
+        assertEquals(200_000 * 16, second.estimatedBytes(), 200_000 * 16 * 0.2);
+        // 释放的样本记录了存活时间
+        assertEquals(0, first.freedSamples());
+        assertEquals(second.samples(), second.freedSamples());
+        assertTrue(second.maxLifetimeNanos() > 0);
+
+        long[] histogram = profile.sizeClassSamples();
+        assertEquals(second.samples(), histogram[4]);
+        assertEquals(first.samples(), histogram[7]);
+        assertTrue(profile.format(5).contains("allocateLarge"));
+
+        // 关闭后不再采样
+        pool.setProfiler(null);
+        allocateSmall(pool, small);
+        assertEquals(profile.samples(), profiler.profile().samples());
+        profiler.close();
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("并发reset测试")
+    public void concurrentResetTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        AllocationProfiler profiler = new AllocationProfiler(64);
+        pool.setProfiler(profiler);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread resetter = new Thread(() -> {
+            while (!done.get()) {
+                profiler.reset();
+            }
+        });
+        resetter.start();
+        long[] pointers = new long[1000];
+        try {
+            // 释放时与reset并发修改存活样本，不能抛出异常或破坏哈希表
+            for (int round = 0; round < 200; round++) {
+                for (int i = 0; i < pointers.length; i++) {
+                    pointers[i] = pool.malloc(16);
+                }
+                for (long pointer : pointers) {
+                    pool.free(pointer);
+                }
+            }
+        } finally {
+            done.set(true);
+            resetter.join();
+        }
+        profiler.reset();
+        allocateSmall(pool, pointers);
+        assertTrue(profiler.profile().samples() > 0);
+        profiler.close();
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("大页和流式存储采样测试")
+    public void hugeTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool(new PoolConfig().chunkSize(1024));
+        AllocationProfiler profiler = new AllocationProfiler(1);
+        pool.setProfiler(profiler);
+        long huge = pool.put(new byte[1000]);
+        long chunked = pool.append(huge, new byte[2000]);
+        assertEquals(3000, pool.length(chunked));
+
+        AllocationProfile profile = profiler.profile();
+        // 采样间隔为1时每次分配都被采样：一个大页内存块和三个段
+        assertEquals(4, profile.sizeClassSamples()[PoolConfig.HUGE_LEVEL]);
+        assertEquals(1000 + 3 * 1024, profile.sizeClassBytes()[PoolConfig.HUGE_LEVEL], 1);
+        pool.free(chunked);
+        AllocationProfile.CallSite site = profiler.profile().callSites().get(0);
+        assertEquals(0, site.liveSamples());
+        profiler.close();
+        pool.close();
+    }
+
+    private static void allocateSmall(SimpleMemoryPool pool, long[] pointers) {
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i] = pool.malloc(16);
+        }
+    }
+
+    private static void allocateLarge(SimpleMemoryPool pool, long[] pointers) {
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i] = pool.malloc(128);
+        }
+    }
+}
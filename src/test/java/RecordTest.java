@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.IMemoryPool;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.struct.FieldType;
+import zone.chenfeng.JMemPool.struct.RecordFlyweight;
+import zone.chenfeng.JMemPool.struct.RecordLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordTest {
+
+    @Test
+    @DisplayName("类型化访问测试")
+    public void typedAccessTest() throws Exception {
+        for (PoolConfig config : new PoolConfig[]{new PoolConfig(), new PoolConfig().compressionThreshold(1024)}) {
+            try (IMemoryPool pool = new SimpleMemoryPool(config)) {
+                // 小页和大页
+                for (int size : new int[]{16, 1000}) {
+                    long pointer = pool.malloc(size);
+                    pool.putLong(pointer, 0, Long.MIN_VALUE + 1);
+                    pool.putInt(pointer, 8, -7);
+                    pool.putShort(pointer, 12, (short) 300);
+                    pool.putByte(pointer, 14, (byte) 5);
+                    assertEquals(Long.MIN_VALUE + 1, pool.getLong(pointer, 0));
+                    assertEquals(-7, pool.getInt(pointer, 8));
+                    assertEquals(300, pool.getShort(pointer, 12));
+                    assertEquals(5, pool.getByte(pointer, 14));
+                    assertEquals(0, pool.getByte(pointer, 15));
+                    pool.putDouble(pointer, 0, 3.5);
+                    assertEquals(3.5, pool.getDouble(pointer, 0));
+                    assertThrows(IndexOutOfBoundsException.class, () -> pool.getLong(pointer, size - 4));
+                    pool.free(pointer);
+                }
+                // put的数组被复制，类型化的写不会修改调用方的数组
+                byte[] data = new byte[2000];
+                long pointer = pool.put(data);
+                if (config.getCompressionThreshold() > 0) {
+                    // 被压缩的块不支持类型化访问
+                    assertThrows(UnsupportedOperationException.class, () -> pool.putLong(pointer, 8, 42));
+                    continue;
+                }
+                pool.putLong(pointer, 8, 42);
+                assertEquals(0, data[8]);
+                assertEquals(42, pool.getLong(pointer, 8));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("记录享元测试")
+    public void flyweightTest() throws Exception {
+        RecordLayout layout = RecordLayout.builder()
+                .field("flag", FieldType.BYTE)
+                .field("id", FieldType.LONG)
+                .field("count", FieldType.INT)
+                .field("score", FieldType.DOUBLE)
+                .build();
+        assertEquals(0, layout.offset("flag"));
+        assertEquals(8, layout.offset("id"));
+        assertEquals(16, layout.offset("count"));
+        assertEquals(24, layout.offset("score"));
+        assertEquals(32, layout.size());
+        assertThrows(IllegalArgumentException.class, () -> layout.offset("missing"));
+
+        int id = layout.offset("id");
+        int count = layout.offset("count");
+        int score = layout.offset("score");
+        try (IMemoryPool pool = new SimpleMemoryPool()) {
+            RecordFlyweight record = new RecordFlyweight(layout, pool);
+            List<Long> pointers = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                long pointer = layout.allocate(pool);
+                record.wrap(pointer);
+                record.putLong(id, i);
+                record.putDouble(score, i / 2.0);
+                pointers.add(pointer);
+            }
+            for (int round = 0; round < 3; round++) {
+                for (long pointer : pointers) {
+                    record.wrap(pointer);
+                    record.putInt(count, record.getInt(count) + 1);
+                }
+            }
+            for (int i = 0; i < pointers.size(); i++) {
+                record.wrap(pointers.get(i));
+                assertEquals(i, record.getLong(id));
+                assertEquals(3, record.getInt(count));
+                assertEquals(i / 2.0, record.getDouble(score));
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.IMemoryPool;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.impl.SynchronizedMemoryPool;
+import zone.chenfeng.JMemPool.profiler.AllocationProfiler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RemoteFreeTest {
+
+    private static final long DONE = -2;
+
+    @Test
+    @DisplayName("生产者分配消费者释放测试")
+    public void producerConsumerTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        BlockingQueue<Long> queue = new ArrayBlockingQueue<>(1024);
+        int count = 200_000;
+        Thread[] consumers = new Thread[3];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new Thread(() -> {
+                try {
+                    long pointer;
+                    while ((pointer = queue.take()) != DONE) {
+                        pool.freeRemote(pointer);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            consumers[i].start();
+        }
+        for (int i = 0; i < count; i++) {
+            long pointer = pool.malloc(64);
+            pool.putInt(pointer, 0, i);
+            queue.put(pointer);
+        }
+        for (int i = 0; i < consumers.length; i++) {
+            queue.put(DONE);
+        }
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+        pool.drainRemoteFrees();
+        assertEquals(0, pool.usedBytes());
+        assertEquals(count, pool.stats().getFrees());
+        // 释放的块在分配时被复用，队列中最多1024个块，不需要几十个页
+        assertTrue(pool.reservedBytes() <= 2L * 64 * 2048, "reserved " + pool.reservedBytes());
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("阻塞策略下远程释放唤醒等待的线程测试")
+    public void blockingTest() throws Exception {
+        SynchronizedMemoryPool pool = new SynchronizedMemoryPool(new PoolConfig()
+                .maxReservedBytes(4 * 2048)
+                .exhaustionPolicy(PoolConfig.ExhaustionPolicy.BLOCK)
+                .blockTimeoutMillis(10_000));
+        long[] pointers = new long[2048];
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i] = pool.malloc(4);
+        }
+        Thread freer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            pool.freeRemote(pointers[0]);
+        });
+        freer.start();
+        long start = System.nanoTime();
+        assertNotEquals(IMemoryPool.NULL_POINTER, pool.malloc(4));
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        freer.join();
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("锁被占用时远程释放也能唤醒等待的线程测试")
+    public void blockingWhileLockedTest() throws Exception {
+        SynchronizedMemoryPool pool = new SynchronizedMemoryPool(new PoolConfig()
+                .maxReservedBytes(4 * 2048 + 64 * 2048)
+                .exhaustionPolicy(PoolConfig.ExhaustionPolicy.BLOCK)
+                .blockTimeoutMillis(10_000));
+        // 64字节的页还有空闲块，4字节的页已满
+        pool.malloc(64);
+        long[] pointers = new long[2048];
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i] = pool.malloc(4);
+        }
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> pool.malloc(64));
+        // 分配回调在锁内执行，用来让holder线程一直持有锁
+        pool.setProfiler(new AllocationProfiler() {
+            @Override
+            public void allocated(long block, int bytes, int sizeClass) {
+                if (Thread.currentThread() == holder) {
+                    holding.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        long[] result = {IMemoryPool.NULL_POINTER};
+        Thread waiter = new Thread(() -> result[0] = pool.malloc(4));
+        waiter.start();
+        // 等待线程进入等待后释放了锁
+        while (waiter.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        holder.start();
+        holding.await();
+        // 锁被holder占用，freeRemote不能立即释放和通知
+        pool.freeRemote(pointers[0]);
+        release.countDown();
+        holder.join();
+        // 不需要等到10秒超时
+        waiter.join(5_000);
+        assertFalse(waiter.isAlive());
+        assertNotEquals(IMemoryPool.NULL_POINTER, result[0]);
+        pool.setProfiler(null);
+        pool.close();
+    }
+}
@@ -0,0 +1,160 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.collections.StringMap;
+import zone.chenfeng.JMemPool.collections.StringPool;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.server.SimpleServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerCommandTest {
+
+    @Test
+    @DisplayName("按字节解析执行命令测试")
+    public void commandTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        SimpleServer server = new SimpleServer(0, new StringMap(new StringPool(pool), System::currentTimeMillis), pool);
+        assertEquals("null\n", execute(server, "get k1\r\n"));
+        assertEquals("OK\n", execute(server, "  SET k1 hello\n"));
+        assertEquals("hello\n", execute(server, "GeT\tk1"));
+        assertEquals("OK\n", execute(server, "set k1 hello-world-" + "x".repeat(100)));
+        assertEquals("hello-world-" + "x".repeat(100) + "\n", execute(server, "get k1"));
+        // 非ASCII的key和value
+        assertEquals("OK\n", execute(server, "set 键 值"));
+        assertEquals("值\n", execute(server, "get 键"));
+        // 超过输出缓冲区的大value
+        assertEquals("OK\n", execute(server, "set big " + "a".repeat(60_000)));
+        assertEquals(6, execute(server, "append big " + "b".repeat(10_000)).length());
+        assertEquals("a".repeat(60_000) + "b".repeat(10_000) + "\n", execute(server, "get big"));
+        // 其他命令仍然按String执行
+        assertEquals("OK\n", execute(server, "set k2 v ex 100"));
+        assertEquals("100\n", execute(server, "ttl k2"));
+        assertEquals("-1\n", execute(server, "ttl k1"));
+        assertEquals("Unknown command\n", execute(server, "   "));
+        assertEquals("Invalid get command. Usage: get key\n", execute(server, "get"));
+        // 负数的count返回错误，不会断开连接
+        assertEquals("(empty list)\n", execute(server, "slowlog get 0"));
+        assertTrue(execute(server, "slowlog get -1").startsWith("Invalid slowlog command"));
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("GET/SET稳态不分配堆内存测试")
+    public void garbageFreeTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        SimpleServer server = new SimpleServer(0, new StringMap(new StringPool(pool), System::currentTimeMillis), pool);
+        ByteBuffer[] requests = new ByteBuffer[64];
+        for (int i = 0; i < requests.length; i++) {
+            String command = i % 2 == 0 ? "set key" + (i / 2) + " value-" + i : "get key" + (i / 2);
+            requests[i] = ByteBuffer.wrap(command.getBytes(StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            server.processCommand(requests[i % requests.length]);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int count = 100_000;
+        long responseBytes = 0;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < count; i++) {
+            responseBytes += server.processCommand(requests[i % requests.length]).remaining();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(responseBytes > count * 3L);
+        // 允许测量本身和偶发的JIT相关分配，远小于每条命令一个对象
+        assertTrue(allocated < count, "allocated " + allocated + " bytes");
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("通过socket读取大value测试")
+    public void largeResponseTest() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        SimpleServer server = new SimpleServer(port, new StringMap());
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        try (Socket socket = connect(port)) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            String part = "v".repeat(16 * 1024);
+            assertEquals("OK", request(in, out, "set big " + part));
+            // 回环连接的发送缓冲区可以自动增长到几MB，value要比它大，服务端才一定写不完
+            int parts = 400;
+            for (int i = 1; i < parts; i++) {
+                assertEquals(String.valueOf(part.length() * (i + 1)), request(in, out, "append big " + part));
+            }
+            assertEquals("OK", request(in, out, "set small hello"));
+            // 客户端的接收缓冲区很小并且先不读取，服务端一次只能写出一部分响应
+            out.write("get big".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            Thread.sleep(200);
+            assertEquals(part.repeat(parts), readLine(in));
+            // 之后的命令按顺序得到完整的响应
+            assertEquals("hello", request(in, out, "get small"));
+        }
+    }
+
+    private static Socket connect(int port) throws Exception {
+        for (int i = 0; ; i++) {
+            Socket socket = new Socket();
+            socket.setReceiveBufferSize(8 * 1024);
+            try {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 1000);
+                socket.setSoTimeout(10_000);
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                if (i >= 50) {
+                    throw e;
+                }
+                // 服务端线程还没有开始监听
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static String request(InputStream in, OutputStream out, String command) throws IOException {
+        out.write(command.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return readLine(in);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("Connection closed");
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String execute(SimpleServer server, String command) {
+        ByteBuffer response = server.processCommand(ByteBuffer.wrap(command.getBytes(StandardCharsets.UTF_8)));
+        return StandardCharsets.UTF_8.decode(response).toString();
+    }
+}
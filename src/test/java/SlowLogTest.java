@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.server.SlowLog;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlowLogTest {
+
+    @Test
+    @DisplayName("慢日志测试")
+    public void slowLogTest() {
+        SlowLog slowLog = new SlowLog(1000, 3);
+        assertFalse(slowLog.record(new String[]{"get", "a"}, 999_999, 0));
+        assertEquals(0, slowLog.size());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(slowLog.record(new String[]{"set", "k" + i, "v"}, 1_000_000 + i * 1000, i * 1000L));
+        }
+        // 环形缓冲区只保留最新的3条，从新到旧
+        assertEquals(3, slowLog.size());
+        List<SlowLog.Entry> entries = slowLog.latest(10);
+        assertEquals(3, entries.size());
+        assertEquals(4, entries.get(0).id);
+        assertEquals(1004, entries.get(0).durationMicros);
+        assertArrayEquals(new String[]{"set", "k4", "v"}, entries.get(0).args);
+        assertEquals(2, entries.get(2).id);
+        assertEquals(1, slowLog.latest(1).size());
+        assertTrue(slowLog.latest(0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> slowLog.latest(-1));
+
+        // 过长的参数被截断
+        String[] args = new String[40];
+        args[0] = "set";
+        for (int i = 1; i < args.length; i++) {
+            args[i] = "x".repeat(200);
+        }
+        slowLog.record(args, 2_000_000, 0);
+        SlowLog.Entry entry = slowLog.latest(1).get(0);
+        assertEquals(32, entry.args.length);
+        assertEquals(131, entry.args[1].length());
+        assertTrue(entry.args[31].contains("9 more"));
+
+        slowLog.reset();
+        assertEquals(0, slowLog.size());
+        assertTrue(slowLog.latest(10).isEmpty());
+
+        SlowLog disabled = new SlowLog(-1, 3);
+        assertFalse(disabled.record(new String[]{"get"}, Long.MAX_VALUE, 0));
+    }
+}
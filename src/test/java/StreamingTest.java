@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.impl.ChunkedValueReader;
+import zone.chenfeng.JMemPool.impl.ChunkedValueWriter;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingTest {
+
+    @Test
+    @DisplayName("流式写入读取测试")
+    public void streamTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool(new PoolConfig().chunkSize(4096));
+        byte[] data = new byte[3 * 1024 * 1024 + 123];
+        ThreadLocalRandom.current().nextBytes(data);
+
+        long pointer;
+        try (ChunkedValueWriter writer = pool.openWriter()) {
+            // 混合使用OutputStream和channel的写法
+            writer.write(data[0]);
+            writer.write(data, 1, 9999);
+            writer.write(ByteBuffer.wrap(data, 10000, data.length - 10000));
+            pointer = writer.pointer();
+            assertEquals(data.length, writer.length());
+        }
+        assertEquals(data.length, pool.length(pointer));
+        assertArrayEquals(data, pool.get(pointer));
+
+        try (InputStream in = pool.openReader(pointer)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        ChunkedValueReader reader = pool.openReader(pointer);
+        ByteBuffer dst = ByteBuffer.allocate(data.length + 10);
+        while (reader.read(dst) > 0) {
+        }
+        assertEquals(-1, reader.read(dst));
+        assertArrayEquals(data, Arrays.copyOf(dst.array(), dst.position()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long position = 5000;
+        assertEquals(data.length - position, pool.transferTo(pointer, position, Channels.newChannel(out)));
+        assertArrayEquals(Arrays.copyOfRange(data, (int) position, data.length), out.toByteArray());
+
+        // 释放后段被复用，不再分配新的堆外内存
+        long used = pool.usedBytes();
+        long reserved = pool.reservedBytes();
+        pool.free(pointer);
+        assertEquals(0, pool.usedBytes());
+        try (ChunkedValueWriter writer = pool.openWriter()) {
+            writer.write(data);
+            pointer = writer.pointer();
+        }
+        assertEquals(used, pool.usedBytes());
+        assertEquals(reserved, pool.reservedBytes());
+        assertArrayEquals(data, pool.get(pointer));
+
+        // 覆盖写入后变为普通的内存块
+        long small = pool.put(pointer, new byte[]{1, 2, 3});
+        assertArrayEquals(new byte[]{1, 2, 3}, pool.get(small));
+        assertEquals(4, pool.usedBytes());
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("transferTo普通内存块测试")
+    public void transferBlockTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        byte[] little = "hello world".getBytes();
+        byte[] huge = new byte[1000];
+        ThreadLocalRandom.current().nextBytes(huge);
+        for (byte[] data : new byte[][]{little, huge}) {
+            long pointer = pool.put(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(data.length - 6, pool.transferTo(pointer, 6, Channels.newChannel(out)));
+            assertArrayEquals(Arrays.copyOfRange(data, 6, data.length), out.toByteArray());
+            assertThrows(IllegalArgumentException.class, () -> pool.openReader(pointer));
+        }
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("流式写入容量限制测试")
+    public void streamCapacityTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool(new PoolConfig().chunkSize(4096).maxReservedBytes(64 * 1024));
+        ChunkedValueWriter writer = pool.openWriter();
+        assertThrows(IOException.class, () -> writer.write(new byte[100 * 1024]));
+        writer.abort();
+        assertEquals(0, pool.usedBytes());
+        // 释放的段可以被下一个value复用
+        try (ChunkedValueWriter next = pool.openWriter()) {
+            next.write(new byte[32 * 1024]);
+        }
+        pool.close();
+    }
+}
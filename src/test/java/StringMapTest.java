@@ -0,0 +1,173 @@
+import org.junit.jupiter.api.*;
+import zone.chenfeng.JMemPool.collections.EvictionPolicy;
+import zone.chenfeng.JMemPool.collections.StringMap;
+import zone.chenfeng.JMemPool.collections.TimingWheel;
+import zone.chenfeng.JMemPool.collections.Utf8Key;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringMapTest {
+
+    @Test
+    @DisplayName("过期时间测试")
+    public void ttlTest() {
+        long[] now = {1_000_000};
+        StringMap map = new StringMap(() -> now[0]);
+        map.put("a", "1", 1000);
+        map.put("b", "2");
+        assertEquals(1000, map.ttl("a"));
+        assertEquals(-1, map.ttl("b"));
+        assertEquals(-2, map.ttl("c"));
+
+        // 惰性删除
+        now[0] += 1000;
+        assertNull(map.get("a"));
+        assertEquals(-2, map.ttl("a"));
+
+        // 重新set会清除过期时间
+        map.put("b", "3", 500);
+        map.put("b", "4");
+        now[0] += 1000;
+        assertEquals("4", map.get("b"));
+
+        assertTrue(map.expire("b", 100));
+        assertFalse(map.expire("c", 100));
+        now[0] += 200;
+        assertEquals(0, map.activeExpire(0));
+        assertEquals(1, map.activeExpire(100));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    @DisplayName("主动过期测试")
+    public void activeExpireTest() {
+        long[] now = {0};
+        StringMap map = new StringMap(() -> now[0]);
+        int amount = 10000;
+        for (int i = 0; i < amount; i++) {
+            map.put("key-" + i, "value-" + i, 1 + i * 37L);
+        }
+        // 每次最多删除100个key，推进时间直到全部过期
+        int expired = 0;
+        while (now[0] < amount * 37L + 1000) {
+            now[0] += 50;
+            int count = map.activeExpire(100);
+            assertTrue(count <= 100);
+            expired += count;
+        }
+        while (map.size() > 0) {
+            expired += map.activeExpire(100);
+        }
+        assertEquals(amount, expired);
+    }
+
+    @Test
+    @DisplayName("时间轮测试")
+    public void timingWheelTest() {
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 8, 2, 0);
+        // 超出两层范围的deadline会放入overflow
+        long[] deadlines = {0, 5, 10, 79, 80, 640, 641, 5000, 12345};
+        for (long deadline : deadlines) {
+            wheel.add(deadline, deadline);
+        }
+        List<Long> fired = new ArrayList<>();
+        for (long now = 0; now <= 20000; now++) {
+            long time = now;
+            wheel.expire(now, Integer.MAX_VALUE, (key, deadline) -> {
+                // 不能提前到期，也不能延迟超过一个tick
+                assertTrue(deadline <= time, "fired early: " + deadline + " at " + time);
+                assertTrue(time - deadline <= 10, "fired late: " + deadline + " at " + time);
+                fired.add(key);
+            });
+        }
+        assertEquals(deadlines.length, fired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("LRU淘汰测试")
+    public void lruEvictionTest() {
+        long[] now = {0};
+        StringMap map = new StringMap(() -> now[0]);
+        map.setMaxMemory(64 * 1024, EvictionPolicy.ALLKEYS_LRU);
+        for (int i = 0; i < 100; i++) {
+            map.put("hot-" + i, "0123456789abcdef0123456789abcdef");
+        }
+        for (int i = 0; i < 20000; i++) {
+            now[0] += 1000;
+            map.put("cold-" + i, "0123456789abcdef0123456789abcdef");
+            // 热点key一直在被访问
+            map.get("hot-" + (i % 100));
+            assertTrue(map.usedMemory() <= 64 * 1024 + 256);
+        }
+        assertTrue(map.evictedKeys() > 0);
+        int hot = 0;
+        for (int i = 0; i < 100; i++) {
+            if (map.containsKey("hot-" + i)) hot++;
+        }
+        assertTrue(hot > 90, "hot keys kept: " + hot);
+    }
+
+    @Test
+    @DisplayName("LFU淘汰测试")
+    public void lfuEvictionTest() {
+        long[] now = {0};
+        StringMap map = new StringMap(() -> now[0]);
+        map.setMaxMemory(64 * 1024, EvictionPolicy.ALLKEYS_LFU);
+        for (int i = 0; i < 100; i++) {
+            map.put("hot-" + i, "0123456789abcdef0123456789abcdef");
+            for (int j = 0; j < 100; j++) {
+                map.get("hot-" + i);
+            }
+        }
+        for (int i = 0; i < 20000; i++) {
+            map.put("cold-" + i, "0123456789abcdef0123456789abcdef");
+        }
+        int hot = 0;
+        for (int i = 0; i < 100; i++) {
+            if (map.containsKey("hot-" + i)) hot++;
+        }
+        assertTrue(hot > 90, "hot keys kept: " + hot);
+    }
+
+    @Test
+    @DisplayName("不淘汰测试")
+    public void noEvictionTest() {
+        StringMap map = new StringMap();
+        map.setMaxMemory(1024, EvictionPolicy.NOEVICTION);
+        assertThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 1000; i++) {
+                map.put("key-" + i, "0123456789abcdef");
+            }
+        });
+        // 删除后可以继续写入
+        map.remove("key-0");
+        map.put("key-0", "0123456789abcdef");
+    }
+
+    @Test
+    @DisplayName("写入失败保留过期时间测试")
+    public void rejectedPutKeepsTtlTest() {
+        long[] now = {1_000_000};
+        StringMap map = new StringMap(() -> now[0]);
+        map.setMaxMemory(1024, EvictionPolicy.NOEVICTION);
+        map.put("a", "1", 1000);
+        assertThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 1000; i++) {
+                map.put("key-" + i, "0123456789abcdef");
+            }
+        });
+        byte[] value = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalStateException.class, () -> map.put("a", "0123456789abcdef"));
+        assertThrows(IllegalStateException.class, () -> map.put(new Utf8Key(new byte[]{'a'}, 0, 1), value, 0, value.length));
+        // 被拒绝的写入不改变原来的值和过期时间
+        assertEquals("1", map.get("a"));
+        assertEquals(1000, map.ttl("a"));
+        now[0] += 1000;
+        assertNull(map.get("a"));
+    }
+}
@@ -0,0 +1,130 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.collections.StringMap;
+import zone.chenfeng.JMemPool.collections.StringPool;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringPoolTest {
+
+    @Test
+    @DisplayName("去重测试")
+    public void dedupTest() {
+        SimpleMemoryPool memoryPool = new SimpleMemoryPool();
+        StringPool pool = new StringPool(memoryPool, true);
+        long a1 = pool.putString("hello");
+        long a2 = pool.putString("hello");
+        long b = pool.putString("world");
+        assertEquals(a1, a2);
+        assertNotEquals(a1, b);
+        assertEquals(2, pool.distinctValues());
+        assertEquals(16, memoryPool.usedBytes());
+
+        // 引用计数减到0才释放
+        assertEquals("hello", pool.free(a1));
+        assertEquals("hello", pool.getString(a2));
+        pool.release(a2);
+        assertEquals(1, pool.distinctValues());
+        assertEquals(8, memoryPool.usedBytes());
+
+        // 修改共享的值不影响其他引用
+        long c1 = pool.putString("world");
+        long c2 = pool.putString(c1, "another value");
+        assertEquals("world", pool.getString(b));
+        assertEquals("another value", pool.getString(c2));
+    }
+
+    @Test
+    @DisplayName("去重随机测试")
+    public void dedupRandomTest() {
+        SimpleMemoryPool memoryPool = new SimpleMemoryPool();
+        StringPool pool = new StringPool(memoryPool, true);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> pointers = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            if (pointers.isEmpty() || random.nextInt(3) != 0) {
+                String value = "value-" + random.nextInt(500) + "-" + "x".repeat(random.nextInt(300));
+                pointers.add(pool.putString(value));
+                values.add(value);
+            } else {
+                int index = random.nextInt(pointers.size());
+                assertEquals(values.get(index), pool.free(pointers.get(index)));
+                pointers.set(index, pointers.get(pointers.size() - 1));
+                values.set(index, values.get(values.size() - 1));
+                pointers.remove(pointers.size() - 1);
+                values.remove(values.size() - 1);
+            }
+        }
+        Map<String, Long> distinct = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), pool.getString(pointers.get(i)));
+            Long pointer = distinct.putIfAbsent(values.get(i), pointers.get(i));
+            assertTrue(pointer == null || pointer.equals(pointers.get(i)));
+        }
+        assertEquals(distinct.size(), pool.distinctValues());
+        pointers.forEach(pool::release);
+        assertEquals(0, pool.distinctValues());
+        assertEquals(0, memoryPool.usedBytes());
+    }
+
+    @Test
+    @DisplayName("StringMap去重测试")
+    public void stringMapDedupTest() {
+        StringPool pool = new StringPool(new SimpleMemoryPool(), true);
+        StringMap map = new StringMap(pool, System::currentTimeMillis);
+        for (int i = 0; i < 10_000; i++) {
+            map.put("key-" + i, "{\"status\":\"" + (i % 10) + "\"}");
+        }
+        // 内存只与不同值的个数有关
+        assertEquals(10, pool.distinctValues());
+        assertEquals(10 * 16, map.usedMemory());
+        for (int i = 0; i < 10_000; i += 2) {
+            map.remove("key-" + i);
+        }
+        assertEquals(5, pool.distinctValues());
+        assertEquals("{\"status\":\"3\"}", map.get("key-3"));
+    }
+
+    @Test
+    @DisplayName("直接编解码测试")
+    public void directEncodingTest() {
+        StringPool pool = new StringPool(new SimpleMemoryPool());
+        String[] values = {"ascii", "Latin-1: café", "中文字符串", "emoji \uD83D\uDE00!", "bad \uD800 surrogate", "x".repeat(300) + "中"};
+        StringBuilder sb = new StringBuilder();
+        CharBuffer cb = CharBuffer.allocate(1024);
+        for (String value : values) {
+            long pointer = pool.putString(new StringBuilder(value));
+            String expected = new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            assertEquals(expected, pool.getString(pointer));
+            assertTrue(pool.equals(pointer, expected));
+            assertFalse(pool.equals(pointer, expected + "a"));
+            assertFalse(pool.equals(pointer, expected.substring(1)));
+            assertEquals(StringPool.hash(expected), pool.hash(pointer));
+
+            sb.setLength(0);
+            assertEquals(expected, pool.getString(pointer, sb).toString());
+            cb.clear();
+            pool.getString(pointer, cb).flip();
+            assertEquals(expected, cb.toString());
+        }
+        // 修改已有的字符串，小页内存块能放下时原地编码
+        long pointer = pool.putString("0123456789abcdef");
+        for (String value : values) {
+            pointer = pool.putString(pointer, value);
+            assertEquals(new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), pool.getString(pointer));
+        }
+        long inPlace = pool.putString(pointer, "中文");
+        assertEquals(inPlace, pool.putString(inPlace, "ab"));
+        assertEquals("ab", pool.getString(inPlace));
+    }
+}
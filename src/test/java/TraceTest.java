@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zone.chenfeng.JMemPool.impl.PoolConfig;
+import zone.chenfeng.JMemPool.impl.SimpleMemoryPool;
+import zone.chenfeng.JMemPool.trace.ReplayReport;
+import zone.chenfeng.JMemPool.trace.TraceReplayer;
+import zone.chenfeng.JMemPool.trace.TracingMemoryPool;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceTest {
+
+    @Test
+    @DisplayName("记录分配轨迹并重放测试")
+    public void recordReplayTest() throws Exception {
+        SimpleMemoryPool pool = new SimpleMemoryPool();
+        long before = pool.malloc(8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TracingMemoryPool tracer = new TracingMemoryPool(pool, out);
+        Random random = new Random(1);
+        List<Long> live = new ArrayList<>();
+        long peakUsed = 0;
+        for (int i = 0; i < 20_000; i++) {
+            int op = random.nextInt(10);
+            if (op < 4 || live.isEmpty()) {
+                live.add(tracer.malloc(1 + random.nextInt(256)));
+            } else if (op < 5) {
+                live.add(tracer.put(new byte[257 + random.nextInt(2000)]));
+            } else if (op < 7) {
+                int index = random.nextInt(live.size());
+                live.set(index, tracer.put(live.get(index), new byte[1 + random.nextInt(300)]));
+            } else if (op < 8) {
+                int index = random.nextInt(live.size());
+                live.set(index, tracer.append(live.get(index), new byte[1 + random.nextInt(64)]));
+            } else {
+                tracer.free(live.remove(random.nextInt(live.size())));
+            }
+            peakUsed = Math.max(peakUsed, pool.usedBytes() - 8);
+        }
+        // 开始记录之前分配的内存块不记录
+        tracer.free(before);
+        long used = pool.usedBytes();
+        long reserved = pool.reservedBytes();
+        long records = tracer.records();
+        assertEquals(20_000, records);
+        tracer.stopRecording();
+        assertFalse(tracer.isRecording());
+        // 平均每条记录不到4字节
+        assertTrue(out.size() < records * 4);
+
+        TraceReplayer replayer = new TraceReplayer(out.toByteArray()).sampleInterval(1000);
+        ReplayReport report = replayer.replay("default", new PoolConfig());
+        assertEquals(records, report.getOperations());
+        assertEquals(0, report.getFailedOperations());
+        assertEquals(used, report.getFinalUsedBytes());
+        assertEquals(reserved, report.getFinalReservedBytes());
+        assertEquals(peakUsed, report.getPeakUsedBytes());
+        assertEquals(20, report.getFragmentation().length);
+        assertTrue(report.getOpsPerSecond() > 0);
+
+        // 容量不够时分配失败，之后对同一内存块的操作也计为失败
+        ReplayReport limited = replayer.replay("small", TraceReplayer.parseConfig("maxReservedBytes=64kb"));
+        assertTrue(limited.getFailedOperations() > 0);
+        assertTrue(limited.getPeakReservedBytes() <= 64 * 1024);
+        assertTrue(limited.toString().startsWith("small"));
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("非法轨迹测试")
+    public void invalidTraceTest() {
+        assertThrows(IllegalArgumentException.class, () -> new TraceReplayer(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+        assertThrows(IllegalArgumentException.class, () -> TraceReplayer.parseConfig("pageSize=1"));
+    }
+}